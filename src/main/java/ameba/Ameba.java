@@ -2,6 +2,7 @@ package ameba;
 
 import ameba.container.Container;
 import ameba.core.Application;
+import ameba.core.ClassDataSharing;
 import ameba.exception.AmebaException;
 import ameba.i18n.Messages;
 import ameba.util.AmebaInfo;
@@ -83,8 +84,12 @@ public class Ameba {
 
         int idArgLen = idCommand.length();
 
+        boolean train = false;
+
         for (String arg : args) {
-            if (arg.startsWith(idCommand)) {
+            if (ClassDataSharing.isTrainCommand(arg)) {
+                train = true;
+            } else if (arg.startsWith(idCommand)) {
                 String idConf = arg.substring(idArgLen);
                 if (StringUtils.isNotBlank(idConf)) {
                     list.add(idConf);
@@ -105,6 +110,12 @@ public class Ameba {
             System.exit(500);
         }
 
+        if (train) {
+            // the JVM writes the loaded classes on exit, the shutdown hook stops the container
+            ClassDataSharing.train(app);
+            System.exit(0);
+        }
+
         try {
             Thread.currentThread().join();
         } catch (InterruptedException e) {
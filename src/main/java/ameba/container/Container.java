@@ -1,13 +1,18 @@
 package ameba.container;
 
 import ameba.container.event.*;
+import ameba.container.internal.ConfigHelper;
+import ameba.container.internal.ReloadingHandler;
 import ameba.container.server.Connector;
 import ameba.core.Application;
 import ameba.event.SystemEventBus;
 import ameba.i18n.Messages;
 import ameba.util.ClassUtils;
+import com.google.common.primitives.Longs;
+import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.internal.inject.AbstractBinder;
 import org.glassfish.jersey.internal.inject.InjectionManager;
+import org.glassfish.jersey.server.ApplicationHandler;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 import org.slf4j.Logger;
@@ -17,6 +22,9 @@ import javax.websocket.server.ServerContainer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * <p>Abstract Container class.</p>
@@ -28,8 +36,15 @@ public abstract class Container {
      * Constant <code>logger</code>
      */
     protected static final Logger logger = LoggerFactory.getLogger(Container.class);
+    /**
+     * Constant <code>RELOAD_TIMEOUT_KEY="container.reload.timeout"</code>
+     */
+    public static final String RELOAD_TIMEOUT_KEY = "container.reload.timeout";
 
+    private final ShutdownCoordinator shutdownCoordinator = new ShutdownCoordinator(this);
     private Application application;
+    private volatile long reloadBeginNanos;
+    private volatile long lastReloadTime = -1;
 
     /**
      * <p>Constructor for Container.</p>
@@ -79,6 +94,8 @@ public abstract class Container {
                 bind(Container.this).to(Container.class).proxy(false);
             }
         });
+        configuration.register(shutdownCoordinator.new RequestTracker());
+        configuration.register(shutdownCoordinator.new DrainFilter());
         configuration.registerInstances(new ContainerLifecycleListener() {
             @Override
             public void onStartup(org.glassfish.jersey.server.spi.Container container) {
@@ -88,14 +105,14 @@ public abstract class Container {
 
             @Override
             public void onReload(org.glassfish.jersey.server.spi.Container container) {
-                SystemEventBus.publish(new ReloadedEvent(Container.this, application));
-                logger.trace(Messages.get("info.container.reload"));
+                reloaded();
             }
 
             @Override
             public void onShutdown(org.glassfish.jersey.server.spi.Container container) {
                 logger.info("Container onShutdown");
                 SystemEventBus.publish(new ShutdownEvent(Container.this, application));
+                shutdownCoordinator.close();
                 logger.trace(Messages.get("info.container.shutdown"));
             }
         });
@@ -110,6 +127,15 @@ public abstract class Container {
         return application;
     }
 
+    /**
+     * <p>Getter for the field <code>shutdownCoordinator</code>.</p>
+     *
+     * @return a {@link ameba.container.ShutdownCoordinator} object.
+     */
+    public ShutdownCoordinator getShutdownCoordinator() {
+        return shutdownCoordinator;
+    }
+
     /**
      * <p>getInjectionManager.</p>
      *
@@ -155,13 +181,143 @@ public abstract class Container {
 
     /**
      * <p>reload.</p>
+     * <p>
+     * A container serving through a {@link ReloadingHandler} builds the next handler in background,
+     * the others rebuild it in {@link #doReload()}.
      *
      * @throws java.lang.Exception if any
      * @since 0.1.6e
      */
     public void reload() throws Exception {
+        ReloadingHandler handlers = getReloadingHandler();
+        if (handlers == null) {
+            reloadBeginNanos = System.nanoTime();
+            SystemEventBus.publish(new BeginReloadEvent(this, application));
+            doReload();
+        } else {
+            reload(handlers, new ResourceConfig(application.getConfig()));
+        }
+    }
+
+    private void reload(ReloadingHandler handlers, ResourceConfig configuration) {
+        reloadBeginNanos = System.nanoTime();
         SystemEventBus.publish(new BeginReloadEvent(this, application));
-        doReload();
+        reloadInBackground(handlers, configuration).whenComplete((handler, e) -> {
+            if (e != null) {
+                logger.error(Messages.get("info.container.reload.error"), e);
+            }
+        });
+    }
+
+    /**
+     * The handler serving the requests of the containers which reload without downtime.
+     *
+     * @return a {@link ameba.container.internal.ReloadingHandler} object, null if the container
+     * rebuilds its handler in {@link #doReload()}
+     */
+    protected ReloadingHandler getReloadingHandler() {
+        return null;
+    }
+
+    /**
+     * Build the handler of the configuration in background while the current handler keeps serving,
+     * swap it and retire the current one once its requests are finished.
+     * <p>
+     * The container lifecycle listeners of the next handler get {@code onReload} once it serves
+     * the new requests, so the {@link ReloadedEvent} is published then.
+     *
+     * @param handlers      a {@link ameba.container.internal.ReloadingHandler} object.
+     * @param configuration the configuration of the next handler
+     * @return the next handler once the previous one is retired
+     */
+    protected CompletableFuture<ApplicationHandler> reloadInBackground(ReloadingHandler handlers,
+                                                                       ResourceConfig configuration) {
+        return handlers.reload(() -> new ApplicationHandler(configuration), getReloadTimeout(),
+                handler -> ConfigHelper.getContainerLifecycleListener(handler)
+                        .onReload(new HandlerContainer(handlers, handler)),
+                handler -> retire(handlers, handler));
+    }
+
+    /**
+     * Release the handler replaced by a reload, after its requests are finished.
+     * <p>
+     * It is not a shutdown: the container lifecycle listeners are not called and no shutdown phase
+     * runs, so the data sources and the other resources shared with the next handler stay open.
+     * Only the application is pre-destroyed and the services of its injection manager are released.
+     *
+     * @param handlers a {@link ameba.container.internal.ReloadingHandler} object.
+     * @param handler  the previous handler
+     */
+    protected void retire(ReloadingHandler handlers, ApplicationHandler handler) {
+        new ConfigHelper.ServiceLocatorShutdownListener().onShutdown(new HandlerContainer(handlers, handler));
+    }
+
+    private void reloaded() {
+        if (reloadBeginNanos != 0) {
+            lastReloadTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - reloadBeginNanos);
+            reloadBeginNanos = 0;
+        }
+        SystemEventBus.publish(new ReloadedEvent(this, application));
+        logger.trace(Messages.get("info.container.reload"));
+    }
+
+    /**
+     * The jersey container of a handler served through a {@link ReloadingHandler}.
+     */
+    private class HandlerContainer implements org.glassfish.jersey.server.spi.Container {
+        private final ReloadingHandler handlers;
+        private final ApplicationHandler handler;
+
+        private HandlerContainer(ReloadingHandler handlers, ApplicationHandler handler) {
+            this.handlers = handlers;
+            this.handler = handler;
+        }
+
+        @Override
+        public ResourceConfig getConfiguration() {
+            return handler.getConfiguration();
+        }
+
+        @Override
+        public ApplicationHandler getApplicationHandler() {
+            return handler;
+        }
+
+        @Override
+        public void reload() {
+            try {
+                Container.this.reload();
+            } catch (Exception e) {
+                throw new ContainerException(e);
+            }
+        }
+
+        @Override
+        public void reload(ResourceConfig configuration) {
+            Container.this.reload(handlers, configuration);
+        }
+    }
+
+    /**
+     * <p>getReloadTimeout.</p>
+     *
+     * @return milliseconds to wait for the requests of the previous handler on reload,
+     * {@code container.shutdown.timeout} if not configured
+     */
+    protected long getReloadTimeout() {
+        Object value = application.getProperty(RELOAD_TIMEOUT_KEY);
+        Long timeout = value == null ? null : Longs.tryParse(StringUtils.trim(String.valueOf(value)));
+        return timeout == null ? ShutdownCoordinator.getTimeout(application) : timeout;
+    }
+
+    /**
+     * <p>getLastReloadTime.</p>
+     *
+     * @return milliseconds from the {@link BeginReloadEvent} to the {@link ReloadedEvent} of the last reload,
+     * -1 if not reloaded
+     */
+    public long getLastReloadTime() {
+        return lastReloadTime;
     }
 
     /**
@@ -180,14 +336,28 @@ public abstract class Container {
 
     /**
      * <p>shutdown.</p>
+     * <p>
+     * Drain the requests in flight before the server shutdown.
      *
      * @throws java.lang.Exception if any.
+     * @see ShutdownCoordinator
      */
     public void shutdown() throws Exception {
         SystemEventBus.publish(new BeginShutdownEvent(this, application));
+        shutdownCoordinator.drain();
         doShutdown();
     }
 
+    /**
+     * Stop accepting new connections on the connector, the open connections are kept
+     * until the requests in flight are finished.
+     *
+     * @param connector a {@link ameba.container.server.Connector} object.
+     * @throws java.lang.Exception if any.
+     */
+    protected void stopAccepting(Connector connector) throws Exception {
+    }
+
     /**
      * <p>doShutdown.</p>
      *
@@ -0,0 +1,310 @@
+package ameba.container;
+
+import ameba.container.event.ShutdownPhaseEvent;
+import ameba.container.server.Connector;
+import ameba.core.Application;
+import ameba.core.Requests;
+import ameba.event.SystemEventBus;
+import ameba.i18n.Messages;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Priority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drain-aware shutdown of the container.
+ * <p>
+ * {@link Container#shutdown()} stops accepting connections on each connector, answers new requests
+ * with 503 and waits until the requests and the asynchronous listeners in flight have finished or the
+ * deadline {@code container.shutdown.timeout} (milliseconds) passed. Then the server shuts down and
+ * after the {@link ameba.container.event.ShutdownEvent} the tasks of the {@link Phase#DATABASE} phase
+ * run before the ones of the {@link Phase#DATASOURCE} phase, so the pools are closed last.
+ * A {@link ShutdownPhaseEvent} is published when each phase begins.
+ * <p>
+ * Each container has its own coordinator counting its requests, the asynchronous listener calls
+ * of the {@link SystemEventBus} and the closing tasks are shared by the containers of the JVM.
+ *
+ * @author icode
+ * @see Container#getShutdownCoordinator()
+ */
+public final class ShutdownCoordinator {
+    /**
+     * Constant <code>TIMEOUT_KEY="container.shutdown.timeout"</code>
+     */
+    public static final String TIMEOUT_KEY = "container.shutdown.timeout";
+    /**
+     * Constant <code>DEFAULT_TIMEOUT=30000</code>
+     */
+    public static final long DEFAULT_TIMEOUT = 30000;
+    private static final Logger logger = LoggerFactory.getLogger(ShutdownCoordinator.class);
+    private static final Map<Phase, Map<String, Runnable>> TASKS = Maps.newEnumMap(Phase.class);
+    private static final AtomicInteger ASYNC = new AtomicInteger();
+    private final Container container;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean draining = false;
+    private volatile boolean closing = false;
+    private volatile long beginNanos;
+
+    static {
+        for (Phase phase : Phase.values()) {
+            TASKS.put(phase, Maps.newLinkedHashMap());
+        }
+    }
+
+    ShutdownCoordinator(Container container) {
+        this.container = container;
+    }
+
+    /**
+     * Register a task of a phase, a task with the same name replaces the previous one.
+     *
+     * @param phase {@link Phase#DATABASE} or {@link Phase#DATASOURCE}
+     * @param name  the task name
+     * @param task  the task
+     */
+    public static void register(Phase phase, String name, Runnable task) {
+        Map<String, Runnable> tasks = TASKS.get(phase);
+        synchronized (tasks) {
+            tasks.put(name, task);
+        }
+    }
+
+    /**
+     * <p>isDraining.</p>
+     *
+     * @return true if new requests are rejected
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * <p>isClosing.</p>
+     *
+     * @return true from the drain until the end of the shutdown
+     */
+    public boolean isClosing() {
+        return closing;
+    }
+
+    /**
+     * <p>getInFlightRequests.</p>
+     *
+     * @return the requests of the container in flight
+     */
+    public int getInFlightRequests() {
+        return requests.get();
+    }
+
+    /**
+     * <p>getInFlightAsync.</p>
+     *
+     * @return asynchronous listener calls queued or running
+     */
+    public static int getInFlightAsync() {
+        return ASYNC.get();
+    }
+
+    /**
+     * Record asynchronous listener calls which are queued.
+     *
+     * @param count the listener calls
+     */
+    public static void asyncStarted(int count) {
+        ASYNC.addAndGet(count);
+    }
+
+    /**
+     * Record an asynchronous listener call which finished.
+     */
+    public static void asyncFinished() {
+        ASYNC.decrementAndGet();
+    }
+
+    /**
+     * Wait until no request nor asynchronous listener is in flight.
+     * <p>
+     * When called from a request, such as a shutdown endpoint, that request is not waited for.
+     *
+     * @param timeout milliseconds
+     * @return false if the timeout passed
+     * @throws InterruptedException if interrupted
+     */
+    public boolean awaitIdle(long timeout) throws InterruptedException {
+        int own = Requests.isInScope() ? 1 : 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (requests.get() > own || ASYNC.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * <p>getTimeout.</p>
+     *
+     * @param application a {@link ameba.core.Application} object.
+     * @return the drain deadline in milliseconds
+     */
+    public static long getTimeout(Application application) {
+        Object value = application.getProperty(TIMEOUT_KEY);
+        Long timeout = value == null ? null : Longs.tryParse(StringUtils.trim(String.valueOf(value)));
+        return timeout == null ? DEFAULT_TIMEOUT : timeout;
+    }
+
+    /**
+     * Stop accepting and wait for the work in flight.
+     */
+    void drain() {
+        beginNanos = System.nanoTime();
+        closing = true;
+        draining = true;
+        long timeout = getTimeout(container.getApplication());
+        long begin = begin(Phase.DRAIN);
+        List<Connector> connectors = container.getConnectors();
+        if (connectors != null) {
+            for (Connector connector : connectors) {
+                try {
+                    container.stopAccepting(connector);
+                } catch (Exception e) {
+                    logger.warn(Messages.get("info.shutdown.stop.accepting.error", connector.getHttpServerBaseUri()), e);
+                }
+            }
+        }
+        try {
+            if (!awaitIdle(timeout)) {
+                logger.warn(Messages.get("info.shutdown.drain.timeout", timeout, requests.get(), ASYNC.get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        end(Phase.DRAIN, begin);
+        begin(Phase.SERVER);
+    }
+
+    /**
+     * Run the tasks closing the resources, after the {@link ameba.container.event.ShutdownEvent}.
+     */
+    void close() {
+        if (!closing) {
+            beginNanos = System.nanoTime();
+        }
+        try {
+            for (Phase phase : Lists.newArrayList(Phase.DATABASE, Phase.DATASOURCE)) {
+                long begin = begin(phase);
+                List<Runnable> tasks;
+                Map<String, Runnable> registered = TASKS.get(phase);
+                synchronized (registered) {
+                    tasks = Lists.newArrayList(registered.values());
+                    registered.clear();
+                }
+                for (Runnable task : tasks) {
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        logger.error(Messages.get("info.shutdown.phase.error", phase), e);
+                    }
+                }
+                end(phase, begin);
+            }
+            begin(Phase.DONE);
+        } finally {
+            draining = false;
+            closing = false;
+        }
+    }
+
+    private long begin(Phase phase) {
+        long now = System.nanoTime();
+        SystemEventBus.publish(new ShutdownPhaseEvent(container, container.getApplication(), phase,
+                TimeUnit.NANOSECONDS.toMillis(now - beginNanos)));
+        return now;
+    }
+
+    private static void end(Phase phase, long begin) {
+        logger.info(Messages.get("info.shutdown.phase",
+                phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
+    }
+
+    /**
+     * The phases of the shutdown.
+     */
+    public enum Phase {
+        /**
+         * stop accepting and wait for the work in flight
+         */
+        DRAIN,
+        /**
+         * shut down the server, the {@link ameba.container.event.ShutdownEvent} is published
+         */
+        SERVER,
+        /**
+         * shut down the database servers and their executors, the JDBC batches belong to the
+         * transactions and were flushed by the commits of the drained requests
+         */
+        DATABASE,
+        /**
+         * close the data source pools
+         */
+        DATASOURCE,
+        /**
+         * the shutdown finished
+         */
+        DONE
+    }
+
+    /**
+     * Count the requests in flight.
+     */
+    class RequestTracker implements ApplicationEventListener {
+        @Override
+        public void onEvent(ApplicationEvent event) {
+        }
+
+        @Override
+        public RequestEventListener onRequest(RequestEvent requestEvent) {
+            requests.incrementAndGet();
+            return event -> {
+                if (event.getType() == RequestEvent.Type.FINISHED) {
+                    requests.decrementAndGet();
+                }
+            };
+        }
+    }
+
+    /**
+     * Reject the requests arriving while draining.
+     */
+    @PreMatching
+    @Priority(Integer.MIN_VALUE)
+    class DrainFilter implements ContainerRequestFilter {
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            if (draining) {
+                requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .header("Connection", "close")
+                        .header(HttpHeaders.RETRY_AFTER, 1)
+                        .build());
+            }
+        }
+    }
+}
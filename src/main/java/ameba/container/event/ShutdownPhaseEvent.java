@@ -0,0 +1,50 @@
+package ameba.container.event;
+
+import ameba.container.Container;
+import ameba.container.ShutdownCoordinator;
+import ameba.core.Application;
+
+/**
+ * <p>ShutdownPhaseEvent class.</p>
+ * <p>
+ * Published after the {@link BeginShutdownEvent} when a phase of the shutdown begins.
+ *
+ * @author icode
+ * @see ShutdownCoordinator
+ */
+public class ShutdownPhaseEvent extends ContainerEvent {
+    private final ShutdownCoordinator.Phase phase;
+    private final long elapsed;
+
+    /**
+     * <p>Constructor for ShutdownPhaseEvent.</p>
+     *
+     * @param container a {@link ameba.container.Container} object.
+     * @param app       a {@link ameba.core.Application} object.
+     * @param phase     the phase which begins
+     * @param elapsed   milliseconds since the shutdown began
+     */
+    public ShutdownPhaseEvent(Container container, Application app, ShutdownCoordinator.Phase phase, long elapsed) {
+        super(container, app);
+        this.phase = phase;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * <p>Getter for the field <code>phase</code>.</p>
+     *
+     * @return a {@link ameba.container.ShutdownCoordinator.Phase} object.
+     */
+    public ShutdownCoordinator.Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * <p>Getter for the field <code>elapsed</code>.</p>
+     *
+     * @return milliseconds since the shutdown began
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+}
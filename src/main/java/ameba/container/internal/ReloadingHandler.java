@@ -0,0 +1,236 @@
+package ameba.container.internal;
+
+import ameba.i18n.Messages;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The {@link ApplicationHandler} serving the requests of a container, replaced without downtime on reload.
+ * <p>
+ * The next handler is built on a background thread while the current one keeps serving, then it is
+ * swapped atomically. The previous handler is retired once the requests it accepted are finished or
+ * the drain timeout passed. A container handles each request within a {@link Lease}:
+ * <pre>
+ * Lease lease = handlers.enter();
+ * lease.getHandler().handle(request); // close the lease when the response is written
+ * </pre>
+ *
+ * @author icode
+ */
+public class ReloadingHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ReloadingHandler.class);
+    private static final Executor RELOAD_EXECUTOR = task -> {
+        Thread thread = new Thread(task, "ameba-reload");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private final AtomicLong reloadCount = new AtomicLong();
+    private volatile Generation current;
+    private volatile long lastBuildTime = -1;
+    private volatile long lastDrainTime = -1;
+
+    /**
+     * <p>Constructor for ReloadingHandler.</p>
+     *
+     * @param handler the handler serving the requests
+     */
+    public ReloadingHandler(ApplicationHandler handler) {
+        this.current = new Generation(handler);
+    }
+
+    /**
+     * <p>getHandler.</p>
+     *
+     * @return the handler serving the requests
+     */
+    public ApplicationHandler getHandler() {
+        return current.handler;
+    }
+
+    /**
+     * Enter the current handler, it is not retired until the lease is closed.
+     *
+     * @return a {@link Lease} object.
+     */
+    public Lease enter() {
+        for (; ; ) {
+            Generation generation = current;
+            generation.inFlight.incrementAndGet();
+            // swapped meanwhile, the previous handler may be drained already
+            if (generation == current) {
+                return new Lease(generation);
+            }
+            generation.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Build the next handler in background, swap it and retire the previous one.
+     * <p>
+     * If the build fails the current handler keeps serving and the future completes exceptionally.
+     *
+     * @param factory      build the next handler
+     * @param drainTimeout milliseconds to wait for the requests of the previous handler
+     * @param retire       shut down the previous handler
+     * @return the next handler once the previous one is retired
+     */
+    public CompletableFuture<ApplicationHandler> reload(Supplier<ApplicationHandler> factory,
+                                                        long drainTimeout,
+                                                        Consumer<ApplicationHandler> retire) {
+        return reload(factory, drainTimeout, handler -> {
+        }, retire);
+    }
+
+    /**
+     * Build the next handler in background, swap it and retire the previous one.
+     * <p>
+     * If the build fails the current handler keeps serving and the future completes exceptionally.
+     *
+     * @param factory      build the next handler
+     * @param drainTimeout milliseconds to wait for the requests of the previous handler
+     * @param swapped      called with the next handler once it serves the new requests
+     * @param retire       shut down the previous handler
+     * @return the next handler once the previous one is retired
+     */
+    public CompletableFuture<ApplicationHandler> reload(Supplier<ApplicationHandler> factory,
+                                                        long drainTimeout,
+                                                        Consumer<ApplicationHandler> swapped,
+                                                        Consumer<ApplicationHandler> retire) {
+        if (!reloading.compareAndSet(false, true)) {
+            CompletableFuture<ApplicationHandler> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException(Messages.get("info.container.reload.running")));
+            return future;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            long begin = System.nanoTime();
+            ApplicationHandler next = factory.get();
+            long built = System.nanoTime();
+            lastBuildTime = TimeUnit.NANOSECONDS.toMillis(built - begin);
+
+            Generation previous = current;
+            current = new Generation(next);
+            swapped.accept(next);
+            try {
+                if (!previous.await(drainTimeout)) {
+                    logger.warn(Messages.get("info.container.reload.drain.timeout",
+                            drainTimeout, previous.inFlight.get()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lastDrainTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - built);
+            reloadCount.incrementAndGet();
+            logger.info(Messages.get("info.container.reload.time", lastBuildTime, lastDrainTime));
+            retire.accept(previous.handler);
+            return next;
+        }, RELOAD_EXECUTOR).whenComplete((handler, e) -> reloading.set(false));
+    }
+
+    /**
+     * <p>isReloading.</p>
+     *
+     * @return true while the next handler is built or the previous one is drained
+     */
+    public boolean isReloading() {
+        return reloading.get();
+    }
+
+    /**
+     * <p>getInFlight.</p>
+     *
+     * @return the requests in flight of the current handler
+     */
+    public int getInFlight() {
+        return current.inFlight.get();
+    }
+
+    /**
+     * <p>getReloadCount.</p>
+     *
+     * @return the completed reloads
+     */
+    public long getReloadCount() {
+        return reloadCount.get();
+    }
+
+    /**
+     * <p>getLastBuildTime.</p>
+     *
+     * @return milliseconds to build the handler of the last reload, -1 if not reloaded
+     */
+    public long getLastBuildTime() {
+        return lastBuildTime;
+    }
+
+    /**
+     * <p>getLastDrainTime.</p>
+     *
+     * @return milliseconds to drain the previous handler of the last reload, -1 if not reloaded
+     */
+    public long getLastDrainTime() {
+        return lastDrainTime;
+    }
+
+    private static class Generation {
+        private final ApplicationHandler handler;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Generation(ApplicationHandler handler) {
+            this.handler = handler;
+        }
+
+        boolean await(long timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (inFlight.get() > 0) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A request in flight of a handler.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Generation generation;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Generation generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * <p>getHandler.</p>
+         *
+         * @return the handler of the request
+         */
+        public ApplicationHandler getHandler() {
+            return generation.handler;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                generation.inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ameba.container.server;
 
+import ameba.core.ConfigSnapshot;
 import ameba.exception.ConfigErrorException;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -12,7 +13,6 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static ameba.util.IOUtils.readByteArrayFromResource;
 
@@ -119,28 +119,29 @@ public class Connector {
      * @return a {@link java.util.List} object.
      */
     public static List<Connector> createDefaultConnectors(Map<String, Object> properties) {
-        List<Connector> connectors = Lists.newArrayList();
-        Map<String, Map<String, String>> propertiesMap = Maps.newLinkedHashMap();
-        for (String key : properties.keySet()) {
-            if (key.startsWith(Connector.CONNECTOR_CONF_PREFIX)) {
-                String oKey = key;
-                key = key.substring(Connector.CONNECTOR_CONF_PREFIX.length());
-                int index = key.indexOf(".");
-                if (index == -1) {
-                    throw new ConfigErrorException("connector configure error, format connector.{connectorName}.{property}");
-                }
-                String name = key.substring(0, index);
-                Map<String, String> pr = propertiesMap.get(name);
-                if (pr == null) {
-                    pr = Maps.newLinkedHashMap();
-                    propertiesMap.put(name, pr);
-                    pr.put("name", name);
-                }
-                pr.put(key.substring(index + 1), String.valueOf(properties.get(oKey)));
+        return createDefaultConnectors(ConfigSnapshot.of(properties));
+    }
+
+    /**
+     * <p>createDefaultConnectors.</p>
+     *
+     * @param config the configuration, such as {@link ameba.core.Application#getConfigSnapshot()}
+     * @return a {@link java.util.List} object.
+     */
+    public static List<Connector> createDefaultConnectors(ConfigSnapshot config) {
+        Map<String, ConfigSnapshot> groups = config.getGroups(CONNECTOR_CONF_PREFIX);
+        for (String key : config.getPrefix(CONNECTOR_CONF_PREFIX).keySet()) {
+            if (key.indexOf('.') == -1) {
+                throw new ConfigErrorException("connector configure error, format connector.{connectorName}.{property}");
             }
         }
-
-        connectors.addAll(propertiesMap.values().stream().map(Connector::createDefault).collect(Collectors.toList()));
+        List<Connector> connectors = Lists.newArrayListWithCapacity(groups.size());
+        groups.forEach((name, group) -> {
+            Map<String, String> properties = Maps.newLinkedHashMap();
+            properties.put("name", name);
+            properties.putAll(group.asStringMap());
+            connectors.add(createDefault(properties));
+        });
         return connectors;
     }
 
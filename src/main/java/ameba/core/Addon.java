@@ -6,6 +6,8 @@ import ameba.event.EventBus;
 import ameba.event.Listener;
 import ameba.event.SystemEventBus;
 
+import java.util.Set;
+
 /**
  * <p>Abstract Addon class.</p>
  *
@@ -138,6 +140,22 @@ public abstract class Addon {
     public void done(Application application) {
     }
 
+    /**
+     * The addons which must finish {@link #setup} and {@link #done} before this addon.
+     * <p>
+     * If null the addon waits for all addons before it in priority order. Otherwise it waits for
+     * these addons and for the addons before it which return null, and may run concurrently with
+     * the other addons. It then gets its own view of the application: the source properties are
+     * read only, and the changes made through the application methods are applied after it, in
+     * priority order, so they are not visible to the addons running at the same time.
+     * The {@link Application#getConfig() config} must not be changed directly.
+     *
+     * @return the addon types, null by default
+     */
+    public Set<Class<? extends Addon>> getDependencies() {
+        return null;
+    }
+
     /**
      * <p>isEnabled.</p>
      *
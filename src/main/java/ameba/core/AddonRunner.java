@@ -0,0 +1,238 @@
+package ameba.core;
+
+import ameba.exception.ConfigErrorException;
+import ameba.i18n.Messages;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Run the setup or done work of the addons, an addon starts when the addons it depends on have finished.
+ * <p>
+ * An addon without declared dependencies depends on all addons before it, so the addons which
+ * declare none keep the sequential order. An addon with declared dependencies also waits for the
+ * addons before it which declare none, as they may still add keys to the source properties it
+ * reads. The failures are returned in the order of the addons, whatever the order they happened in.
+ * <p>
+ * When the addons run concurrently, an addon with declared dependencies gets its own
+ * {@link AddonView} of the application. The views are merged into the application in priority
+ * order, before the next addon which declares none runs and once all addons have finished, so the
+ * components are registered in the same order on every start.
+ *
+ * @author icode
+ * @see Addon#getDependencies()
+ */
+final class AddonRunner {
+
+    private AddonRunner() {
+    }
+
+    /**
+     * Resolve the dependencies of each addon.
+     *
+     * @param addons the addons in priority order
+     * @return the addons each addon waits for, in the same order
+     * @throws ConfigErrorException if the dependencies have a cycle
+     */
+    static Map<Addon, List<Addon>> dependencies(List<Addon> addons) {
+        Map<Addon, List<Addon>> dependencies = Maps.newLinkedHashMap();
+        for (int i = 0; i < addons.size(); i++) {
+            Addon addon = addons.get(i);
+            Set<Class<? extends Addon>> declared = addon.getDependencies();
+            List<Addon> depends;
+            if (declared == null) {
+                depends = Lists.newArrayList(addons.subList(0, i));
+            } else {
+                depends = Lists.newArrayList();
+                for (int j = 0; j < addons.size(); j++) {
+                    Addon other = addons.get(j);
+                    if (j < i && other.getDependencies() == null) {
+                        depends.add(other);
+                    } else if (other != addon) {
+                        for (Class<? extends Addon> type : declared) {
+                            if (type.isInstance(other)) {
+                                depends.add(other);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            dependencies.put(addon, depends);
+        }
+        checkCycle(dependencies);
+        return dependencies;
+    }
+
+    private static void checkCycle(Map<Addon, List<Addon>> dependencies) {
+        Map<Addon, Boolean> visited = Maps.newIdentityHashMap();
+        Deque<Addon> path = new ArrayDeque<>();
+        for (Addon addon : dependencies.keySet()) {
+            visit(addon, dependencies, visited, path);
+        }
+    }
+
+    private static void visit(Addon addon, Map<Addon, List<Addon>> dependencies,
+                              Map<Addon, Boolean> visited, Deque<Addon> path) {
+        Boolean done = visited.get(addon);
+        if (done == Boolean.TRUE) {
+            return;
+        }
+        if (done == Boolean.FALSE) {
+            List<String> cycle = Lists.newArrayList();
+            for (Iterator<Addon> it = path.descendingIterator(); it.hasNext(); ) {
+                cycle.add(it.next().getClass().getName());
+            }
+            cycle = cycle.subList(cycle.indexOf(addon.getClass().getName()), cycle.size());
+            cycle.add(addon.getClass().getName());
+            throw new ConfigErrorException(Messages.get("info.addon.dependency.cycle", String.join(" -> ", cycle)));
+        }
+        visited.put(addon, Boolean.FALSE);
+        path.push(addon);
+        for (Addon dependency : dependencies.get(addon)) {
+            visit(dependency, dependencies, visited, path);
+        }
+        path.pop();
+        visited.put(addon, Boolean.TRUE);
+    }
+
+    /**
+     * Run the action of each addon once its dependencies have finished, failed or not.
+     *
+     * @param application the application the addons change
+     * @param addons      the addons in priority order
+     * @param parallelism max threads, the action runs on the calling thread if it is less than 2
+     * @param action      the work of an addon with the application it sees
+     * @return the failures by addon, in the order of the addons
+     */
+    static Map<Addon, Throwable> run(Application application, List<Addon> addons, int parallelism,
+                                     BiConsumer<Addon, Application> action) {
+        Map<Addon, List<Addon>> dependencies = dependencies(addons);
+        Map<Addon, Throwable> failures = Collections.synchronizedMap(Maps.newIdentityHashMap());
+
+        if (parallelism < 2 || addons.size() < 2) {
+            for (Addon addon : order(dependencies)) {
+                run(addon, application, action, failures);
+            }
+        } else {
+            Views views = new Views(application, addons);
+            Consumer<Addon> task = addon -> {
+                Application view = views.of(addon);
+                run(addon, view, action, failures);
+            };
+            AtomicInteger count = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, addons.size()), r -> {
+                Thread thread = new Thread(r, "ameba-addon-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Map<Addon, CompletableFuture<Void>> futures = Maps.newIdentityHashMap();
+                for (Addon addon : order(dependencies)) {
+                    CompletableFuture<?>[] depends = dependencies.get(addon).stream()
+                            .map(futures::get)
+                            .toArray(CompletableFuture<?>[]::new);
+                    futures.put(addon, CompletableFuture.allOf(depends)
+                            .thenRunAsync(() -> task.accept(addon), executor));
+                }
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+            } finally {
+                executor.shutdown();
+            }
+            views.mergeBefore(addons.size());
+        }
+
+        Map<Addon, Throwable> ordered = Maps.newLinkedHashMap();
+        for (Addon addon : addons) {
+            Throwable e = failures.get(addon);
+            if (e != null) {
+                ordered.put(addon, e);
+            }
+        }
+        return ordered;
+    }
+
+    private static void run(Addon addon, Application application, BiConsumer<Addon, Application> action,
+                            Map<Addon, Throwable> failures) {
+        try {
+            action.accept(addon, application);
+        } catch (Throwable e) {
+            failures.put(addon, e);
+        }
+    }
+
+    /**
+     * the addons after their dependencies, otherwise in priority order
+     */
+    private static List<Addon> order(Map<Addon, List<Addon>> dependencies) {
+        List<Addon> ordered = Lists.newArrayListWithCapacity(dependencies.size());
+        Set<Addon> added = Collections.newSetFromMap(Maps.newIdentityHashMap());
+        for (Addon addon : dependencies.keySet()) {
+            add(addon, dependencies, added, ordered);
+        }
+        return ordered;
+    }
+
+    private static void add(Addon addon, Map<Addon, List<Addon>> dependencies, Set<Addon> added, List<Addon> ordered) {
+        if (added.add(addon)) {
+            for (Addon dependency : dependencies.get(addon)) {
+                add(dependency, dependencies, added, ordered);
+            }
+            ordered.add(addon);
+        }
+    }
+
+    /**
+     * The views of the addons with declared dependencies, merged in priority order.
+     */
+    private static final class Views {
+        private final Application application;
+        private final List<Addon> addons;
+        private final Map<Addon, AddonView> views = Maps.newIdentityHashMap();
+        private int merged;
+
+        private Views(Application application, List<Addon> addons) {
+            this.application = application;
+            this.addons = addons;
+            for (Addon addon : addons) {
+                if (addon.getDependencies() != null) {
+                    views.put(addon, new AddonView(application));
+                }
+            }
+        }
+
+        /**
+         * the view of the addon, an addon which declares none runs after all addons before it,
+         * so their views are merged and it gets the application
+         */
+        private Application of(Addon addon) {
+            AddonView view = views.get(addon);
+            if (view != null) {
+                return view;
+            }
+            for (int i = 0; i < addons.size(); i++) {
+                if (addons.get(i) == addon) {
+                    mergeBefore(i);
+                    break;
+                }
+            }
+            return application;
+        }
+
+        private synchronized void mergeBefore(int index) {
+            for (; merged < index; merged++) {
+                AddonView view = views.get(addons.get(merged));
+                if (view != null) {
+                    view.merge();
+                }
+            }
+        }
+    }
+}
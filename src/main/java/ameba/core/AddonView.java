@@ -0,0 +1,323 @@
+package ameba.core;
+
+import ameba.container.Container;
+import ameba.container.server.Connector;
+import com.google.common.collect.Lists;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ResourceFinder;
+import org.glassfish.jersey.server.ServerConfig;
+import org.glassfish.jersey.server.model.Resource;
+
+import javax.ws.rs.RuntimeType;
+import javax.ws.rs.core.Feature;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The application seen by an addon running concurrently with other addons.
+ * <p>
+ * The reads go to the application, the source properties are read only. The changes are recorded
+ * and applied by {@link #merge()} once the addons before it in priority order are merged, so the
+ * application is changed in the same order whatever the order the addons finished in. The reads
+ * do not see the changes of the view until it is merged.
+ *
+ * @author icode
+ * @see AddonRunner
+ */
+final class AddonView extends Application {
+    private final Application application;
+    private final List<Consumer<Application>> changes = Lists.newArrayList();
+
+    AddonView(Application application) {
+        this.application = application;
+    }
+
+    /**
+     * Apply the recorded changes to the application.
+     */
+    void merge() {
+        for (Consumer<Application> change : changes) {
+            change.accept(application);
+        }
+        changes.clear();
+    }
+
+    private Application record(Consumer<Application> change) {
+        changes.add(change);
+        return this;
+    }
+
+    @Override
+    public void reconfigure() {
+        record(Application::reconfigure);
+    }
+
+    @Override
+    public StartupProfiler getStartupProfiler() {
+        return application.getStartupProfiler();
+    }
+
+    @Override
+    public ConfigSnapshot getConfigSnapshot() {
+        return application.getConfigSnapshot();
+    }
+
+    @Override
+    public String getApplicationName() {
+        return application.getApplicationName();
+    }
+
+    @Override
+    public Application setApplicationName(String applicationName) {
+        return record(app -> app.setApplicationName(applicationName));
+    }
+
+    @Override
+    public ResourceConfig getConfig() {
+        return application.getConfig();
+    }
+
+    @Override
+    public long getTimestamp() {
+        return application.getTimestamp();
+    }
+
+    @Override
+    public Application register(Class<?> componentClass) {
+        return record(app -> app.register(componentClass));
+    }
+
+    @Override
+    public Application register(Object component) {
+        return record(app -> app.register(component));
+    }
+
+    @Override
+    public Application registerClasses(Class<?>... classes) {
+        return record(app -> app.registerClasses(classes));
+    }
+
+    @Override
+    public Application register(Object component, int bindingPriority) {
+        return record(app -> app.register(component, bindingPriority));
+    }
+
+    @Override
+    public ServerConfig getConfiguration() {
+        return application.getConfiguration();
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return application.getClassLoader();
+    }
+
+    @Override
+    public Application setClassLoader(ClassLoader classLoader) {
+        return record(app -> app.setClassLoader(classLoader));
+    }
+
+    @Override
+    public Application registerInstances(Object... instances) {
+        return record(app -> app.registerInstances(instances));
+    }
+
+    @Override
+    public Application packages(String... packages) {
+        return record(app -> app.packages(packages));
+    }
+
+    @Override
+    public Set<String> getPackages() {
+        return application.getPackages();
+    }
+
+    @Override
+    public Application register(Object component, Map<Class<?>, Integer> contracts) {
+        return record(app -> app.register(component, contracts));
+    }
+
+    @Override
+    public Set<Resource> getResources() {
+        return application.getResources();
+    }
+
+    @Override
+    public Set<Object> getSingletons() {
+        return application.getSingletons();
+    }
+
+    @Override
+    public Collection<String> getPropertyNames() {
+        return application.getPropertyNames();
+    }
+
+    @Override
+    public Application register(Class<?> componentClass, Class<?>... contracts) {
+        return record(app -> app.register(componentClass, contracts));
+    }
+
+    @Override
+    public Set<Class<?>> getClasses() {
+        return application.getClasses();
+    }
+
+    @Override
+    public Application register(Object component, Class<?>... contracts) {
+        return record(app -> app.register(component, contracts));
+    }
+
+    @Override
+    public boolean isRegistered(Class<?> componentClass) {
+        return application.isRegistered(componentClass);
+    }
+
+    @Override
+    public Application registerResources(Set<Resource> resources) {
+        return record(app -> app.registerResources(resources));
+    }
+
+    @Override
+    public boolean isEnabled(Feature feature) {
+        return application.isEnabled(feature);
+    }
+
+    @Override
+    public Map<Class<?>, Integer> getContracts(Class<?> componentClass) {
+        return application.getContracts(componentClass);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return application.getProperty(name);
+    }
+
+    @Override
+    public Application addProperties(Map<String, Object> properties) {
+        return record(app -> app.addProperties(properties));
+    }
+
+    @Override
+    public Application registerFinder(ResourceFinder resourceFinder) {
+        return record(app -> app.registerFinder(resourceFinder));
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return application.isInitialized();
+    }
+
+    @Override
+    public Application register(Class<?> componentClass, int bindingPriority) {
+        return record(app -> app.register(componentClass, bindingPriority));
+    }
+
+    @Override
+    public Application registerResources(Resource... resources) {
+        return record(app -> app.registerResources(resources));
+    }
+
+    @Override
+    public RuntimeType getRuntimeType() {
+        return application.getRuntimeType();
+    }
+
+    @Override
+    public boolean isRegistered(Object component) {
+        return application.isRegistered(component);
+    }
+
+    @Override
+    public Map<String, Object> getProperties() {
+        return application.getProperties();
+    }
+
+    @Override
+    public Application setProperties(Map<String, ?> properties) {
+        return record(app -> app.setProperties(properties));
+    }
+
+    @Override
+    public Application property(String name, Object value) {
+        return record(app -> app.property(name, value));
+    }
+
+    @Override
+    public Application registerInstances(Set<Object> instances) {
+        return record(app -> app.registerInstances(instances));
+    }
+
+    @Override
+    public Set<Object> getInstances() {
+        return application.getInstances();
+    }
+
+    @Override
+    public Application register(Class<?> componentClass, Map<Class<?>, Integer> contracts) {
+        return record(app -> app.register(componentClass, contracts));
+    }
+
+    @Override
+    public Application registerClasses(Set<Class<?>> classes) {
+        return record(app -> app.registerClasses(classes));
+    }
+
+    @Override
+    public boolean isEnabled(Class<? extends Feature> featureClass) {
+        return application.isEnabled(featureClass);
+    }
+
+    @Override
+    public boolean isProperty(String name) {
+        return application.isProperty(name);
+    }
+
+    @Override
+    public String[] getConfigFiles() {
+        return application.getConfigFiles();
+    }
+
+    @Override
+    public Mode getMode() {
+        return application.getMode();
+    }
+
+    @Override
+    public CharSequence getApplicationVersion() {
+        return application.getApplicationVersion();
+    }
+
+    @Override
+    public List<Connector> getConnectors() {
+        return application.getConnectors();
+    }
+
+    @Override
+    public Container getContainer() {
+        return application.getContainer();
+    }
+
+    @Override
+    public boolean isJmxEnabled() {
+        return application.isJmxEnabled();
+    }
+
+    @Override
+    public Map<String, Object> getSrcProperties() {
+        return Collections.unmodifiableMap(application.getSrcProperties());
+    }
+
+    @Override
+    public Set<String> getExcludes() {
+        return application.getExcludes();
+    }
+
+    @Override
+    public Set<Addon> getAddons() {
+        return application.getAddons();
+    }
+}
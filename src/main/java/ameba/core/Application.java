@@ -4,6 +4,7 @@ import ameba.Ameba;
 import ameba.container.Container;
 import ameba.container.event.StartupEvent;
 import ameba.container.server.Connector;
+import ameba.core.event.ConfigChangedEvent;
 import ameba.core.event.RequestEvent;
 import ameba.event.Listener;
 import ameba.event.SystemEventBus;
@@ -24,10 +25,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.Doubles;
-import com.google.common.primitives.Floats;
 import com.google.common.primitives.Ints;
-import com.google.common.primitives.Longs;
 import javassist.CtClass;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -90,6 +88,7 @@ public class Application {
     public static final String DEFAULT_APP_CONF = "conf/application.conf";
     private static final String REGISTER_CONF_PREFIX = "register.";
     private static final String ADDON_CONF_PREFIX = "addon.";
+    private static final String ADDON_PARALLELISM_KEY = "app.addon.parallelism";
     private static final String JERSEY_CONF_NAME_PREFIX = "sys.core.";
     private static final String DEFAULT_LOGBACK_CONF = "log.groovy";
     private static final String EXCLUDES_KEY = "exclude.classes";
@@ -99,6 +98,10 @@ public class Application {
     protected boolean jmxEnabled;
     private String[] configFiles;
     private long timestamp = System.currentTimeMillis();
+    private long startNanos = System.nanoTime();
+    private long configuredNanos;
+    private StartupProfiler profiler = StartupProfiler.DISABLED;
+    private volatile ConfigSnapshot configSnapshot;
     private boolean initialized = false;
     private Mode mode;
     private CharSequence applicationVersion;
@@ -356,6 +359,8 @@ public class Application {
     @SuppressWarnings("unchecked")
     protected void configure() {
 
+        long beginNanos = System.nanoTime();
+
         Properties properties = readDefaultConfig();
 
         Properties appProperties = new Props();
@@ -384,6 +389,10 @@ public class Application {
         //配置日志器
         configureLogger(appProperties);
 
+        profiler = StartupProfiler.isEnabled(appProperties.getProperty(StartupProfiler.ENABLED_KEY))
+                ? StartupProfiler.create(isInitialized() ? beginNanos : startNanos)
+                : StartupProfiler.DISABLED;
+
         if (!isInitialized())
             Ameba.printInfo();
 
@@ -402,42 +411,75 @@ public class Application {
 
         setEnvironmentConfig(srcProperties);
 
-        addOnSetup(srcProperties);
+        profiler.record("config", null, beginNanos);
 
-        //转换jersey配置项
-        convertJerseyConfig(srcProperties);
+        profiler.run("addon.setup", null, () -> addOnSetup(srcProperties));
 
-        //将临时配置对象放入应用程序配置
-        addProperties(srcProperties);
+        profiler.run("jersey.config", null, () -> {
+            //转换jersey配置项
+            convertJerseyConfig(srcProperties);
+
+            //将临时配置对象放入应用程序配置
+            addProperties(srcProperties);
+
+            ConfigSnapshot previous = configSnapshot;
+            configSnapshot = ConfigSnapshot.of(getProperties());
+            if (previous != null) {
+                SystemEventBus.publish(new ConfigChangedEvent(previous, configSnapshot));
+            }
+        });
 
         srcProperties = Collections.unmodifiableMap(srcProperties);
 
-        registerBinder();
+        profiler.run("binder", null, () -> {
+            registerBinder();
 
-        configureExclude(srcProperties);
+            configureExclude(srcProperties);
+        });
 
         //配置资源
-        configureResource();
+        profiler.run("resource", null, this::configureResource);
 
         //配置特性
-        configureFeature(srcProperties);
+        profiler.run("feature", null, () -> configureFeature(srcProperties));
 
         //配置服务器相关
-        configureServer();
+        profiler.run("server", null, this::configureServer);
 
         //清空临时读取的配置
         properties.clear();
 
-        scanClasses();
+        profiler.run("scan", null, this::scanClasses);
 
-        addOnDone();
+        profiler.run("addon.done", null, this::addOnDone);
 
         addons = Collections.unmodifiableSet(addons);
         excludes = Collections.unmodifiableSet(excludes);
 
+        configuredNanos = System.nanoTime();
+
         logger.info(Messages.get("info.feature.load"));
     }
 
+    /**
+     * The startup timeline, {@link StartupProfiler#DISABLED} unless {@code app.startup.profile} is true.
+     *
+     * @return a {@link ameba.core.StartupProfiler} object.
+     */
+    public StartupProfiler getStartupProfiler() {
+        return profiler;
+    }
+
+    /**
+     * The typed properties built by {@link #configure()}, the properties added later are not included.
+     *
+     * @return a {@link ameba.core.ConfigSnapshot} object, {@link ConfigSnapshot#EMPTY} before configured
+     */
+    public ConfigSnapshot getConfigSnapshot() {
+        ConfigSnapshot snapshot = configSnapshot;
+        return snapshot == null ? ConfigSnapshot.EMPTY : snapshot;
+    }
+
     private void configureExclude(Map<String, Object> configMap) {
 
         String ex = (String) configMap.get(EXCLUDES_KEY);
@@ -614,6 +656,7 @@ public class Application {
             }
         }
 
+        Map<Addon, SortEntry> enabled = Maps.newLinkedHashMap();
         for (SortEntry entry : addOnSorts) {
             logger.debug(Messages.get("info.addon.register.item", entry.key, entry.className));
             try {
@@ -621,7 +664,7 @@ public class Application {
                 if (Addon.class.isAssignableFrom(addOnClass)) {
                     Addon addon = (Addon) addOnClass.newInstance();
                     if (addon.isEnabled(this) && addons.add(addon)) {
-                        addon.setup(this);
+                        enabled.put(addon, entry);
                     }
                 } else {
                     throw new ConfigErrorException(Messages.get("info.addon.register.error.interface", entry.name, entry.key));
@@ -634,19 +677,40 @@ public class Application {
                 logger.error(Messages.get("info.addon.register.error", entry.name, entry.key), e);
             }
         }
+
+        Map<Addon, Throwable> failures = AddonRunner.run(
+                this, Lists.newArrayList(enabled.keySet()), getAddonParallelism(configMap),
+                (addon, app) -> profiler.run("addon.setup", enabled.get(addon).key, () -> addon.setup(app)));
+        failures.forEach((addon, e) -> {
+            SortEntry entry = enabled.get(addon);
+            logger.error(Messages.get("info.addon.register.error", entry.name, entry.key), e);
+        });
+        rethrowError(failures);
+    }
+
+    private int getAddonParallelism(Map<String, Object> configMap) {
+        Integer parallelism = Ints.tryParse(StringUtils.trimToEmpty((String) configMap.get(ADDON_PARALLELISM_KEY)));
+        return parallelism == null ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    private static void rethrowError(Map<Addon, Throwable> failures) {
+        for (Throwable e : failures.values()) {
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
     }
 
     /**
      * <p>addOnDone.</p>
      */
     protected void addOnDone() {
-        for (Addon addon : addons) {
-            try {
-                addon.done(this);
-            } catch (Exception e) {
-                logger.error(Messages.get("info.addon.error", addon.getClass().getName()), e);
-            }
-        }
+        Map<Addon, Throwable> failures = AddonRunner.run(
+                this, Lists.newArrayList(addons), getAddonParallelism(srcProperties),
+                (addon, app) -> profiler.run("addon.done", addon.getClass().getName(), () -> addon.done(app)));
+        failures.forEach((addon, e) ->
+                logger.error(Messages.get("info.addon.error", addon.getClass().getName()), e));
+        rethrowError(failures);
     }
 
     /**
@@ -725,6 +789,7 @@ public class Application {
         }
 
         for (FeatureEntry entry : featureEntries) {
+            StartupProfiler.Phase phase = profiler.begin("feature", entry.name);
             try {
                 logger.debug(Messages.get("info.feature.register.item", entry.name, entry.className));
                 Class clazz = ClassUtils.getClass(entry.className);
@@ -742,6 +807,8 @@ public class Application {
                     logger.error(Messages.get("info.feature.sys.get.error"), e);
                 else
                     logger.warn(Messages.get("info.feature.sys.not.found", entry.className), e);
+            } finally {
+                phase.close();
             }
         }
 
@@ -975,10 +1042,13 @@ public class Application {
                 Application.this.container = event.getContainer();
 
                 if (!isInitialized()) {
+                    // the time is taken before collecting the garbage for the memory usage
+                    final String startUsedTime = Times.toDuration(System.currentTimeMillis() - timestamp);
+                    profiler.record("container", container.getType(), configuredNanos);
+
                     Runtime r = Runtime.getRuntime();
                     r.gc();
 
-                    final String startUsedTime = Times.toDuration(System.currentTimeMillis() - timestamp);
                     builder.append(LINE_SEPARATOR)
                             .append(INFO_SEPARATOR)
                             .append(LINE_SEPARATOR);
@@ -993,6 +1063,7 @@ public class Application {
                             FileUtils.byteCountToDisplaySize(r.maxMemory())
                     );
                     appendInfo("info.jmx.enabled", Messages.get("info.enabled." + isJmxEnabled()));
+                    appendInfo("info.cds", ClassDataSharing.getStatus());
                     appendInfo("info.app.mode", Messages.get("info.app.mode." + getMode().name().toLowerCase()));
                     builder.append(lineStart)
                             .append(Messages.get("info.locations"));
@@ -1011,6 +1082,9 @@ public class Application {
                             .append(INFO_SEPARATOR);
                     logger.info(Messages.get("info.started"));
                     logger.info(builder.toString());
+                    if (profiler.isEnabled()) {
+                        logger.info(Messages.get("info.startup.profile") + profiler.report());
+                    }
                 }
 
                 initialized = true;
@@ -1600,6 +1674,10 @@ public class Application {
     }
 
     protected static abstract class BaseConfigurationInjectionResolver<T extends Annotation> implements InjectionResolver<T> {
+        /**
+         * converted values by injectee, recomputed when the property or the snapshot changed
+         */
+        private final Map<List<Object>, Resolved> resolvedMap = Maps.newConcurrentMap();
         @Context
         Application application;
         Class<T> aType;
@@ -1613,6 +1691,27 @@ public class Application {
         @Override
         public Object resolve(Injectee injectee, ServiceHandle<?> root) {
             Map<String, Object> props = application.getProperties();
+            ConfigSnapshot snapshot = application.getConfigSnapshot();
+            Type type = injectee.getRequiredType();
+            List<Object> key = Arrays.asList(injectee.getParent(), injectee.getPosition(), type);
+            Resolved resolved = resolvedMap.get(key);
+            String name;
+            if (resolved != null && resolved.snapshot == snapshot) {
+                Object current = props.get(resolved.name);
+                if (current == resolved.raw) {
+                    return resolved.value;
+                }
+                name = resolved.name;
+            } else {
+                name = getName(injectee);
+            }
+            Object value = props.get(name);
+            Object converted = convert(snapshot, name, value, type);
+            resolvedMap.put(key, new Resolved(snapshot, name, value, converted));
+            return converted;
+        }
+
+        private String getName(Injectee injectee) {
             AnnotatedElement element = injectee.getParent();
             Annotation annotation;
             if (injectee.getPosition() == -1) {
@@ -1620,33 +1719,39 @@ public class Application {
             } else {
                 annotation = ((Executable) element).getParameters()[injectee.getPosition()].getAnnotation(aType);
             }
-            String name = getName(annotation);
-            Object value = props.get(name);
-            Type type = injectee.getRequiredType();
+            return getName(annotation);
+        }
+
+        private Object convert(ConfigSnapshot snapshot, String name, Object value, Type type) {
             if (value instanceof String) {
+                ConfigSnapshot.Value v = snapshot.getValue(name);
+                // changed after the snapshot
+                if (v == null || v.getRaw() != value) {
+                    v = ConfigSnapshot.Value.of(value);
+                }
                 if (ReflectionHelper.isSubClassOf(type, Integer.class)) {
-                    return Ints.tryParse((String) value);
+                    return v.getInteger();
                 } else if (ReflectionHelper.isSubClassOf(type, int.class)) {
-                    Integer v = Ints.tryParse((String) value);
-                    return v == null ? -1 : v;
+                    Integer i = v.getInteger();
+                    return i == null ? -1 : i;
                 } else if (ReflectionHelper.isSubClassOf(type, Long.class)) {
-                    return Longs.tryParse((String) value);
+                    return v.getLong();
                 } else if (ReflectionHelper.isSubClassOf(type, long.class)) {
-                    Long v = Longs.tryParse((String) value);
-                    return v == null ? -1 : v;
+                    Long l = v.getLong();
+                    return l == null ? -1 : l;
                 } else if (ReflectionHelper.isSubClassOf(type, Double.class)) {
-                    return Doubles.tryParse((String) value);
+                    return v.getDouble();
                 } else if (ReflectionHelper.isSubClassOf(type, double.class)) {
-                    Double v = Doubles.tryParse((String) value);
-                    return v == null ? -1 : v;
+                    Double d = v.getDouble();
+                    return d == null ? -1 : d;
                 } else if (ReflectionHelper.isSubClassOf(type, Float.class)) {
-                    return Floats.tryParse((String) value);
+                    return v.getFloat();
                 } else if (ReflectionHelper.isSubClassOf(type, float.class)) {
-                    Float v = Floats.tryParse((String) value);
-                    return v == null ? -1 : v;
+                    Float f = v.getFloat();
+                    return f == null ? -1 : f;
                 } else if (ReflectionHelper.isSubClassOf(type, Boolean.class)
                         || ReflectionHelper.isSubClassOf(type, boolean.class)) {
-                    return Boolean.parseBoolean((String) value);
+                    return v.getBoolean();
                 }
             }
 
@@ -1664,6 +1769,20 @@ public class Application {
         }
     }
 
+    private static class Resolved {
+        private final ConfigSnapshot snapshot;
+        private final String name;
+        private final Object raw;
+        private final Object value;
+
+        Resolved(ConfigSnapshot snapshot, String name, Object raw, Object value) {
+            this.snapshot = snapshot;
+            this.name = name;
+            this.raw = raw;
+            this.value = value;
+        }
+    }
+
     protected static class ConfigurationInjectionResolver extends BaseConfigurationInjectionResolver<Named> {
         protected ConfigurationInjectionResolver() {
             super(Named.class);
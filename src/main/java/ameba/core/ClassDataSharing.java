@@ -0,0 +1,161 @@
+package ameba.core;
+
+import ameba.i18n.Messages;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.VMOption;
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * Class data sharing support, the archive of the classes loaded at startup shortens the cold start.
+ * <p>
+ * The training run is started with {@link #TRAIN_COMMAND} and one of the JVM options writing the loaded
+ * classes: {@code -XX:ArchiveClassesAtExit=app.jsa} (JDK 13+) writes the archive, and
+ * {@code -XX:DumpLoadedClassList=app.classlist} writes the class list for {@code -Xshare:dump}.
+ * The application starts, builds the model of each resource, then exits.
+ *
+ * @author icode
+ */
+public final class ClassDataSharing {
+    /**
+     * Constant <code>TRAIN_COMMAND="--cds-train"</code>
+     */
+    public static final String TRAIN_COMMAND = "--cds-train";
+    private static final Logger logger = LoggerFactory.getLogger(ClassDataSharing.class);
+
+    private ClassDataSharing() {
+    }
+
+    /**
+     * Get a JVM option.
+     *
+     * @param name the option name
+     * @return the value, null if the JVM has not the option
+     */
+    public static String getVMOption(String name) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            if (bean == null) {
+                return null;
+            }
+            VMOption option = bean.getVMOption(name);
+            return option == null ? null : option.getValue();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * <p>isSharing.</p>
+     *
+     * @return true if the JVM maps a shared archive
+     */
+    public static boolean isSharing() {
+        return StringUtils.contains(System.getProperty("java.vm.info"), "sharing")
+                || "true".equals(getVMOption("UseSharedSpaces"));
+    }
+
+    /**
+     * The application archive in use.
+     *
+     * @return the archive file, null if the JVM uses no archive or only the JDK archive
+     */
+    public static String getApplicationArchive() {
+        if (!isSharing()) {
+            return null;
+        }
+        return StringUtils.trimToNull(getVMOption("SharedArchiveFile"));
+    }
+
+    /**
+     * The sharing state reported at startup.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public static String getStatus() {
+        if (!isSharing()) {
+            return Messages.get("info.cds.off");
+        }
+        String archive = getApplicationArchive();
+        return archive == null ? Messages.get("info.cds.jdk") : Messages.get("info.cds.app", archive);
+    }
+
+    /**
+     * Build the model of each registered resource so their classes are loaded, then report where the
+     * JVM writes the classes.
+     *
+     * @param application a {@link ameba.core.Application} object.
+     * @return count of the resource methods built
+     */
+    public static int train(Application application) {
+        logger.info(Messages.get("info.cds.train.start"));
+        int methods = 0;
+        Set<Class<?>> classes = application.getClasses();
+        for (Class<?> clazz : classes) {
+            if (Resource.isAcceptable(clazz) && Resource.getPath(clazz) != null) {
+                methods += load(Resource.from(clazz));
+            }
+        }
+        for (Object instance : application.getInstances()) {
+            if (instance != null && !classes.contains(instance.getClass())
+                    && Resource.getPath(instance.getClass()) != null) {
+                methods += load(Resource.from(instance.getClass()));
+            }
+        }
+        for (Resource resource : application.getResources()) {
+            methods += load(resource);
+        }
+        logger.info(Messages.get("info.cds.train.done", methods));
+
+        String archive = StringUtils.trimToNull(getVMOption("ArchiveClassesAtExit"));
+        String classList = StringUtils.trimToNull(getVMOption("DumpLoadedClassList"));
+        if (archive != null) {
+            logger.info(Messages.get("info.cds.train.archive", archive, archive));
+        } else if (classList != null) {
+            String jsa = StringUtils.removeEnd(classList, ".classlist") + ".jsa";
+            logger.info(Messages.get("info.cds.train.list", classList,
+                    "java -Xshare:dump -XX:SharedClassListFile=" + classList
+                            + " -XX:SharedArchiveFile=" + jsa
+                            + " -cp " + System.getProperty("java.class.path"), jsa));
+        } else {
+            logger.warn(Messages.get("info.cds.train.none"));
+        }
+        return methods;
+    }
+
+    private static int load(Resource resource) {
+        if (resource == null) {
+            return 0;
+        }
+        int count = 0;
+        for (ResourceMethod method : resource.getAllMethods()) {
+            Method handling = method.getInvocable().getHandlingMethod();
+            if (handling != null) {
+                handling.getGenericParameterTypes();
+                handling.getGenericReturnType();
+            }
+            count++;
+        }
+        for (Resource child : resource.getChildResources()) {
+            count += load(child);
+        }
+        return count;
+    }
+
+    /**
+     * <p>isTrainCommand.</p>
+     *
+     * @param arg a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public static boolean isTrainCommand(String arg) {
+        return TRAIN_COMMAND.equals(arg);
+    }
+}
@@ -0,0 +1,426 @@
+package ameba.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable snapshot of the application properties with typed values.
+ * <p>
+ * The snapshot is built once by {@link Application#configure()}, the typed value of a property is parsed
+ * on the first access and kept. The properties under {@link #COMPILED_PREFIXES} are split into prefix trees
+ * when the snapshot is built, the other prefixes on the first access.
+ * A {@link ameba.core.event.ConfigChangedEvent} is published when the application is configured again.
+ *
+ * @author icode
+ */
+public final class ConfigSnapshot {
+    /**
+     * Constant <code>COMPILED_PREFIXES</code>
+     */
+    public static final List<String> COMPILED_PREFIXES = ImmutableList.of("db.", "connector.", "template.");
+    /**
+     * Constant <code>EMPTY</code>
+     */
+    public static final ConfigSnapshot EMPTY = new ConfigSnapshot(ImmutableMap.of(), false);
+
+    private final Map<String, Value> values;
+    private final ConcurrentMap<String, ConfigSnapshot> prefixes = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Map<String, ConfigSnapshot>> groups = Maps.newConcurrentMap();
+    private volatile Map<String, String> strings;
+
+    private ConfigSnapshot(Map<String, Value> values, boolean compile) {
+        this.values = values;
+        if (compile) {
+            for (String prefix : COMPILED_PREFIXES) {
+                getGroups(prefix);
+            }
+        }
+    }
+
+    /**
+     * Build the snapshot of the properties.
+     *
+     * @param properties a {@link java.util.Map} object.
+     * @return a {@link ameba.core.ConfigSnapshot} object.
+     */
+    public static ConfigSnapshot of(Map<String, ?> properties) {
+        ImmutableMap.Builder<String, Value> builder = ImmutableMap.builder();
+        for (Map.Entry<String, ?> entry : properties.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                builder.put(entry.getKey(), new Value(entry.getValue()));
+            }
+        }
+        return new ConfigSnapshot(builder.build(), true);
+    }
+
+    /**
+     * <p>contains.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * <p>keySet.</p>
+     *
+     * @return a {@link java.util.Set} object.
+     */
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return a int.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * <p>getValue.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the value or null
+     */
+    public Value getValue(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * <p>get.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the raw value or null
+     */
+    public Object get(String key) {
+        Value value = values.get(key);
+        return value == null ? null : value.getRaw();
+    }
+
+    /**
+     * <p>getString.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the value as string or null
+     */
+    public String getString(String key) {
+        Value value = values.get(key);
+        return value == null ? null : value.getString();
+    }
+
+    /**
+     * <p>getString.</p>
+     *
+     * @param key          a {@link java.lang.String} object.
+     * @param defaultValue returned if the value is missing or blank
+     * @return a {@link java.lang.String} object.
+     */
+    public String getString(String key, String defaultValue) {
+        return StringUtils.defaultIfBlank(getString(key), defaultValue);
+    }
+
+    /**
+     * <p>isNotBlank.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean isNotBlank(String key) {
+        return StringUtils.isNotBlank(getString(key));
+    }
+
+    /**
+     * <p>getInteger.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the value or null if missing or not a number
+     */
+    public Integer getInteger(String key) {
+        Value value = values.get(key);
+        return value == null ? null : value.getInteger();
+    }
+
+    /**
+     * <p>getInt.</p>
+     *
+     * @param key          a {@link java.lang.String} object.
+     * @param defaultValue returned if the value is missing or not a number
+     * @return a int.
+     */
+    public int getInt(String key, int defaultValue) {
+        Integer value = getInteger(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * <p>getLong.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the value or null if missing or not a number
+     */
+    public Long getLong(String key) {
+        Value value = values.get(key);
+        return value == null ? null : value.getLong();
+    }
+
+    /**
+     * <p>getLong.</p>
+     *
+     * @param key          a {@link java.lang.String} object.
+     * @param defaultValue returned if the value is missing or not a number
+     * @return a long.
+     */
+    public long getLong(String key, long defaultValue) {
+        Long value = getLong(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * <p>getDouble.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the value or null if missing or not a number
+     */
+    public Double getDouble(String key) {
+        Value value = values.get(key);
+        return value == null ? null : value.getDouble();
+    }
+
+    /**
+     * <p>getBoolean.</p>
+     *
+     * @param key          a {@link java.lang.String} object.
+     * @param defaultValue returned if the value is missing
+     * @return a boolean.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Value value = values.get(key);
+        return value == null ? defaultValue : value.getBoolean();
+    }
+
+    /**
+     * The properties under the prefix, the keys without the prefix.
+     *
+     * @param prefix the prefix ending with a dot, such as {@code db.}
+     * @return a {@link ameba.core.ConfigSnapshot} object.
+     */
+    public ConfigSnapshot getPrefix(String prefix) {
+        return prefixes.computeIfAbsent(prefix, k -> {
+            ImmutableMap.Builder<String, Value> builder = ImmutableMap.builder();
+            for (Map.Entry<String, Value> entry : values.entrySet()) {
+                if (entry.getKey().startsWith(prefix) && entry.getKey().length() > prefix.length()) {
+                    builder.put(entry.getKey().substring(prefix.length()), entry.getValue());
+                }
+            }
+            return new ConfigSnapshot(builder.build(), false);
+        });
+    }
+
+    /**
+     * The properties under the prefix grouped by the next segment of the key,
+     * such as {@code connector.{name}.{property}}.
+     * <p>
+     * The keys without a segment after the prefix are only in {@link #getPrefix(String)}.
+     *
+     * @param prefix the prefix ending with a dot, such as {@code connector.}
+     * @return the properties of each group without the prefix and the group name, in the order of the keys
+     */
+    public Map<String, ConfigSnapshot> getGroups(String prefix) {
+        return groups.computeIfAbsent(prefix, k -> {
+            Map<String, ImmutableMap.Builder<String, Value>> builders = Maps.newLinkedHashMap();
+            for (Map.Entry<String, Value> entry : getPrefix(prefix).values.entrySet()) {
+                String key = entry.getKey();
+                int index = key.indexOf('.');
+                if (index > 0 && index < key.length() - 1) {
+                    builders.computeIfAbsent(key.substring(0, index), name -> ImmutableMap.builder())
+                            .put(key.substring(index + 1), entry.getValue());
+                }
+            }
+            ImmutableMap.Builder<String, ConfigSnapshot> builder = ImmutableMap.builder();
+            builders.forEach((name, group) -> builder.put(name, new ConfigSnapshot(group.build(), false)));
+            return builder.build();
+        });
+    }
+
+    /**
+     * <p>getGroup.</p>
+     *
+     * @param prefix the prefix ending with a dot, such as {@code db.}
+     * @param name   the group name
+     * @return the properties of the group, {@link #EMPTY} if missing
+     */
+    public ConfigSnapshot getGroup(String prefix, String name) {
+        ConfigSnapshot group = getGroups(prefix).get(name);
+        return group == null ? EMPTY : group;
+    }
+
+    /**
+     * <p>asStringMap.</p>
+     *
+     * @return the values as strings
+     */
+    public Map<String, String> asStringMap() {
+        Map<String, String> map = strings;
+        if (map == null) {
+            map = ImmutableMap.copyOf(Maps.transformValues(values, Value::getString));
+            strings = map;
+        }
+        return map;
+    }
+
+    /**
+     * The keys added, removed or changed from the previous snapshot.
+     *
+     * @param previous a {@link ameba.core.ConfigSnapshot} object.
+     * @return a {@link java.util.Set} object.
+     */
+    public Set<String> diff(ConfigSnapshot previous) {
+        ImmutableSet.Builder<String> changed = ImmutableSet.builder();
+        for (String key : Sets.union(values.keySet(), previous.values.keySet())) {
+            if (!Objects.equals(get(key), previous.get(key))) {
+                changed.add(key);
+            }
+        }
+        return changed.build();
+    }
+
+    /**
+     * A property value, the typed forms are parsed on the first access.
+     */
+    public static final class Value {
+        private static final Object UNPARSED = new Object();
+
+        private final Object raw;
+        private final String string;
+        private Object integer = UNPARSED;
+        private Object longValue = UNPARSED;
+        private Object doubleValue = UNPARSED;
+        private Object floatValue = UNPARSED;
+
+        private Value(Object raw) {
+            this.raw = raw;
+            this.string = String.valueOf(raw);
+        }
+
+        /**
+         * <p>of.</p>
+         *
+         * @param raw the raw value, not null
+         * @return a {@link ameba.core.ConfigSnapshot.Value} object.
+         */
+        public static Value of(Object raw) {
+            return new Value(raw);
+        }
+
+        /**
+         * <p>getRaw.</p>
+         *
+         * @return the raw value
+         */
+        public Object getRaw() {
+            return raw;
+        }
+
+        /**
+         * <p>isString.</p>
+         *
+         * @return true if the raw value is a string
+         */
+        public boolean isString() {
+            return raw instanceof String;
+        }
+
+        /**
+         * <p>getString.</p>
+         *
+         * @return a {@link java.lang.String} object.
+         */
+        public String getString() {
+            return string;
+        }
+
+        /**
+         * <p>getInteger.</p>
+         *
+         * @return the value or null if not a number
+         */
+        public Integer getInteger() {
+            Object value = integer;
+            if (value == UNPARSED) {
+                value = raw instanceof Integer ? raw : Ints.tryParse(string);
+                integer = value;
+            }
+            return (Integer) value;
+        }
+
+        /**
+         * <p>getLong.</p>
+         *
+         * @return the value or null if not a number
+         */
+        public Long getLong() {
+            Object value = longValue;
+            if (value == UNPARSED) {
+                value = raw instanceof Long ? raw : Longs.tryParse(string);
+                longValue = value;
+            }
+            return (Long) value;
+        }
+
+        /**
+         * <p>getDouble.</p>
+         *
+         * @return the value or null if not a number
+         */
+        public Double getDouble() {
+            Object value = doubleValue;
+            if (value == UNPARSED) {
+                value = raw instanceof Double ? raw : Doubles.tryParse(string);
+                doubleValue = value;
+            }
+            return (Double) value;
+        }
+
+        /**
+         * <p>getFloat.</p>
+         *
+         * @return the value or null if not a number
+         */
+        public Float getFloat() {
+            Object value = floatValue;
+            if (value == UNPARSED) {
+                value = raw instanceof Float ? raw : Floats.tryParse(string);
+                floatValue = value;
+            }
+            return (Float) value;
+        }
+
+        /**
+         * <p>getBoolean.</p>
+         *
+         * @return true if the value is {@code true} ignoring case
+         */
+        public boolean getBoolean() {
+            return raw instanceof Boolean ? (Boolean) raw : Boolean.parseBoolean(string);
+        }
+    }
+}
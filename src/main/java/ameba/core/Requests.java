@@ -4,6 +4,8 @@ import ameba.container.server.Request;
 import org.glassfish.jersey.internal.PropertiesDelegate;
 import org.glassfish.jersey.message.MessageBodyWorkers;
 import org.glassfish.jersey.message.internal.*;
+import org.glassfish.jersey.process.internal.RequestContext;
+import org.glassfish.jersey.process.internal.RequestScope;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ExtendedUriInfo;
 import org.glassfish.jersey.server.spi.ContainerResponseWriter;
@@ -29,6 +31,7 @@ import java.util.*;
 public class Requests {
 
     private static Provider<ContainerRequest> requestProvider;
+    private static RequestScope requestScope;
 
     private Requests() {
     }
@@ -42,6 +45,25 @@ public class Requests {
         return (Request) requestProvider.get();
     }
 
+    /**
+     * Whether the current thread is in the scope of a request.
+     *
+     * @return a boolean.
+     */
+    public static boolean isInScope() {
+        RequestScope scope = requestScope;
+        if (scope == null || !scope.isActive()) {
+            return false;
+        }
+        RequestContext context = scope.suspendCurrent();
+        if (context == null) {
+            return false;
+        }
+        // suspendCurrent took a reference
+        context.release();
+        return true;
+    }
+
     /**
      * <p>getRemoteAddr.</p>
      *
@@ -902,8 +924,9 @@ public class Requests {
     static class BindRequest implements Feature {
 
         @Inject
-        public BindRequest(Provider<ContainerRequest> reqProvider) {
+        public BindRequest(Provider<ContainerRequest> reqProvider, RequestScope scope) {
             requestProvider = reqProvider;
+            requestScope = scope;
         }
 
         @Override
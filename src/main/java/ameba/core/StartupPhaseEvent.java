@@ -0,0 +1,112 @@
+package ameba.core;
+
+import com.google.common.collect.Lists;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JFR event {@code ameba.StartupPhase} of a startup phase.
+ * <p>
+ * The event type is created with {@code jdk.jfr.EventFactory} through reflection, so the
+ * class compiles and loads on the JVMs without {@code jdk.jfr}, where no event is recorded.
+ *
+ * @author icode
+ * @see StartupProfiler
+ */
+final class StartupPhaseEvent {
+    private static final int CATEGORY = 0;
+    private static final int PHASE = 1;
+    private static final int ALLOCATED = 2;
+    private static final Type TYPE = Type.create();
+
+    private StartupPhaseEvent() {
+    }
+
+    static boolean isAvailable() {
+        return TYPE != null;
+    }
+
+    static Object start() {
+        try {
+            Object event = TYPE.newEvent.invoke(TYPE.factory);
+            TYPE.begin.invoke(event);
+            return event;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static void commit(Object event, String category, String phase, long allocated) {
+        try {
+            TYPE.end.invoke(event);
+            if ((Boolean) TYPE.shouldCommit.invoke(event)) {
+                TYPE.set.invoke(event, CATEGORY, category);
+                TYPE.set.invoke(event, PHASE, phase);
+                TYPE.set.invoke(event, ALLOCATED, allocated);
+                TYPE.commit.invoke(event);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // noop
+        }
+    }
+
+    private static final class Type {
+        private final Object factory;
+        private final Method newEvent;
+        private final Method begin;
+        private final Method end;
+        private final Method shouldCommit;
+        private final Method set;
+        private final Method commit;
+
+        private Type(Object factory) throws ReflectiveOperationException {
+            this.factory = factory;
+            this.newEvent = factory.getClass().getMethod("newEvent");
+            Class<?> event = load("jdk.jfr.Event");
+            this.begin = event.getMethod("begin");
+            this.end = event.getMethod("end");
+            this.shouldCommit = event.getMethod("shouldCommit");
+            this.set = event.getMethod("set", int.class, Object.class);
+            this.commit = event.getMethod("commit");
+        }
+
+        private static Type create() {
+            try {
+                Class<?> element = load("jdk.jfr.AnnotationElement");
+                Constructor<?> withValue = element.getConstructor(Class.class, Object.class);
+                Constructor<?> descriptor = load("jdk.jfr.ValueDescriptor")
+                        .getConstructor(Class.class, String.class, List.class);
+
+                List<Object> annotations = Lists.newArrayList(
+                        withValue.newInstance(load("jdk.jfr.Name"), "ameba.StartupPhase"),
+                        withValue.newInstance(load("jdk.jfr.Label"), "Startup Phase"),
+                        withValue.newInstance(load("jdk.jfr.Category"), new String[]{"Ameba", "Startup"}),
+                        withValue.newInstance(load("jdk.jfr.StackTrace"), false)
+                );
+                // in the order of CATEGORY, PHASE and ALLOCATED
+                List<Object> fields = Lists.newArrayList(
+                        descriptor.newInstance(String.class, "category", Collections.singletonList(
+                                withValue.newInstance(load("jdk.jfr.Label"), "Category"))),
+                        descriptor.newInstance(String.class, "phase", Collections.singletonList(
+                                withValue.newInstance(load("jdk.jfr.Label"), "Phase"))),
+                        descriptor.newInstance(long.class, "allocated", Lists.newArrayList(
+                                withValue.newInstance(load("jdk.jfr.Label"), "Allocated"),
+                                withValue.newInstance(load("jdk.jfr.DataAmount"), "BYTES")))
+                );
+                Object factory = load("jdk.jfr.EventFactory")
+                        .getMethod("create", List.class, List.class)
+                        .invoke(null, annotations, fields);
+                return new Type(factory);
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        private static Class<?> load(String name) throws ClassNotFoundException {
+            return Class.forName(name, true, StartupPhaseEvent.class.getClassLoader());
+        }
+    }
+}
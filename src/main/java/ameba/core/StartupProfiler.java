@@ -0,0 +1,311 @@
+package ameba.core;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record the timeline of the application startup phases.
+ * <p>
+ * A phase is opened with {@link #begin(String, String)} and closed with {@link Phase#close()},
+ * the phases opened inside an other phase on the same thread are its children. Each phase
+ * records the duration and the bytes allocated by the thread, and is committed as a JFR event
+ * {@code ameba.StartupPhase} when the JVM supports JFR.
+ * <p>
+ * The {@link #DISABLED} profiler records nothing and returns a shared phase.
+ *
+ * @author icode
+ */
+public class StartupProfiler {
+    /**
+     * Constant <code>ENABLED_KEY="app.startup.profile"</code>, also read from the system properties
+     */
+    public static final String ENABLED_KEY = "app.startup.profile";
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+    /**
+     * Constant <code>DISABLED</code>
+     */
+    public static final StartupProfiler DISABLED = new StartupProfiler(false, 0);
+    private static final Phase NOOP_PHASE = new Phase(DISABLED, null, null, null, 0) {
+        @Override
+        public void close() {
+        }
+    };
+
+    private final boolean enabled;
+    private final long startNanos;
+    private final List<Phase> phases = Collections.synchronizedList(Lists.newArrayList());
+    private final ThreadLocal<Deque<Phase>> opened = ThreadLocal.withInitial(Lists::newLinkedList);
+
+    private StartupProfiler(boolean enabled, long startNanos) {
+        this.enabled = enabled;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Create an enabled profiler.
+     *
+     * @param startNanos the {@link System#nanoTime()} when the startup began
+     * @return a {@link ameba.core.StartupProfiler} object.
+     */
+    public static StartupProfiler create(long startNanos) {
+        return new StartupProfiler(true, startNanos);
+    }
+
+    /**
+     * <p>isEnabled.</p>
+     *
+     * @param value the config value, the system property is used if it is blank
+     * @return a boolean.
+     */
+    public static boolean isEnabled(String value) {
+        if (StringUtils.isBlank(value)) {
+            value = System.getProperty(ENABLED_KEY);
+        }
+        return Boolean.parseBoolean(StringUtils.trim(value));
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+                    return threadBean;
+                }
+            }
+        } catch (Throwable e) {
+            // noop
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN == null ? -1 : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * <p>isEnabled.</p>
+     *
+     * @return a boolean.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Open a phase, must be closed on the same thread.
+     *
+     * @param category the kind of the phase, e.g. {@code addon.setup}
+     * @param name     the phase name
+     * @return a {@link ameba.core.StartupProfiler.Phase} object.
+     */
+    public Phase begin(String category, String name) {
+        if (!enabled) {
+            return NOOP_PHASE;
+        }
+        Deque<Phase> stack = opened.get();
+        Phase phase = new Phase(this, stack.peek(), category, name, stack.size());
+        stack.push(phase);
+        return phase;
+    }
+
+    /**
+     * Run the task in a phase.
+     *
+     * @param category the kind of the phase
+     * @param name     the phase name
+     * @param task     a {@link java.lang.Runnable} object.
+     */
+    public void run(String category, String name, Runnable task) {
+        Phase phase = begin(category, name);
+        try {
+            task.run();
+        } finally {
+            phase.close();
+        }
+    }
+
+    /**
+     * Record a phase which began before the profiler was created.
+     *
+     * @param category   the kind of the phase
+     * @param name       the phase name
+     * @param beginNanos the {@link System#nanoTime()} when the phase began
+     */
+    public void record(String category, String name, long beginNanos) {
+        if (!enabled) {
+            return;
+        }
+        Phase phase = new Phase(this, null, category, name, 0);
+        phase.beginNanos = beginNanos;
+        phase.beginAllocated = -1;
+        phase.close();
+    }
+
+    /**
+     * The closed phases, ordered by begin time.
+     *
+     * @return a {@link java.util.List} object.
+     */
+    public List<Phase> getTimeline() {
+        List<Phase> timeline;
+        synchronized (phases) {
+            timeline = Lists.newArrayList(phases);
+        }
+        timeline.sort((a, b) -> a.beginNanos == b.beginNanos
+                ? Integer.compare(a.depth, b.depth) : Long.compare(a.beginNanos, b.beginNanos));
+        return timeline;
+    }
+
+    /**
+     * Format the timeline, one phase per line indented by depth.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        for (Phase phase : getTimeline()) {
+            builder.append(String.format("%n%8.1f ms %8.1f ms %10s  ",
+                    phase.getOffsetMillis(), phase.getDurationMillis(), formatBytes(phase.allocated)))
+                    .append(StringUtils.repeat("  ", phase.depth))
+                    .append(phase.category);
+            if (phase.name != null) {
+                builder.append(" [").append(phase.name).append("]");
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 0) {
+            return "-";
+        }
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024d);
+        }
+        return String.format("%.1f MB", bytes / (1024d * 1024d));
+    }
+
+    /**
+     * A phase of the startup.
+     */
+    public static class Phase implements AutoCloseable {
+        private final StartupProfiler profiler;
+        private final Phase parent;
+        private final String category;
+        private final String name;
+        private final int depth;
+        private final Object event;
+        private long beginNanos;
+        private long beginAllocated;
+        private long durationNanos;
+        private long allocated = -1;
+
+        Phase(StartupProfiler profiler, Phase parent, String category, String name, int depth) {
+            this.profiler = profiler;
+            this.parent = parent;
+            this.category = category;
+            this.name = name;
+            this.depth = depth;
+            this.event = profiler != null && profiler.enabled && Jfr.AVAILABLE ? StartupPhaseEvent.start() : null;
+            this.beginAllocated = allocatedBytes();
+            this.beginNanos = System.nanoTime();
+        }
+
+        /**
+         * Close the phase.
+         */
+        @Override
+        public void close() {
+            durationNanos = System.nanoTime() - beginNanos;
+            if (beginAllocated >= 0) {
+                allocated = allocatedBytes() - beginAllocated;
+            }
+            profiler.opened.get().remove(this);
+            profiler.phases.add(this);
+            if (event != null) {
+                StartupPhaseEvent.commit(event, category, name, allocated);
+            }
+        }
+
+        /**
+         * <p>Getter for the field <code>parent</code>.</p>
+         *
+         * @return the phase this phase was opened in, or null
+         */
+        public Phase getParent() {
+            return parent;
+        }
+
+        /**
+         * <p>Getter for the field <code>category</code>.</p>
+         *
+         * @return a {@link java.lang.String} object.
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * <p>Getter for the field <code>name</code>.</p>
+         *
+         * @return a {@link java.lang.String} object.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * <p>Getter for the field <code>depth</code>.</p>
+         *
+         * @return a int.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * <p>getOffsetMillis.</p>
+         *
+         * @return milliseconds since the startup began
+         */
+        public double getOffsetMillis() {
+            return (beginNanos - profiler.startNanos) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * <p>getDurationMillis.</p>
+         *
+         * @return a double.
+         */
+        public double getDurationMillis() {
+            return durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * <p>Getter for the field <code>allocated</code>.</p>
+         *
+         * @return bytes allocated by the thread during the phase, -1 if unknown
+         */
+        public long getAllocated() {
+            return allocated;
+        }
+    }
+
+    /**
+     * Loaded by the first phase of an enabled profiler, so the JFR event type is not created
+     * when the profiler is disabled.
+     */
+    private static final class Jfr {
+        private static final boolean AVAILABLE = StartupPhaseEvent.isAvailable();
+    }
+}
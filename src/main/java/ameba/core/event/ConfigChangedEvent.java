@@ -0,0 +1,60 @@
+package ameba.core.event;
+
+import ameba.core.ConfigSnapshot;
+import ameba.event.Event;
+
+import java.util.Set;
+
+/**
+ * <p>ConfigChangedEvent class.</p>
+ * <p>
+ * Published when the application is configured again, such as on reload.
+ *
+ * @author icode
+ */
+public class ConfigChangedEvent implements Event {
+    private final ConfigSnapshot previous;
+    private final ConfigSnapshot current;
+    private Set<String> changedKeys;
+
+    /**
+     * <p>Constructor for ConfigChangedEvent.</p>
+     *
+     * @param previous a {@link ameba.core.ConfigSnapshot} object.
+     * @param current  a {@link ameba.core.ConfigSnapshot} object.
+     */
+    public ConfigChangedEvent(ConfigSnapshot previous, ConfigSnapshot current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * <p>Getter for the field <code>previous</code>.</p>
+     *
+     * @return a {@link ameba.core.ConfigSnapshot} object.
+     */
+    public ConfigSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * <p>Getter for the field <code>current</code>.</p>
+     *
+     * @return a {@link ameba.core.ConfigSnapshot} object.
+     */
+    public ConfigSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * <p>getChangedKeys.</p>
+     *
+     * @return the keys added, removed or changed
+     */
+    public Set<String> getChangedKeys() {
+        if (changedKeys == null) {
+            changedKeys = current.diff(previous);
+        }
+        return changedKeys;
+    }
+}
@@ -1,10 +1,9 @@
 package ameba.db;
 
-import ameba.container.event.ShutdownEvent;
+import ameba.container.ShutdownCoordinator;
 import ameba.core.Addon;
 import ameba.core.Application;
 import ameba.db.model.ModelManager;
-import ameba.event.SystemEventBus;
 import com.alibaba.druid.pool.DruidDataSource;
 import com.alibaba.druid.pool.DruidDataSourceFactory;
 import com.google.common.collect.Maps;
@@ -15,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,6 +27,8 @@ import java.util.Set;
 public class DataSourceManager extends Addon {
 
     private static final Map<String, DruidDataSource> dataSourceMap = Maps.newLinkedHashMap();
+    private static final Map<String, ReplicaDataSource> replicaDataSourceMap = Maps.newLinkedHashMap();
+    private static final String REPLICAS_KEY = "replicas";
     private static final Logger logger = LoggerFactory.getLogger(DataSourceManager.class);
     private static String DEFAULT_DS_NAME = "default";
 
@@ -49,6 +51,16 @@ public class DataSourceManager extends Addon {
         return dataSourceMap.get(name);
     }
 
+    /**
+     * 根据数据源名称获取只读副本数据源
+     *
+     * @param name data source name
+     * @return read only DataSource or null if the data source has no replicas
+     */
+    public static ReplicaDataSource getReadOnlyDataSource(String name) {
+        return replicaDataSourceMap.get(name);
+    }
+
     /**
      * 获取所有数据源名称
      *
@@ -58,6 +70,14 @@ public class DataSourceManager extends Addon {
         return dataSourceMap.keySet();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Class<? extends Addon>> getDependencies() {
+        return Collections.emptySet();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -72,6 +92,8 @@ public class DataSourceManager extends Addon {
         }
 
         Map<String, Map<String, String>> map = Maps.newHashMap();
+        Map<String, Map<String, String>> replicaOptions = Maps.newHashMap();
+        Map<String, Map<String, Map<String, String>>> replicaMap = Maps.newHashMap();
         Map<String, String> druidMap = Maps.newHashMap();
         for (String key : config.keySet()) {
             key = StringUtils.deleteWhitespace(key);
@@ -83,6 +105,19 @@ public class DataSourceManager extends Addon {
             }
             //db.[DataSourceName].[ConfigKey]
             String[] keys = key.split("\\.");
+            //db.[DataSourceName].replicas.[Option]
+            //db.[DataSourceName].replicas.[ReplicaName].[ConfigKey]
+            if (keys.length > 3 && "db".equals(keys[0]) && REPLICAS_KEY.equals(keys[2])) {
+                String value = String.valueOf(config.get(key));
+                if (keys.length == 4) {
+                    replicaOptions.computeIfAbsent(keys[1], k -> Maps.newHashMap()).put(keys[3], value);
+                } else {
+                    replicaMap.computeIfAbsent(keys[1], k -> Maps.newLinkedHashMap())
+                            .computeIfAbsent(keys[3], k -> Maps.newHashMap())
+                            .put(StringUtils.join(keys, '.', 4, keys.length), value);
+                }
+                continue;
+            }
             if (keys.length > 2 && "db".equals(keys[0])) {
                 Map<String, String> sourceConfig = map.computeIfAbsent(keys[1], k -> Maps.newHashMap());
                 if (StringUtils.isNotBlank(keys[2])) {
@@ -98,18 +133,27 @@ public class DataSourceManager extends Addon {
                 if (StringUtils.isBlank(value)) {
                     conf.put("init", "true");
                 }
-                config.putAll(druidMap);
+                // the global druid.* settings go to each pool, the source properties stay read only
+                druidMap.forEach(conf::putIfAbsent);
                 DruidDataSource ds = (DruidDataSource) DruidDataSourceFactory.createDataSource(conf);
                 ds.setName(name);
                 ds.setDefaultAutoCommit(false);
                 dataSourceMap.put(name, ds);
+                Map<String, Map<String, String>> replicas = replicaMap.get(name);
+                if (replicas != null && !replicas.isEmpty()) {
+                    replicaDataSourceMap.put(name, createReplicaDataSource(
+                            name, ds, conf, replicas, replicaOptions.get(name)
+                    ));
+                }
             } catch (Exception e) {
                 logger.error("配置数据源出错", e);
             }
         }
 
-        SystemEventBus.subscribe(ShutdownEvent.class,
-                (ShutdownEvent event) -> {
+        ShutdownCoordinator.register(ShutdownCoordinator.Phase.DATASOURCE, DataSourceManager.class.getName(),
+                () -> {
+                    replicaDataSourceMap.forEach((name, dataSource) -> dataSource.close());
+                    replicaDataSourceMap.clear();
                     dataSourceMap.forEach((name, dataSource) -> {
                         if (!dataSource.isClosed()) dataSource.close();
                     });
@@ -138,4 +182,37 @@ public class DataSourceManager extends Addon {
             }
         });
     }
+
+    private static ReplicaDataSource createReplicaDataSource(String name,
+                                                             DruidDataSource primary,
+                                                             Map<String, String> primaryConf,
+                                                             Map<String, Map<String, String>> replicas,
+                                                             Map<String, String> options) throws Exception {
+        Map<String, DataSource> replicaDataSources = Maps.newLinkedHashMap();
+        for (Map.Entry<String, Map<String, String>> entry : replicas.entrySet()) {
+            // replicas inherit the settings of the primary data source
+            Map<String, String> conf = Maps.newHashMap(primaryConf);
+            conf.putAll(entry.getValue());
+            DruidDataSource ds = (DruidDataSource) DruidDataSourceFactory.createDataSource(conf);
+            ds.setName(name + "." + REPLICAS_KEY + "." + entry.getKey());
+            ds.setDefaultAutoCommit(false);
+            replicaDataSources.put(entry.getKey(), ds);
+        }
+        if (options == null) {
+            options = Maps.newHashMap();
+        }
+        String balance = options.get("balance");
+        String lagQuery = options.get("lagQuery");
+        return new ReplicaDataSource(
+                name,
+                primary,
+                replicaDataSources,
+                StringUtils.isBlank(balance)
+                        ? ReplicaDataSource.Balance.ROUND_ROBIN
+                        : ReplicaDataSource.Balance.valueOf(balance.trim().toUpperCase()),
+                StringUtils.isBlank(lagQuery) ? null : lagQuery,
+                Long.parseLong(options.getOrDefault("maxLag", "30")),
+                Long.parseLong(options.getOrDefault("checkInterval", "5000"))
+        );
+    }
 }
@@ -0,0 +1,218 @@
+package ameba.db;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.google.common.collect.Maps;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded executor running the database work of asynchronous requests of a data source.
+ * <p>
+ * The threads are limited to the connections of the pool, so a task never waits for a
+ * connection while holding a thread, and the tasks exceeding the queue are rejected
+ * instead of piling up.
+ *
+ * @author icode
+ */
+public class DbExecutor implements Closeable {
+    /**
+     * Constant <code>DEFAULT_THREADS=8</code>, used when the pool size is unknown
+     */
+    public static final int DEFAULT_THREADS = 8;
+    private static final Map<String, DbExecutor> EXECUTORS = Maps.newConcurrentMap();
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long timeout;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * <p>Constructor for DbExecutor.</p>
+     *
+     * @param name          data source name
+     * @param threads       max threads
+     * @param queueCapacity max queued tasks
+     * @param timeout       default timeout of a request in milliseconds, not positive for no timeout
+     */
+    public DbExecutor(String name, int threads, int queueCapacity, long timeout) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "db-executor-" + name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Create the executor of the data source, sized to its connection pool.
+     *
+     * @param name          data source name
+     * @param queueCapacity max queued tasks
+     * @param timeout       default timeout of a request in milliseconds
+     * @return a {@link ameba.db.DbExecutor} object.
+     */
+    public static DbExecutor create(String name, int queueCapacity, long timeout) {
+        DataSource dataSource = DataSourceManager.getDataSource(name);
+        int threads = DEFAULT_THREADS;
+        if (dataSource instanceof DruidDataSource && ((DruidDataSource) dataSource).getMaxActive() > 0) {
+            threads = ((DruidDataSource) dataSource).getMaxActive();
+        }
+        return new DbExecutor(name, threads, queueCapacity, timeout);
+    }
+
+    /**
+     * <p>register.</p>
+     *
+     * @param executor a {@link ameba.db.DbExecutor} object.
+     */
+    public static void register(DbExecutor executor) {
+        DbExecutor old = EXECUTORS.put(executor.name, executor);
+        if (old != null && old != executor) {
+            old.close();
+        }
+    }
+
+    /**
+     * Get the executor of the data source.
+     *
+     * @param name data source name
+     * @return the executor or null
+     */
+    public static DbExecutor of(String name) {
+        return EXECUTORS.get(name);
+    }
+
+    /**
+     * Close all executors.
+     */
+    public static void closeAll() {
+        EXECUTORS.values().forEach(DbExecutor::close);
+        EXECUTORS.clear();
+    }
+
+    /**
+     * Submit a task.
+     *
+     * @param task a {@link java.lang.Runnable} object.
+     * @return a {@link java.util.concurrent.Future} object.
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full or the executor is closed
+     */
+    public Future<?> submit(Runnable task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Record a request which timed out.
+     */
+    public void timedOut() {
+        timedOut.increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * <p>Getter for the field <code>name</code>.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * <p>Getter for the field <code>timeout</code>.</p>
+     *
+     * @return default timeout of a request in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * <p>getThreads.</p>
+     *
+     * @return max threads
+     */
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * <p>getActiveCount.</p>
+     *
+     * @return threads running a task
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * <p>getQueueDepth.</p>
+     *
+     * @return tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * <p>Getter for the field <code>queueCapacity</code>.</p>
+     *
+     * @return max queued tasks
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * <p>getCompletedCount.</p>
+     *
+     * @return completed tasks
+     */
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * <p>getRejectedCount.</p>
+     *
+     * @return tasks rejected because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * <p>getTimeoutCount.</p>
+     *
+     * @return requests which timed out
+     */
+    public long getTimeoutCount() {
+        return timedOut.sum();
+    }
+}
@@ -0,0 +1,307 @@
+package ameba.db;
+
+import ameba.i18n.Messages;
+import com.alibaba.druid.pool.DruidDataSource;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read only data source balancing connections over the replicas of a data source.
+ * <p>
+ * Replicas are checked periodically, a replica that can not be reached or whose
+ * replication lag exceeds the limit is skipped until a later check succeeds. When
+ * no replica is available the connection is taken from the primary data source.
+ *
+ * @author icode
+ */
+public class ReplicaDataSource implements DataSource, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+    private static final int CHECK_TIMEOUT_SECONDS = 3;
+
+    private final String name;
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Balance balance;
+    private final String lagQuery;
+    private final long maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService checker;
+
+    /**
+     * <p>Constructor for ReplicaDataSource.</p>
+     *
+     * @param name          data source name
+     * @param primary       the primary data source, used when no replica is available
+     * @param replicas      replica data sources by name
+     * @param balance       a {@link ameba.db.ReplicaDataSource.Balance} object.
+     * @param lagQuery      query returning the replication lag in seconds, or null to only check the connection
+     * @param maxLag        max replication lag in seconds
+     * @param checkInterval check interval in milliseconds, not positive to disable the check
+     */
+    public ReplicaDataSource(String name, DataSource primary, Map<String, DataSource> replicas,
+                             Balance balance, String lagQuery, long maxLag, long checkInterval) {
+        this.name = name;
+        this.primary = primary;
+        List<Replica> list = Lists.newArrayListWithCapacity(replicas.size());
+        replicas.forEach((replicaName, ds) -> list.add(new Replica(replicaName, ds)));
+        this.replicas = ImmutableList.copyOf(list);
+        this.balance = balance == null ? Balance.ROUND_ROBIN : balance;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        if (checkInterval > 0 && !this.replicas.isEmpty()) {
+            checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-checker-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            checker.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        } else {
+            checker = null;
+        }
+    }
+
+    /**
+     * <p>Getter for the field <code>name</code>.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * <p>getReplicaNames.</p>
+     *
+     * @return the replica names
+     */
+    public List<String> getReplicaNames() {
+        return Lists.transform(replicas, r -> r.name);
+    }
+
+    /**
+     * <p>isAvailable.</p>
+     *
+     * @param replicaName a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean isAvailable(String replicaName) {
+        for (Replica replica : replicas) {
+            if (replica.name.equals(replicaName)) {
+                return replica.available;
+            }
+        }
+        return false;
+    }
+
+    private Replica choose() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        if (balance == Balance.LEAST_CONNECTIONS) {
+            Replica chosen = null;
+            int least = Integer.MAX_VALUE;
+            for (Replica replica : replicas) {
+                if (replica.available) {
+                    int active = replica.getActiveCount();
+                    if (active < least) {
+                        least = active;
+                        chosen = replica;
+                    }
+                }
+            }
+            return chosen;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = choose();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.setAvailable(false, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = choose();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection(username, password);
+            } catch (SQLException e) {
+                replica.setAvailable(false, e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * check the connection and replication lag of the replicas
+     */
+    void check() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (lagQuery == null) {
+                    replica.setAvailable(connection.isValid(CHECK_TIMEOUT_SECONDS), null);
+                } else {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+                        try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                            long lag = rs.next() ? rs.getLong(1) : Long.MAX_VALUE;
+                            replica.lag = lag;
+                            replica.setAvailable(lag <= maxLag, null);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.setAvailable(false, e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof DruidDataSource) {
+                DruidDataSource ds = (DruidDataSource) replica.dataSource;
+                if (!ds.isClosed()) ds.close();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    public enum Balance {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean available = true;
+        private volatile long lag;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private int getActiveCount() {
+            if (dataSource instanceof DruidDataSource) {
+                return ((DruidDataSource) dataSource).getActiveCount();
+            }
+            return 0;
+        }
+
+        private void setAvailable(boolean available, Throwable e) {
+            if (this.available != available) {
+                this.available = available;
+                if (available) {
+                    logger.info(Messages.get("info.db.replica.up", ReplicaDataSource.this.name, name));
+                } else if (e != null || lagQuery == null) {
+                    logger.warn(Messages.get("info.db.replica.unreachable",
+                            ReplicaDataSource.this.name, name), e);
+                } else {
+                    logger.warn(Messages.get("info.db.replica.down",
+                            ReplicaDataSource.this.name, name, lag));
+                }
+            }
+        }
+    }
+}
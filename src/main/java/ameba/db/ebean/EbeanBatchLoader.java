@@ -0,0 +1,79 @@
+package ameba.db.ebean;
+
+import ameba.db.model.AbstractBatchLoader;
+import ameba.db.model.BatchLoader;
+import com.google.common.collect.Maps;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ebean {@link BatchLoader}, the ids are loaded with {@code idIn} queries of at most
+ * {@link #MAX_BATCH_SIZE} ids.
+ *
+ * @param <ID> id type
+ * @param <T>  model type
+ * @author icode
+ */
+public class EbeanBatchLoader<ID, T> extends AbstractBatchLoader<ID, T> {
+    private final SpiEbeanServer server;
+    private final Class<T> modelType;
+    private final BeanDescriptor<T> descriptor;
+
+    /**
+     * <p>Constructor for EbeanBatchLoader.</p>
+     *
+     * @param server    a {@link io.ebeaninternal.api.SpiEbeanServer} object.
+     * @param modelType a {@link java.lang.Class} object.
+     */
+    public EbeanBatchLoader(SpiEbeanServer server, Class<T> modelType) {
+        this.server = server;
+        this.modelType = modelType;
+        this.descriptor = server.getBeanDescriptor(modelType);
+    }
+
+    /**
+     * Get the loader of the current request, outside a request a new loader is returned.
+     *
+     * @param server    a {@link io.ebeaninternal.api.SpiEbeanServer} object.
+     * @param modelType a {@link java.lang.Class} object.
+     * @param <ID>      id type
+     * @param <T>       model type
+     * @return a {@link ameba.db.ebean.EbeanBatchLoader} object.
+     */
+    public static <ID, T> EbeanBatchLoader<ID, T> of(SpiEbeanServer server, Class<T> modelType) {
+        return scoped(server.getName() + "." + modelType.getName(),
+                () -> new EbeanBatchLoader<>(server, modelType));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object key(ID id) {
+        return descriptor.convertId(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Map<?, T> load(List<Object> keys) {
+        List<T> models = server.find(modelType).where().idIn(keys.toArray()).findList();
+        Map<Object, T> found = Maps.newHashMapWithExpectedSize(models.size());
+        for (T model : models) {
+            found.put(server.getBeanId(model), model);
+        }
+        return found;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected T reference(Object key) {
+        return server.getReference(modelType, key);
+    }
+}
@@ -1,17 +1,19 @@
 package ameba.db.ebean;
 
-import ameba.container.event.ShutdownEvent;
+import ameba.container.ShutdownCoordinator;
 import ameba.core.Application;
 import ameba.db.DataSourceManager;
+import ameba.db.DbExecutor;
 import ameba.db.PersistenceExceptionMapper;
 import ameba.db.ebean.internal.ModelInterceptor;
+import ameba.db.ebean.internal.ResponseCache;
+import ameba.db.ebean.internal.ResponseCacheInterceptor;
 import ameba.db.ebean.jackson.JacksonEbeanModule;
 import ameba.db.ebean.jackson.JsonIOExceptionMapper;
 import ameba.db.ebean.migration.EbeanMigration;
 import ameba.db.migration.Migration;
 import ameba.db.migration.models.ScriptInfo;
 import ameba.db.model.ModelManager;
-import ameba.event.SystemEventBus;
 import ameba.i18n.Messages;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,6 +27,7 @@ import io.ebean.config.JsonConfig;
 import io.ebean.config.PropertiesWrapper;
 import io.ebean.config.ServerConfig;
 import io.ebeaninternal.api.SpiEbeanServer;
+import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
@@ -33,6 +36,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.core.Configuration;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Feature;
@@ -81,6 +85,24 @@ public class EbeanFeature implements Feature {
      * Constant <code>FILTER_PARAM_NAME="model.query.param.filter"</code>
      */
     public static final String FILTER_PARAM_NAME = "model.query.param.filter";
+    /**
+     * Constant <code>COUNT_TIMEOUT="model.query.count.timeout"</code>
+     */
+    public static final String COUNT_TIMEOUT = "model.query.count.timeout";
+    /**
+     * Constant <code>RESPONSE_CACHE_MAX_SIZE="model.response.cache.maxSize"</code>
+     */
+    public static final String RESPONSE_CACHE_MAX_SIZE = "model.response.cache.maxSize";
+    /**
+     * Constant <code>ASYNC_QUEUE_SIZE="model.async.queueSize"</code>
+     */
+    public static final String ASYNC_QUEUE_SIZE = "model.async.queueSize";
+    /**
+     * Constant <code>ASYNC_TIMEOUT="model.async.timeout"</code>
+     */
+    public static final String ASYNC_TIMEOUT = "model.async.timeout";
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+    private static final long DEFAULT_ASYNC_TIMEOUT = 30000;
     private static final Logger logger = LoggerFactory.getLogger(EbeanFeature.class);
     private static final List<EbeanServer> servers = Lists.newArrayList();
     @Inject
@@ -112,10 +134,18 @@ public class EbeanFeature implements Feature {
 
         final JsonFactory jsonFactory = objectMapper.getFactory();
 
+        long responseCacheMaxSize = getLong(appConfig, RESPONSE_CACHE_MAX_SIZE, 0);
+        int asyncQueueSize = (int) getLong(appConfig, ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE);
+        long asyncTimeout = getLong(appConfig, ASYNC_TIMEOUT, DEFAULT_ASYNC_TIMEOUT);
+        if (responseCacheMaxSize > 0) {
+            context.register(ResponseCacheInterceptor.class);
+        }
+
         ContainerConfig containerConfig = new ContainerConfig();
         Properties cp = new Properties();
         cp.putAll(appConfig.getProperties());
         containerConfig.loadFromProperties(cp);
+        final List<EbeanServer> created = Lists.newArrayList();
         for (final String name : DataSourceManager.getDataSourceNames()) {
             final ServerConfig config = new ServerConfig() {
                 @Override
@@ -133,10 +163,18 @@ public class EbeanFeature implements Feature {
             config.setPackages(null);
             config.setDataSourceJndiName(null);
             config.setDataSource(DataSourceManager.getDataSource(name));//设置为druid数据源
+            //只读副本, 事务外的查询使用副本
+            config.setReadOnlyDataSource(DataSourceManager.getReadOnlyDataSource(name));
             config.setJsonFactory(jsonFactory);
             config.setContainerConfig(containerConfig);
             config.setDisableClasspathSearch(true);
 
+            ResponseCache responseCache = null;
+            if (responseCacheMaxSize > 0) {
+                responseCache = new ResponseCache(name, responseCacheMaxSize);
+                config.add(responseCache.getListener());
+            }
+
             if (name.equals(DataSourceManager.getDefaultDataSourceName())) {
                 config.setDefaultServer(true);
             } else {
@@ -155,23 +193,44 @@ public class EbeanFeature implements Feature {
 
             logger.info(Messages.get("info.db.connected", name, appConfig.getProperty("db." + name + ".url")));
 
+            if (responseCache != null) {
+                responseCache.setServer((SpiEbeanServer) server);
+                ResponseCache.register(responseCache);
+            }
+
             JacksonEbeanModule module = new JacksonEbeanModule(server, locator);
 
             objectMapper.registerModule(module);
             xmlMapper.registerModule(module);
 
-            servers.add(server);
+            created.add(server);
+            synchronized (servers) {
+                servers.add(server);
+            }
+            // a reload keeps the executor, the previous handler still drains its requests on it,
+            // so the executor settings take effect on restart
+            if (DbExecutor.of(name) == null) {
+                DbExecutor.register(DbExecutor.create(name, asyncQueueSize, asyncTimeout));
+            }
         }
 
-        SystemEventBus.subscribe(ShutdownEvent.class, event -> {
-            servers.forEach(server -> server.shutdown(true, true));
-            servers.clear();
+        // the pools are closed by the data source manager in the next phase
+        ShutdownCoordinator.register(ShutdownCoordinator.Phase.DATABASE, EbeanFeature.class.getName(), () -> {
+            DbExecutor.closeAll();
+            synchronized (servers) {
+                servers.forEach(server -> {
+                    ResponseCache.unregister(server.getName());
+                    server.shutdown(false, true);
+                });
+                servers.clear();
+            }
         });
 
         ServiceLocatorUtilities.bind(locator, new AbstractBinder() {
             @Override
             protected void configure() {
-                for (EbeanServer server : servers) {
+                bindFactory(new ServersFactory(created)).to(Servers.class).in(Singleton.class);
+                for (EbeanServer server : created) {
                     String name = server.getName();
                     createBuilder(server).named(name);
 
@@ -193,6 +252,64 @@ public class EbeanFeature implements Feature {
                         .proxy(false);
             }
         });
+        // created now, so the servers are disposed with the locator
+        locator.getService(Servers.class);
         return true;
     }
+
+    private long getLong(Configuration config, String key, long defaultValue) {
+        Object value = config.getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(String.valueOf(value).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("{} is not a number: {}", key, value);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * The servers created for one application handler.
+     */
+    private static class Servers {
+        private final List<EbeanServer> created;
+
+        private Servers(List<EbeanServer> created) {
+            this.created = created;
+        }
+    }
+
+    /**
+     * Shut down the servers of a handler retired by a reload, once its locator is shut down.
+     * <p>
+     * On application shutdown the servers are already shut down in the
+     * {@link ShutdownCoordinator.Phase#DATABASE} phase. The response caches are not unregistered,
+     * the caches of the next handler replaced them.
+     */
+    private static class ServersFactory implements Factory<Servers> {
+        private final Servers servers;
+
+        private ServersFactory(List<EbeanServer> created) {
+            this.servers = new Servers(created);
+        }
+
+        @Override
+        public Servers provide() {
+            return servers;
+        }
+
+        @Override
+        public void dispose(Servers instance) {
+            for (EbeanServer server : instance.created) {
+                boolean open;
+                synchronized (EbeanFeature.servers) {
+                    open = EbeanFeature.servers.remove(server);
+                }
+                if (open) {
+                    server.shutdown(false, false);
+                }
+            }
+        }
+    }
 }
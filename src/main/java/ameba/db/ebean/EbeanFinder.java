@@ -1,8 +1,10 @@
 package ameba.db.ebean;
 
+import ameba.db.model.BatchLoader;
 import ameba.db.model.Finder;
 import io.ebean.*;
 import io.ebean.text.PathProperties;
+import io.ebeaninternal.api.SpiEbeanServer;
 import io.ebeaninternal.api.SpiQuery;
 
 import java.sql.Timestamp;
@@ -82,6 +84,14 @@ public class EbeanFinder<ID, T> extends Finder<ID, T> {
         return (M) server().getReference(getModelType(), id);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <M extends T> BatchLoader<ID, M> batch() {
+        return EbeanBatchLoader.of((SpiEbeanServer) server(), getModelType());
+    }
+
     /**
      * Creates a filter for sorting and filtering lists of entities locally without going back to the database.
      *
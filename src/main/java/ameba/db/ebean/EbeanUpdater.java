@@ -1,5 +1,6 @@
 package ameba.db.ebean;
 
+import ameba.db.ebean.internal.ResponseCache;
 import ameba.db.model.Model;
 import ameba.db.model.Updater;
 import io.ebean.Ebean;
@@ -87,7 +88,9 @@ public class EbeanUpdater<M extends Model> extends Updater<M> {
     /** {@inheritDoc} */
     @Override
     public int execute() {
-        return getUpdate().execute();
+        int rows = getUpdate().execute();
+        ResponseCache.modified(server, getModelType());
+        return rows;
     }
 
     /** {@inheritDoc} */
@@ -2,8 +2,8 @@ package ameba.db.ebean;
 
 import ameba.core.Application;
 import ameba.core.Requests;
-import ameba.db.ebean.filter.Filter;
 import ameba.db.ebean.internal.ListExpressionValidation;
+import ameba.db.ebean.internal.QueryValidationPolicy;
 import ameba.db.ebean.jackson.CommonBeanSerializer;
 import ameba.exception.UnprocessableEntityException;
 import ameba.i18n.Messages;
@@ -12,7 +12,6 @@ import ameba.message.internal.BeanPathProperties;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import io.ebean.FetchPath;
 import io.ebean.OrderBy;
 import io.ebean.Query;
@@ -144,37 +143,11 @@ public class EbeanUtils {
     public static void checkQuery(Query<?> query, Set<String> whitelist,
                                   Set<String> blacklist, InjectionManager manager) {
         ResourceInfo resource = manager.getInstance(ResourceInfo.class);
-        Class<?> rc = resource.getResourceClass();
-        Set<String> wl = null, bl = null;
-        if (rc != null) {
-            Filter filter = rc.getAnnotation(Filter.class);
-
-            if (filter != null) {
-                if (filter.whitelist().length > 0) {
-                    wl = Sets.newLinkedHashSet();
-                    Collections.addAll(wl, filter.whitelist());
-                }
-                if (filter.blacklist().length > 0) {
-                    bl = Sets.newLinkedHashSet();
-                    Collections.addAll(bl, filter.blacklist());
-                }
-            }
-        }
-
-        if (whitelist != null) {
-            if (wl == null) {
-                wl = Sets.newLinkedHashSet();
-            }
-            wl.addAll(whitelist);
-        }
-
-        if (blacklist != null) {
-            if (bl == null) {
-                bl = Sets.newLinkedHashSet();
-            }
-            bl.addAll(blacklist);
-        }
-        checkQuery((SpiQuery) query, wl, bl, manager.getInstance(Application.Mode.class).isProd());
+        SpiQuery<?> spiQuery = (SpiQuery<?>) query;
+        QueryValidationPolicy policy = QueryValidationPolicy
+                .of(spiQuery.getBeanDescriptor(), resource.getResourceClass())
+                .with(whitelist, blacklist);
+        checkQuery(spiQuery, policy.newValidation(), manager.getInstance(Application.Mode.class).isProd());
     }
 
     /**
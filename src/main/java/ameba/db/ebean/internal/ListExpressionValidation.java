@@ -12,6 +12,7 @@ import java.util.Set;
  *
  */
 public class ListExpressionValidation extends SpiExpressionValidation {
+    private final QueryValidationPolicy policy;
     private final Set<String> blacklist;
     private final Set<String> whitelist;
     private final BeanType<?> desc;
@@ -19,6 +20,9 @@ public class ListExpressionValidation extends SpiExpressionValidation {
 
     /**
      * <p>Constructor for ListExpressionValidation.</p>
+     * <p>
+     * The lists are used as is and the paths are resolved against the bean type,
+     * use {@link QueryValidationPolicy} to reuse the rules across queries.
      *
      * @param desc      a {@link io.ebean.plugin.BeanType} object.
      * @param whitelist a {@link java.util.Set} object.
@@ -26,11 +30,25 @@ public class ListExpressionValidation extends SpiExpressionValidation {
      */
     public ListExpressionValidation(BeanType<?> desc, Set<String> whitelist, Set<String> blacklist) {
         super(desc);
+        this.policy = null;
         this.blacklist = blacklist;
         this.whitelist = whitelist;
         this.desc = desc;
     }
 
+    /**
+     * <p>Constructor for ListExpressionValidation.</p>
+     *
+     * @param policy a {@link ameba.db.ebean.internal.QueryValidationPolicy} object.
+     */
+    public ListExpressionValidation(QueryValidationPolicy policy) {
+        super(policy.getBeanType());
+        this.policy = policy;
+        this.blacklist = null;
+        this.whitelist = null;
+        this.desc = policy.getBeanType();
+    }
+
     /**
      * <p>lastValid.</p>
      *
@@ -46,17 +64,21 @@ public class ListExpressionValidation extends SpiExpressionValidation {
      * Validate that the property expression (path) is valid.
      */
     public void validate(String propertyName) {
-        if (whitelist != null && whitelist.contains(propertyName)) {
+        if (policy != null ? policy.isWhitelisted(propertyName)
+                : whitelist != null && whitelist.contains(propertyName)) {
             lastValid = true;
             return;
         }
-        if (blacklist != null && blacklist.contains(propertyName)) {
+        if (policy != null ? policy.isBlacklisted(propertyName)
+                : blacklist != null && blacklist.contains(propertyName)) {
             lastValid = false;
             getUnknownProperties().add(propertyName);
             return;
         }
 
-        lastValid = desc.isValidExpression(propertyName);
-        super.validate(propertyName);
+        lastValid = policy != null ? policy.isValidExpression(propertyName) : desc.isValidExpression(propertyName);
+        if (!lastValid) {
+            getUnknownProperties().add(propertyName);
+        }
     }
 }
@@ -1,5 +1,7 @@
 package ameba.db.ebean.internal;
 
+import ameba.core.Application;
+import ameba.core.ConfigSnapshot;
 import ameba.db.dsl.QueryDSL;
 import ameba.db.ebean.EbeanFeature;
 import ameba.db.ebean.EbeanUtils;
@@ -15,6 +17,8 @@ import io.ebeaninternal.server.querydefn.OrmQueryDetail;
 import io.ebeaninternal.server.querydefn.OrmQueryProperties;
 import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.internal.inject.InjectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Priority;
@@ -24,16 +28,18 @@ import javax.inject.Singleton;
 import javax.persistence.PersistenceException;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.WebApplicationException;
-import javax.ws.rs.core.Configuration;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.WriterInterceptor;
 import javax.ws.rs.ext.WriterInterceptorContext;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * <p>ModelInterceptor class.</p>
@@ -44,6 +50,7 @@ import java.util.concurrent.ExecutionException;
 @Singleton
 @Priority(Priorities.ENTITY_CODER)
 public class ModelInterceptor implements WriterInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(ModelInterceptor.class);
 
     private final static Integer SYS_DEFAULT_PER_PAGE = 20;
     private static String FIELDS_PARAM_NAME = "fields";
@@ -55,8 +62,9 @@ public class ModelInterceptor implements WriterInterceptor {
     private static String FILTER_PARAM_NAME = "filter";
     private static Integer DEFAULT_PER_PAGE = SYS_DEFAULT_PER_PAGE;
     private static int MAX_PER_PAGE = 1000;
+    private static long COUNT_TIMEOUT = 0;
     @Context
-    private Provider<Configuration> configurationProvider;
+    private Provider<Application> applicationProvider;
     @Context
     private Provider<UriInfo> uriInfoProvider;
     @Inject
@@ -388,55 +396,84 @@ public class ModelInterceptor implements WriterInterceptor {
      * @param rowCount     a {@link io.ebean.FutureRowCount} object.
      */
     public static void applyRowCountHeader(MultivaluedMap<String, Object> headerParams, Query query, FutureRowCount rowCount) {
-        if (rowCount != null) {
-            try {
-                headerParams.putSingle(REQ_TOTAL_COUNT_HEADER_NAME, rowCount.get());
-            } catch (InterruptedException | ExecutionException e) {
-                headerParams.putSingle(REQ_TOTAL_COUNT_HEADER_NAME, query.findCount());
-            }
+        applyRowCountHeader(headerParams, query, rowCount, -1);
+    }
+
+    /**
+     * <p>applyRowCountHeader.</p>
+     *
+     * @param headerParams a {@link javax.ws.rs.core.MultivaluedMap} object.
+     * @param query        a {@link io.ebean.Query} object.
+     * @param rowCount     a {@link io.ebean.FutureRowCount} object.
+     * @param resultSize   rows of the fetched page, negative if unknown
+     * @see #resolveRowCount
+     */
+    public static void applyRowCountHeader(MultivaluedMap<String, Object> headerParams, Query<?> query,
+                                           FutureRowCount<?> rowCount, int resultSize) {
+        Integer count = resolveRowCount(query, rowCount, resultSize);
+        if (count != null) {
+            headerParams.putSingle(REQ_TOTAL_COUNT_HEADER_NAME, count);
         }
     }
 
+    /**
+     * Get the total count of the query, the count query runs in background along with the page query.
+     * <p>
+     * When the fetched page is not full the total is known from the page and the count query is
+     * cancelled. When the count query fails or exceeds the count timeout it is cancelled and the
+     * total is unknown, the count is never executed again.
+     *
+     * @param query      a {@link io.ebean.Query} object.
+     * @param rowCount   a {@link io.ebean.FutureRowCount} object.
+     * @param resultSize rows of the fetched page, negative if unknown
+     * @return the total count or null if unknown
+     */
+    public static Integer resolveRowCount(Query<?> query, FutureRowCount<?> rowCount, int resultSize) {
+        if (rowCount == null) {
+            return null;
+        }
+        int maxRows = query.getMaxRows();
+        int firstRow = query.getFirstRow();
+        if (resultSize >= 0 && (maxRows <= 0 || resultSize < maxRows) && (resultSize > 0 || firstRow == 0)) {
+            rowCount.cancel(true);
+            return firstRow + resultSize;
+        }
+        try {
+            Object count = COUNT_TIMEOUT > 0
+                    ? rowCount.get(COUNT_TIMEOUT, TimeUnit.MILLISECONDS)
+                    : rowCount.get();
+            return count == null ? null : ((Number) count).intValue();
+        } catch (TimeoutException e) {
+            rowCount.cancel(true);
+            logger.warn("count query exceeded {}ms and was cancelled", COUNT_TIMEOUT);
+        } catch (InterruptedException e) {
+            rowCount.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("count query failed", e.getCause());
+        }
+        return null;
+    }
+
     @PostConstruct
     private void init() {
-        Configuration configuration = configurationProvider.get();
-        final String fieldsParamName = (String) configuration.getProperty(EntityFieldsFilteringFeature.QUERY_FIELDS_PARAM_NAME);
-        FIELDS_PARAM_NAME = StringUtils.isNotBlank(fieldsParamName) ? fieldsParamName : FIELDS_PARAM_NAME;
-
-        final String sortParamName = (String) configuration.getProperty(EbeanFeature.SORT_PARAM_NAME);
-        SORT_PARAM_NAME = StringUtils.isNotBlank(sortParamName) ? sortParamName : SORT_PARAM_NAME;
-
-        final String pageParamName = (String) configuration.getProperty(EbeanFeature.PAGE_PARAM_NAME);
-        PAGE_PARAM_NAME = StringUtils.isNotBlank(pageParamName) ? pageParamName : PAGE_PARAM_NAME;
-
-        final String perPageParamName = (String) configuration.getProperty(EbeanFeature.PER_PAGE_PARAM_NAME);
-        PER_PAGE_PARAM_NAME = StringUtils.isNotBlank(perPageParamName) ? perPageParamName : PER_PAGE_PARAM_NAME;
-
-        final String reqTotalCountParamName = (String) configuration.getProperty(EbeanFeature.REQ_TOTAL_COUNT_PARAM_NAME);
-        REQ_TOTAL_COUNT_PARAM_NAME = StringUtils.isNotBlank(reqTotalCountParamName) ? perPageParamName : REQ_TOTAL_COUNT_PARAM_NAME;
-
-        final String reqTotalCountHeaderName = (String) configuration.getProperty(EbeanFeature.REQ_TOTAL_COUNT_HEADER_NAME);
-        REQ_TOTAL_COUNT_HEADER_NAME = StringUtils.isNotBlank(reqTotalCountHeaderName) ? perPageParamName : REQ_TOTAL_COUNT_HEADER_NAME;
-
-        final String filterParamName = (String) configuration.getProperty(EbeanFeature.FILTER_PARAM_NAME);
-        FILTER_PARAM_NAME = StringUtils.isNotBlank(filterParamName) ? filterParamName : FILTER_PARAM_NAME;
-
-        final String defaultPerPage = (String) configuration.getProperty(EbeanFeature.DEFAULT_PER_PAGE_PARAM_NAME);
-        if (StringUtils.isNotBlank(defaultPerPage)) {
-            try {
-                DEFAULT_PER_PAGE = Integer.parseInt(defaultPerPage);
-            } catch (Exception e) {
-                DEFAULT_PER_PAGE = null;
-            }
+        ConfigSnapshot config = applicationProvider.get().getConfigSnapshot();
+        FIELDS_PARAM_NAME = config.getString(EntityFieldsFilteringFeature.QUERY_FIELDS_PARAM_NAME, FIELDS_PARAM_NAME);
+        SORT_PARAM_NAME = config.getString(EbeanFeature.SORT_PARAM_NAME, SORT_PARAM_NAME);
+        PAGE_PARAM_NAME = config.getString(EbeanFeature.PAGE_PARAM_NAME, PAGE_PARAM_NAME);
+        PER_PAGE_PARAM_NAME = config.getString(EbeanFeature.PER_PAGE_PARAM_NAME, PER_PAGE_PARAM_NAME);
+        REQ_TOTAL_COUNT_PARAM_NAME = config.getString(EbeanFeature.REQ_TOTAL_COUNT_PARAM_NAME, REQ_TOTAL_COUNT_PARAM_NAME);
+        REQ_TOTAL_COUNT_HEADER_NAME = config.getString(EbeanFeature.REQ_TOTAL_COUNT_HEADER_NAME, REQ_TOTAL_COUNT_HEADER_NAME);
+        FILTER_PARAM_NAME = config.getString(EbeanFeature.FILTER_PARAM_NAME, FILTER_PARAM_NAME);
+
+        if (config.isNotBlank(EbeanFeature.DEFAULT_PER_PAGE_PARAM_NAME)) {
+            DEFAULT_PER_PAGE = config.getInteger(EbeanFeature.DEFAULT_PER_PAGE_PARAM_NAME);
         }
-
-        final String maxPerPage = (String) configuration.getProperty(EbeanFeature.MAX_PER_PAGE_PARAM_NAME);
-        if (StringUtils.isNotBlank(maxPerPage)) {
-            try {
-                MAX_PER_PAGE = Integer.parseInt(maxPerPage);
-            } catch (Exception e) {
-                MAX_PER_PAGE = -1;
-            }
+        if (config.isNotBlank(EbeanFeature.COUNT_TIMEOUT)) {
+            COUNT_TIMEOUT = config.getLong(EbeanFeature.COUNT_TIMEOUT, 0);
+        }
+        if (config.isNotBlank(EbeanFeature.MAX_PER_PAGE_PARAM_NAME)) {
+            MAX_PER_PAGE = config.getInt(EbeanFeature.MAX_PER_PAGE_PARAM_NAME, -1);
         }
     }
 
@@ -494,7 +531,8 @@ public class ModelInterceptor implements WriterInterceptor {
                     result = query.findList();
                 }
 
-                applyRowCountHeader(context.getHeaders(), query, rowCount);
+                applyRowCountHeader(context.getHeaders(), query, rowCount,
+                        result instanceof Collection ? ((Collection<?>) result).size() : -1);
 
                 context.setEntity(result);
 
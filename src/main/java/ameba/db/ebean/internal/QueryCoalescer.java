@@ -0,0 +1,156 @@
+package ameba.db.ebean.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single flight execution of identical queries.
+ * <p>
+ * Concurrent executions with an equal key share the result of the first one
+ * instead of running the query again. With a positive TTL the result is also kept
+ * for that long, so requests arriving right after the query completed get it too.
+ * The result is shared, callers must not modify it.
+ *
+ * @author icode
+ */
+public class QueryCoalescer {
+    private static final long DEFAULT_MAX_SIZE = 1000;
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = Maps.newConcurrentMap();
+    private final Cache<Object, Object> recent;
+    // bumped by invalidateAll, a result loaded across it is not kept
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * Coalesce concurrent executions only.
+     */
+    public QueryCoalescer() {
+        this(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Constructor for QueryCoalescer.</p>
+     *
+     * @param ttl  how long a result is reused after the query completed, not positive to disable
+     * @param unit a {@link java.util.concurrent.TimeUnit} object.
+     */
+    public QueryCoalescer(long ttl, TimeUnit unit) {
+        this(ttl, unit, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * <p>Constructor for QueryCoalescer.</p>
+     *
+     * @param ttl     how long a result is reused after the query completed, not positive to disable
+     * @param unit    a {@link java.util.concurrent.TimeUnit} object.
+     * @param maxSize max results kept
+     */
+    public QueryCoalescer(long ttl, TimeUnit unit, long maxSize) {
+        if (ttl > 0) {
+            recent = CacheBuilder.newBuilder()
+                    .expireAfterWrite(ttl, unit)
+                    .maximumSize(maxSize)
+                    .build();
+        } else {
+            recent = null;
+        }
+    }
+
+    /**
+     * Execute the query or join the execution in flight with the same key.
+     *
+     * @param key    the normalized query, must implement equals and hashCode
+     * @param loader executes the query
+     * @param <T>    result type
+     * @return the result
+     * @throws java.lang.Exception if the query failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Callable<T> loader) throws Exception {
+        if (recent != null) {
+            Object result = recent.getIfPresent(key);
+            if (result != null) {
+                cacheHits.increment();
+                return (T) result;
+            }
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return (T) running.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+        executions.increment();
+        long loading = generation.get();
+        try {
+            T result = loader.call();
+            if (recent != null && result != null && generation.get() == loading) {
+                recent.put(key, result);
+                // invalidated between the check and the put
+                if (generation.get() != loading) {
+                    recent.invalidate(key);
+                }
+            }
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Drop the kept results, such as after the models were changed.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (recent != null) {
+            recent.invalidateAll();
+        }
+    }
+
+    /**
+     * <p>getExecutions.</p>
+     *
+     * @return count of the queries executed
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * <p>getCoalesced.</p>
+     *
+     * @return count of the executions joined an execution in flight
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * <p>getCacheHits.</p>
+     *
+     * @return count of the results reused within the TTL
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+}
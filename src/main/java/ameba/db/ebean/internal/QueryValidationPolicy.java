@@ -0,0 +1,179 @@
+package ameba.db.ebean.internal;
+
+import ameba.db.ebean.filter.Filter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import io.ebean.plugin.BeanType;
+import io.ebean.plugin.Property;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Immutable query validation rules of a (resource class, bean type) pair.
+ * <p>
+ * The {@link Filter} white and black lists of the resource are read once, the
+ * bean properties are resolved up front and the validity of other property
+ * paths is remembered, so validating a request query no longer reflects the
+ * resource or walks the bean descriptor again.
+ *
+ * @author icode
+ */
+public final class QueryValidationPolicy {
+    private static final int MAX_RESOLVED_PATHS = 1024;
+    private static final Class<?> NO_RESOURCE = void.class;
+    private static final Cache<BeanType<?>, ConcurrentMap<Class<?>, QueryValidationPolicy>> POLICIES =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    private final BeanType<?> beanType;
+    private final Set<String> whitelist;
+    private final Set<String> blacklist;
+    private final ConcurrentMap<String, Boolean> resolvedPaths;
+
+    private QueryValidationPolicy(BeanType<?> beanType, Set<String> whitelist, Set<String> blacklist,
+                                  ConcurrentMap<String, Boolean> resolvedPaths) {
+        this.beanType = beanType;
+        this.whitelist = whitelist;
+        this.blacklist = blacklist;
+        this.resolvedPaths = resolvedPaths;
+    }
+
+    /**
+     * Create a policy not bound to any resource, it is not cached.
+     *
+     * @param beanType  a {@link io.ebean.plugin.BeanType} object.
+     * @param whitelist a {@link java.util.Set} object.
+     * @param blacklist a {@link java.util.Set} object.
+     * @return a {@link ameba.db.ebean.internal.QueryValidationPolicy} object.
+     */
+    public static QueryValidationPolicy create(BeanType<?> beanType, Set<String> whitelist, Set<String> blacklist) {
+        return new QueryValidationPolicy(
+                beanType,
+                whitelist == null ? ImmutableSet.of() : ImmutableSet.copyOf(whitelist),
+                blacklist == null ? ImmutableSet.of() : ImmutableSet.copyOf(blacklist),
+                resolveProperties(beanType)
+        );
+    }
+
+    /**
+     * Get the cached policy of the resource and bean type.
+     *
+     * @param beanType      a {@link io.ebean.plugin.BeanType} object.
+     * @param resourceClass the resource class, may be null
+     * @return a {@link ameba.db.ebean.internal.QueryValidationPolicy} object.
+     */
+    public static QueryValidationPolicy of(BeanType<?> beanType, Class<?> resourceClass) {
+        ConcurrentMap<Class<?>, QueryValidationPolicy> policies;
+        try {
+            policies = POLICIES.get(beanType, Maps::newConcurrentMap);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        Class<?> key = resourceClass == null ? NO_RESOURCE : resourceClass;
+        QueryValidationPolicy policy = policies.get(key);
+        if (policy == null) {
+            policy = policies.computeIfAbsent(key, k -> fromResource(beanType, resourceClass));
+        }
+        return policy;
+    }
+
+    private static QueryValidationPolicy fromResource(BeanType<?> beanType, Class<?> resourceClass) {
+        Filter filter = resourceClass == null ? null : resourceClass.getAnnotation(Filter.class);
+        return new QueryValidationPolicy(
+                beanType,
+                filter == null ? ImmutableSet.of() : ImmutableSet.copyOf(filter.whitelist()),
+                filter == null ? ImmutableSet.of() : ImmutableSet.copyOf(filter.blacklist()),
+                resolveProperties(beanType)
+        );
+    }
+
+    private static ConcurrentMap<String, Boolean> resolveProperties(BeanType<?> beanType) {
+        ConcurrentMap<String, Boolean> paths = Maps.newConcurrentMap();
+        for (Property property : beanType.allProperties()) {
+            paths.put(property.getName(), Boolean.TRUE);
+        }
+        return paths;
+    }
+
+    /**
+     * Policy with extra white and black list entries, returns this policy if there are none.
+     *
+     * @param whitelist a {@link java.util.Set} object.
+     * @param blacklist a {@link java.util.Set} object.
+     * @return a {@link ameba.db.ebean.internal.QueryValidationPolicy} object.
+     */
+    public QueryValidationPolicy with(Set<String> whitelist, Set<String> blacklist) {
+        boolean noWhite = whitelist == null || whitelist.isEmpty();
+        boolean noBlack = blacklist == null || blacklist.isEmpty();
+        if (noWhite && noBlack) {
+            return this;
+        }
+        return new QueryValidationPolicy(
+                beanType,
+                noWhite ? this.whitelist : ImmutableSet.<String>builder()
+                        .addAll(this.whitelist).addAll(whitelist).build(),
+                noBlack ? this.blacklist : ImmutableSet.<String>builder()
+                        .addAll(this.blacklist).addAll(blacklist).build(),
+                resolvedPaths
+        );
+    }
+
+    /**
+     * <p>Getter for the field <code>beanType</code>.</p>
+     *
+     * @return a {@link io.ebean.plugin.BeanType} object.
+     */
+    public BeanType<?> getBeanType() {
+        return beanType;
+    }
+
+    /**
+     * <p>isWhitelisted.</p>
+     *
+     * @param path a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean isWhitelisted(String path) {
+        return whitelist.contains(path);
+    }
+
+    /**
+     * <p>isBlacklisted.</p>
+     *
+     * @param path a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean isBlacklisted(String path) {
+        return blacklist.contains(path);
+    }
+
+    /**
+     * Whether the property path is valid for the bean type.
+     *
+     * @param path a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean isValidExpression(String path) {
+        Boolean valid = resolvedPaths.get(path);
+        if (valid == null) {
+            valid = beanType.isValidExpression(path);
+            // paths come from the request, keep the memory bounded
+            if (resolvedPaths.size() < MAX_RESOLVED_PATHS) {
+                resolvedPaths.putIfAbsent(path, valid);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Create the validation for one query, validations hold the per query result and are not shared.
+     *
+     * @return a {@link ameba.db.ebean.internal.ListExpressionValidation} object.
+     */
+    public ListExpressionValidation newValidation() {
+        return new ListExpressionValidation(this);
+    }
+}
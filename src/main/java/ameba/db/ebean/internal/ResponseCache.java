@@ -0,0 +1,389 @@
+package ameba.db.ebean.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.ebean.EbeanServer;
+import io.ebean.Transaction;
+import io.ebean.TransactionCallbackAdapter;
+import io.ebean.event.BeanPersistListener;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanPropertyAssocMany;
+import io.ebeaninternal.server.deploy.BeanPropertyAssocOne;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of serialized model responses of an ebean server.
+ * <p>
+ * An entry remembers the modification version of the tables it was read from, the
+ * version of a table is increased after a transaction modified it, which makes the
+ * entries read from the table stale. The versions are taken before the query runs,
+ * so a modification committed while the response was built is never missed.
+ * <p>
+ * Only the modifications persisting beans and the ones reported with
+ * {@link #modified(EbeanServer, Class)} are tracked, tables written with raw
+ * {@code SqlUpdate}, {@code CallableSql} or JDBC must be reported with
+ * {@link #invalidate(String)} or {@link #invalidateAll()}.
+ * <p>
+ * The entries are evicted by the size of the bodies.
+ *
+ * @author icode
+ */
+public class ResponseCache {
+    private static final Map<String, ResponseCache> CACHES = Maps.newConcurrentMap();
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final String ALL_TABLES = "";
+
+    private final String serverName;
+    private final Cache<Object, Entry> entries;
+    private final ConcurrentMap<String, AtomicLong> tableVersions = Maps.newConcurrentMap();
+    private final ConcurrentMap<BeanDescriptor<?>, Set<String>> descriptorTables = Maps.newConcurrentMap();
+    private final LongAdder invalidations = new LongAdder();
+    private final Listener listener = new Listener();
+    private volatile SpiEbeanServer server;
+
+    /**
+     * <p>Constructor for ResponseCache.</p>
+     *
+     * @param serverName ebean server name
+     * @param maxBytes   max bytes of the cached bodies
+     */
+    public ResponseCache(String serverName, long maxBytes) {
+        this.serverName = serverName;
+        this.entries = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Object, Entry>weigher((key, entry) -> entry.body.length + ENTRY_OVERHEAD)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Register the cache of the server.
+     *
+     * @param cache a {@link ameba.db.ebean.internal.ResponseCache} object.
+     */
+    public static void register(ResponseCache cache) {
+        CACHES.put(cache.serverName, cache);
+    }
+
+    /**
+     * <p>Remove the cache of the server.</p>
+     *
+     * @param serverName ebean server name
+     */
+    public static void unregister(String serverName) {
+        CACHES.remove(serverName);
+    }
+
+    /**
+     * Get the cache of the server.
+     *
+     * @param serverName ebean server name
+     * @return the cache or null if response caching is disabled
+     */
+    public static ResponseCache of(String serverName) {
+        return CACHES.get(serverName);
+    }
+
+    /**
+     * Mark the table of the model type modified, after the current transaction
+     * committed if there is one.
+     *
+     * @param server    a {@link io.ebean.EbeanServer} object.
+     * @param modelType a {@link java.lang.Class} object.
+     */
+    public static void modified(EbeanServer server, Class<?> modelType) {
+        ResponseCache cache = of(server.getName());
+        if (cache != null) {
+            Transaction transaction = server.currentTransaction();
+            if (transaction == null || !transaction.isActive()) {
+                cache.invalidate(modelType);
+            } else {
+                transaction.register(new TransactionCallbackAdapter() {
+                    @Override
+                    public void postCommit() {
+                        cache.invalidate(modelType);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * <p>getServerName.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * The listener to add to the server config, marks the tables of persisted beans modified.
+     *
+     * @return a {@link io.ebean.event.BeanPersistListener} object.
+     */
+    public BeanPersistListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Bind the created server, needed to resolve the tables of the beans.
+     *
+     * @param server a {@link io.ebeaninternal.api.SpiEbeanServer} object.
+     */
+    public void setServer(SpiEbeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Take the versions of the tables a response of the model is read from, which
+     * are the table of the model and the tables reachable through its associations,
+     * as the fetched paths may go any depth.
+     *
+     * @param descriptor a {@link io.ebeaninternal.server.deploy.BeanDescriptor} object.
+     * @return the versions to store the response with
+     */
+    public Map<String, Long> versions(BeanDescriptor<?> descriptor) {
+        Set<String> tables = descriptorTables.computeIfAbsent(descriptor, d -> {
+            Set<String> found = Sets.newHashSet(ALL_TABLES);
+            addTables(found, Sets.newHashSet(), d);
+            return found;
+        });
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (String table : tables) {
+            builder.put(table, version(table).get());
+        }
+        return builder.build();
+    }
+
+    private void addTables(Set<String> tables, Set<BeanDescriptor<?>> visited, BeanDescriptor<?> descriptor) {
+        if (descriptor == null || !visited.add(descriptor)) {
+            return;
+        }
+        if (descriptor.getBaseTable() != null) {
+            tables.add(descriptor.getBaseTable());
+        }
+        for (BeanPropertyAssocOne<?> one : descriptor.propertiesOne()) {
+            addTables(tables, visited, one.getTargetDescriptor());
+        }
+        for (BeanPropertyAssocMany<?> many : descriptor.propertiesMany()) {
+            addTables(tables, visited, many.getTargetDescriptor());
+            if (many.getIntersectionTableJoin() != null) {
+                tables.add(many.getIntersectionTableJoin().getTable());
+            }
+        }
+    }
+
+    private AtomicLong version(String table) {
+        return tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    /**
+     * Get the response, stale entries are removed.
+     *
+     * @param key the normalized request
+     * @return the entry or null
+     */
+    public Entry get(Object key) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null && !isCurrent(entry)) {
+            entries.invalidate(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Store the response, it is dropped if a table was modified since the versions were taken.
+     *
+     * @param key   the normalized request
+     * @param entry a {@link ameba.db.ebean.internal.ResponseCache.Entry} object.
+     */
+    public void put(Object key, Entry entry) {
+        if (isCurrent(entry)) {
+            entries.put(key, entry);
+        }
+    }
+
+    private boolean isCurrent(Entry entry) {
+        for (Map.Entry<String, Long> version : entry.versions.entrySet()) {
+            if (version(version.getKey()).get() != version.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mark the table modified.
+     *
+     * @param table table name
+     */
+    public void invalidate(String table) {
+        if (table != null) {
+            invalidations.increment();
+            version(table).incrementAndGet();
+        }
+    }
+
+    /**
+     * Mark the table of the model type modified.
+     *
+     * @param modelType a {@link java.lang.Class} object.
+     */
+    public void invalidate(Class<?> modelType) {
+        SpiEbeanServer s = server;
+        BeanDescriptor<?> descriptor = s == null ? null : s.getBeanDescriptor(modelType);
+        if (descriptor == null) {
+            invalidateAll();
+        } else {
+            invalidate(descriptor.getBaseTable());
+        }
+    }
+
+    /**
+     * Drop all responses.
+     */
+    public void invalidateAll() {
+        invalidations.increment();
+        version(ALL_TABLES).incrementAndGet();
+        entries.invalidateAll();
+    }
+
+    /**
+     * Hit, miss and eviction counts.
+     *
+     * @return a {@link com.google.common.cache.CacheStats} object.
+     */
+    public CacheStats stats() {
+        return entries.stats();
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return count of the cached responses
+     */
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * <p>getInvalidations.</p>
+     *
+     * @return count of the table modifications
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Start caching the response of the request with the versions taken now.
+     *
+     * @param key        the normalized request
+     * @param descriptor a {@link io.ebeaninternal.server.deploy.BeanDescriptor} object.
+     * @return a {@link ameba.db.ebean.internal.ResponseCache.Pending} object.
+     */
+    public Pending pending(Object key, BeanDescriptor<?> descriptor) {
+        return new Pending(key, versions(descriptor));
+    }
+
+    /**
+     * A serialized response.
+     */
+    public static class Entry {
+        private final byte[] body;
+        private final MediaType mediaType;
+        private final Map<String, Object> headers;
+        private final Map<String, Long> versions;
+
+        /**
+         * <p>Constructor for Entry.</p>
+         *
+         * @param body      the serialized entity
+         * @param mediaType a {@link javax.ws.rs.core.MediaType} object.
+         * @param headers   the headers describing the entity, such as the total count
+         * @param versions  the table versions taken before the query
+         */
+        public Entry(byte[] body, MediaType mediaType, Map<String, Object> headers, Map<String, Long> versions) {
+            this.body = body;
+            this.mediaType = mediaType;
+            this.headers = headers;
+            this.versions = versions;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public Map<String, Object> getHeaders() {
+            return headers;
+        }
+    }
+
+    /**
+     * A response to cache once it was serialized.
+     */
+    public class Pending {
+        private final Object key;
+        private final Map<String, Long> versions;
+
+        private Pending(Object key, Map<String, Long> versions) {
+            this.key = key;
+            this.versions = versions;
+        }
+
+        /**
+         * Store the serialized response.
+         *
+         * @param body      the serialized entity
+         * @param mediaType a {@link javax.ws.rs.core.MediaType} object.
+         * @param headers   the headers describing the entity
+         */
+        public void complete(byte[] body, MediaType mediaType, Map<String, Object> headers) {
+            put(key, new Entry(body, mediaType, headers, versions));
+        }
+    }
+
+    private class Listener implements BeanPersistListener {
+        @Override
+        public boolean isRegisterFor(Class<?> cls) {
+            return true;
+        }
+
+        @Override
+        public void inserted(Object bean) {
+            invalidate(bean.getClass());
+        }
+
+        @Override
+        public void updated(Object bean, Set<String> updatedProperties) {
+            invalidate(bean.getClass());
+        }
+
+        @Override
+        public void deleted(Object bean) {
+            invalidate(bean.getClass());
+        }
+
+        @Override
+        public void softDeleted(Object bean) {
+            invalidate(bean.getClass());
+        }
+    }
+}
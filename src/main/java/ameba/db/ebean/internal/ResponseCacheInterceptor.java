@@ -0,0 +1,92 @@
+package ameba.db.ebean.internal;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Store the serialized entity of a response marked with a {@link ResponseCache.Pending}.
+ * <p>
+ * It runs after the content encoding interceptors, so the stored bytes are not encoded.
+ *
+ * @author icode
+ */
+@Priority(Priorities.ENTITY_CODER + 100)
+public class ResponseCacheInterceptor implements WriterInterceptor {
+    /**
+     * the request property of the {@link ResponseCache.Pending} response
+     */
+    public static final String PENDING_PROPERTY = ResponseCacheInterceptor.class.getName() + ".pending";
+    private static final String[] CACHED_HEADERS = {
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED
+    };
+
+    private static boolean isJson(MediaType mediaType) {
+        return mediaType != null
+                && ("json".equalsIgnoreCase(mediaType.getSubtype())
+                || mediaType.getSubtype().toLowerCase().endsWith("+json"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        Object pending = context.getProperty(PENDING_PROPERTY);
+        if (!(pending instanceof ResponseCache.Pending) || !isJson(context.getMediaType())) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(PENDING_PROPERTY);
+        OutputStream out = context.getOutputStream();
+        CopyStream copy = new CopyStream(out);
+        context.setOutputStream(copy);
+        context.proceed();
+        context.setOutputStream(out);
+
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        ImmutableMap.Builder<String, Object> cached = ImmutableMap.builder();
+        for (String name : CACHED_HEADERS) {
+            Object value = headers.getFirst(name);
+            if (value != null) {
+                cached.put(name, value);
+            }
+        }
+        Object totalCount = headers.getFirst(ModelInterceptor.getReqTotalCountHeaderName());
+        if (totalCount != null) {
+            cached.put(ModelInterceptor.getReqTotalCountHeaderName(), totalCount);
+        }
+        ((ResponseCache.Pending) pending).complete(copy.copy.toByteArray(), context.getMediaType(), cached.build());
+    }
+
+    private static class CopyStream extends FilterOutputStream {
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CopyStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            copy.write(b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            copy.write(b, off, len);
+            out.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ameba.db.ebean.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.ebean.Query;
+import io.ebean.bean.EntityBean;
+import io.ebean.bean.EntityBeanIntercept;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+
+import javax.ws.rs.core.EntityTag;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.temporal.TemporalAccessor;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The {@code @Version} and {@code @WhenModified} properties of a bean type, used to build
+ * the ETag and Last-Modified validators of a model.
+ * <p>
+ * The properties are resolved once per {@link BeanDescriptor}, the validators of stored
+ * beans are read with a query selecting only the id and these properties. The validators
+ * only cover the root bean, changes of associated beans do not change them.
+ *
+ * @author icode
+ */
+public final class VersionProperties {
+    private static final Cache<BeanDescriptor<?>, VersionProperties> CACHE =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    private static final String VARIANT_SEPARATOR = "-";
+
+    private final BeanProperty version;
+    private final BeanProperty whenModified;
+    private final String select;
+
+    private VersionProperties(BeanDescriptor<?> descriptor) {
+        this.version = descriptor.getVersionProperty();
+        this.whenModified = descriptor.getWhenModifiedProperty();
+        if (version != null && whenModified != null && version != whenModified) {
+            select = version.getName() + "," + whenModified.getName();
+        } else if (version != null) {
+            select = version.getName();
+        } else if (whenModified != null) {
+            select = whenModified.getName();
+        } else {
+            select = null;
+        }
+    }
+
+    /**
+     * <p>of.</p>
+     *
+     * @param descriptor a {@link io.ebeaninternal.server.deploy.BeanDescriptor} object.
+     * @return a {@link ameba.db.ebean.internal.VersionProperties} object.
+     */
+    public static VersionProperties of(BeanDescriptor<?> descriptor) {
+        try {
+            return CACHE.get(descriptor, () -> new VersionProperties(descriptor));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Whether the bean type has a version or modification timestamp property.
+     *
+     * @return a boolean.
+     */
+    public boolean isSupported() {
+        return select != null;
+    }
+
+    /**
+     * Find the beans with only the id and version properties loaded.
+     *
+     * @param server         a {@link io.ebeaninternal.api.SpiEbeanServer} object.
+     * @param modelType      a {@link java.lang.Class} object.
+     * @param ids            a {@link java.util.Collection} object.
+     * @param includeDeleted a boolean.
+     * @param forUpdate      lock the rows until the transaction ends
+     * @param <T>            model type
+     * @return a {@link java.util.List} object.
+     */
+    public <T> List<T> findVersions(SpiEbeanServer server, Class<T> modelType, Collection<?> ids,
+                                    boolean includeDeleted, boolean forUpdate) {
+        Query<T> query = server.find(modelType).select(select);
+        if (includeDeleted) {
+            query.setIncludeSoftDeletes();
+        }
+        if (forUpdate) {
+            query.forUpdate();
+        }
+        return query.where().idIn(ids.toArray()).findList();
+    }
+
+    /**
+     * Build the entity tag of the stored versions of the beans, returns null if a bean has not loaded
+     * the version properties.
+     *
+     * @param server a {@link io.ebeaninternal.api.SpiEbeanServer} object.
+     * @param beans  a {@link java.util.Collection} object.
+     * @return a {@link javax.ws.rs.core.EntityTag} object.
+     * @see #variantTag(EntityTag, String)
+     */
+    public EntityTag entityTag(SpiEbeanServer server, Collection<?> beans) {
+        if (!isSupported() || beans.isEmpty()) {
+            return null;
+        }
+        // the beans come in query order, the tag must not depend on it
+        List<HashCode> hashes = Lists.newArrayListWithCapacity(beans.size());
+        for (Object bean : beans) {
+            EntityBean entityBean = (EntityBean) bean;
+            Hasher hasher = Hashing.murmur3_128().newHasher()
+                    .putString(String.valueOf(server.getBeanId(bean)), StandardCharsets.UTF_8).putChar(':');
+            if (!putValue(hasher, entityBean, version) || !putValue(hasher, entityBean, whenModified)) {
+                return null;
+            }
+            hashes.add(hasher.hash());
+        }
+        return new EntityTag(Hashing.combineUnordered(hashes).toString());
+    }
+
+    /**
+     * The strong tag of one representation of the stored versions, such as the body selected by
+     * the query string and the media type.
+     * <p>
+     * The tag is the version tag followed by the hash of the variant, so a write can still check
+     * it against the stored versions with {@link #isVariantOf(EntityTag, EntityTag)}.
+     *
+     * @param tag     the tag of the stored versions
+     * @param variant the representation variant
+     * @return a {@link javax.ws.rs.core.EntityTag} object.
+     */
+    public static EntityTag variantTag(EntityTag tag, String variant) {
+        if (tag == null || variant == null) {
+            return tag;
+        }
+        return new EntityTag(tag.getValue() + VARIANT_SEPARATOR
+                + Hashing.murmur3_128().hashString(variant, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether the tag is the tag of the stored versions or one of its representations.
+     *
+     * @param tag    the tag sent by the client
+     * @param stored the tag of the stored versions
+     * @return a boolean.
+     */
+    public static boolean isVariantOf(EntityTag tag, EntityTag stored) {
+        return !tag.isWeak() && !stored.isWeak()
+                && (tag.getValue().equals(stored.getValue())
+                || tag.getValue().startsWith(stored.getValue() + VARIANT_SEPARATOR));
+    }
+
+    private boolean putValue(Hasher hasher, EntityBean bean, BeanProperty property) {
+        if (property == null) {
+            return true;
+        }
+        EntityBeanIntercept intercept = bean._ebean_getIntercept();
+        if (!intercept.isLoadedProperty(property.getPropertyIndex())) {
+            return false;
+        }
+        hasher.putString(String.valueOf(property.getValue(bean)), StandardCharsets.UTF_8).putChar(';');
+        return true;
+    }
+
+    /**
+     * The latest modification time of the beans, or null if unknown.
+     *
+     * @param beans a {@link java.util.Collection} object.
+     * @return a {@link java.util.Date} object.
+     */
+    public Date lastModified(Collection<?> beans) {
+        if (whenModified == null || beans.isEmpty()) {
+            return null;
+        }
+        long last = Long.MIN_VALUE;
+        for (Object bean : beans) {
+            EntityBean entityBean = (EntityBean) bean;
+            if (!entityBean._ebean_getIntercept().isLoadedProperty(whenModified.getPropertyIndex())) {
+                return null;
+            }
+            Long time = toEpochMilli(whenModified.getValue(entityBean));
+            if (time == null) {
+                return null;
+            }
+            last = Math.max(last, time);
+        }
+        return new Date(last);
+    }
+
+    private static Long toEpochMilli(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli();
+        } else if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } else if (value instanceof OffsetDateTime || value instanceof ZonedDateTime) {
+            return Instant.from((TemporalAccessor) value).toEpochMilli();
+        } else if (value instanceof Long) {
+            return (Long) value;
+        }
+        return null;
+    }
+}
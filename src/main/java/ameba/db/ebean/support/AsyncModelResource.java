@@ -0,0 +1,205 @@
+package ameba.db.ebean.support;
+
+import io.ebean.Ebean;
+import io.ebeaninternal.api.SpiEbeanServer;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.PathSegment;
+import java.io.InputStream;
+import java.sql.Timestamp;
+
+import static ameba.db.ebean.support.ModelResource.DATE_REGEX;
+
+/**
+ * <p>Abstract AsyncModelResource class.</p>
+ * <p>
+ * The same endpoints as {@link ModelResource}, run on the {@link ameba.db.DbExecutor}
+ * of the server so the container threads are not held while waiting for the database.
+ * When the executor queue is full or the request exceeds the timeout the status is 503.
+ *
+ * @author icode
+ */
+public abstract class AsyncModelResource<URI_ID, MODEL_ID, MODEL>
+        extends ModelResourceStructure<URI_ID, MODEL_ID, MODEL> {
+
+    /**
+     * <p>Constructor for AsyncModelResource.</p>
+     *
+     * @param modelType a {@link java.lang.Class} object.
+     */
+    public AsyncModelResource(Class<MODEL> modelType) {
+        this(modelType, (SpiEbeanServer) Ebean.getServer(null));
+    }
+
+    /**
+     * <p>Constructor for AsyncModelResource.</p>
+     *
+     * @param modelType a {@link java.lang.Class} object.
+     * @param server    a {@link io.ebeaninternal.api.SpiEbeanServer} object.
+     */
+    public AsyncModelResource(Class<MODEL> modelType, SpiEbeanServer server) {
+        super(modelType, server);
+    }
+
+    /**
+     * Insert a model.
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param model         the model to insert
+     * @see ModelResource#insert
+     */
+    @POST
+    public final void insert(@Suspended final AsyncResponse asyncResponse,
+                             @NotNull @Valid final MODEL model) {
+        executeAsync(asyncResponse, () -> super.insert(model));
+    }
+
+    /**
+     * Insert or upsert a JSON array of models.
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param input         the request body
+     * @param upsert        update the elements with an existing id instead of inserting them
+     * @see ModelResource#bulk
+     */
+    @POST
+    @Path("bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public final void bulk(@Suspended final AsyncResponse asyncResponse,
+                           @NotNull final InputStream input,
+                           @QueryParam("upsert") final boolean upsert) {
+        executeAsync(asyncResponse, () -> super.bulk(input, upsert));
+    }
+
+    /**
+     * replace or insert a model.
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id            the unique id of the model
+     * @param model         the model to update
+     * @see ModelResource#replace
+     */
+    @PUT
+    @Path("{id}")
+    public final void replace(@Suspended final AsyncResponse asyncResponse,
+                              @PathParam("id") final URI_ID id, @NotNull @Valid final MODEL model) {
+        executeAsync(asyncResponse, () -> super.replace(id, model));
+    }
+
+    /**
+     * Update a model items.
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id            the unique id of the model
+     * @param model         the model to update
+     * @see ModelResource#patch
+     */
+    @PATCH
+    @Path("{id}")
+    public final void patch(@Suspended final AsyncResponse asyncResponse,
+                            @PathParam("id") final URI_ID id, @NotNull final MODEL model) {
+        executeAsync(asyncResponse, () -> super.patch(id, model));
+    }
+
+    /**
+     * Delete multiple model using Id's from the Matrix.
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id            The id use for path matching type
+     * @param ids           The ids in the form "/resource/id1" or "/resource/id1;id2;id3"
+     * @param permanent     a boolean.
+     * @see ModelResource#deleteMultiple
+     */
+    @DELETE
+    @Path("{ids}")
+    public final void deleteMultiple(@Suspended final AsyncResponse asyncResponse,
+                                     @NotNull @PathParam("ids") final URI_ID id,
+                                     @NotNull @PathParam("ids") final PathSegment ids,
+                                     @QueryParam("permanent") final boolean permanent) {
+        executeAsync(asyncResponse, () -> super.deleteMultiple(id, ids, permanent));
+    }
+
+    /**
+     * Find a model or model list given its Ids.
+     *
+     * @param asyncResponse  a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id             The id use for path matching type
+     * @param ids            the id of the model.
+     * @param includeDeleted a boolean.
+     * @see ModelResource#findByIds
+     */
+    @GET
+    @Path("{ids}")
+    public final void findByIds(@Suspended final AsyncResponse asyncResponse,
+                                @NotNull @PathParam("ids") final URI_ID id,
+                                @NotNull @PathParam("ids") final PathSegment ids,
+                                @QueryParam("include_deleted") final boolean includeDeleted) {
+        executeAsync(asyncResponse, () -> super.findByIds(id, ids, includeDeleted));
+    }
+
+    /**
+     * Find the beans for this beanType.
+     *
+     * @param asyncResponse  a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param includeDeleted a boolean.
+     * @see ModelResource#find
+     */
+    @GET
+    public final void find(@Suspended final AsyncResponse asyncResponse,
+                           @QueryParam("include_deleted") final boolean includeDeleted) {
+        executeAsync(asyncResponse, () -> super.find(includeDeleted));
+    }
+
+    /**
+     * find model history between start to end timestamp versions
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id            model id
+     * @param start         start timestamp
+     * @param end           end timestamp
+     * @see ModelResource#fetchHistory(Object, Timestamp, Timestamp)
+     */
+    @GET
+    @Path("{id}/history/{start: " + DATE_REGEX + "}-{end: " + DATE_REGEX + "}")
+    public void fetchHistory(@Suspended final AsyncResponse asyncResponse,
+                             @PathParam("id") final URI_ID id,
+                             @PathParam("start") final Timestamp start,
+                             @PathParam("end") final Timestamp end) {
+        executeAsync(asyncResponse, () -> super.fetchHistory(id, start, end));
+    }
+
+    /**
+     * find history
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id            model id
+     * @see ModelResource#fetchHistory(Object)
+     */
+    @GET
+    @Path("{id}/history")
+    public void fetchHistory(@Suspended final AsyncResponse asyncResponse,
+                             @PathParam("id") final URI_ID id) {
+        executeAsync(asyncResponse, () -> super.fetchHistory(id));
+    }
+
+    /**
+     * find history as of timestamp
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param id            model id
+     * @param asOf          as of timestamp
+     * @see ModelResource#fetchHistoryAsOf
+     */
+    @GET
+    @Path("{id}/history/{asOf: " + DATE_REGEX + "}")
+    public void fetchHistoryAsOf(@Suspended final AsyncResponse asyncResponse,
+                                 @PathParam("id") final URI_ID id,
+                                 @PathParam("asOf") final Timestamp asOf) {
+        executeAsync(asyncResponse, () -> super.fetchHistoryAsOf(id, asOf));
+    }
+}
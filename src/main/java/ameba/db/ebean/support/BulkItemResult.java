@@ -0,0 +1,74 @@
+package ameba.db.ebean.support;
+
+import ameba.util.Result;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Result of one element of a bulk insert/upsert request.
+ *
+ * @author icode
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+    private final int index;
+    private final Status status;
+    private final Object id;
+    private final List<Result.Error> errors;
+
+    /**
+     * <p>Constructor for BulkItemResult.</p>
+     *
+     * @param index  index of the element in the request array
+     * @param status a {@link ameba.db.ebean.support.BulkItemResult.Status} object.
+     * @param id     a {@link java.lang.Object} object.
+     * @param errors a {@link java.util.List} object.
+     */
+    public BulkItemResult(int index, Status status, Object id, List<Result.Error> errors) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    /**
+     * <p>Getter for the field <code>index</code>.</p>
+     *
+     * @return a int.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * <p>Getter for the field <code>status</code>.</p>
+     *
+     * @return a {@link ameba.db.ebean.support.BulkItemResult.Status} object.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * <p>Getter for the field <code>id</code>.</p>
+     *
+     * @return a {@link java.lang.Object} object.
+     */
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * <p>Getter for the field <code>errors</code>.</p>
+     *
+     * @return a {@link java.util.List} object.
+     */
+    public List<Result.Error> getErrors() {
+        return errors;
+    }
+
+    public enum Status {
+        CREATED, UPDATED, INVALID, FAILED
+    }
+}
@@ -6,8 +6,10 @@ import io.ebeaninternal.api.SpiEbeanServer;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
 import java.sql.Timestamp;
 
 /**
@@ -58,6 +60,24 @@ public abstract class ModelResource<URI_ID, MODEL_ID, MODEL>
         return super.insert(model);
     }
 
+    /**
+     * Insert or upsert a JSON array of models.
+     * <p>
+     * success status 200, the entity is the result of each element
+     *
+     * @param input  the request body
+     * @param upsert update the elements with an existing id instead of inserting them
+     * @return a {@link javax.ws.rs.core.Response} object.
+     * @throws java.lang.Exception if any.
+     */
+    @POST
+    @Path("bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public final Response bulk(@NotNull final InputStream input,
+                               @QueryParam("upsert") final boolean upsert) throws Exception {
+        return super.bulk(input, upsert);
+    }
+
     /**
      * replace or insert a model.
      * <p>
@@ -1,15 +1,28 @@
 package ameba.db.ebean.support;
 
+import ameba.core.Requests;
+import ameba.db.DbExecutor;
 import ameba.db.ebean.EbeanUtils;
 import ameba.db.ebean.internal.ModelInterceptor;
+import ameba.db.ebean.internal.QueryCoalescer;
+import ameba.db.ebean.internal.ResponseCache;
+import ameba.db.ebean.internal.ResponseCacheInterceptor;
+import ameba.db.ebean.internal.VersionProperties;
 import ameba.exception.UnprocessableEntityException;
 import ameba.i18n.Messages;
 import ameba.lib.LoggerOwner;
+import ameba.util.Result;
+import ameba.validation.ValidationHelper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import io.ebean.*;
 import io.ebean.bean.EntityBean;
 import io.ebean.bean.EntityBeanIntercept;
+import io.ebean.text.json.JsonBeanReader;
+import io.ebean.text.json.JsonReadOptions;
 import io.ebeaninternal.api.SpiEbeanServer;
 import io.ebeaninternal.api.SpiQuery;
 import io.ebeaninternal.server.deploy.BeanDescriptor;
@@ -18,20 +31,44 @@ import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.internal.inject.InjectionManager;
 import org.glassfish.jersey.internal.util.collection.Ref;
 import org.glassfish.jersey.internal.util.collection.Refs;
+import org.glassfish.jersey.message.internal.HttpHeaderReader;
+import org.glassfish.jersey.process.internal.RequestContext;
+import org.glassfish.jersey.process.internal.RequestScope;
+import org.glassfish.jersey.server.internal.inject.ConfiguredValidator;
 
 import javax.inject.Inject;
 import javax.persistence.OptimisticLockException;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p>Abstract ModelResourceStructure class.</p>
@@ -41,11 +78,52 @@ import java.util.Set;
  */
 public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends LoggerOwner {
 
+    // the resources logged that readOnlyTransaction is ignored
+    private static final Set<Class<?>> REPLICAS_NOTED = Sets.newConcurrentHashSet();
     protected final SpiEbeanServer server;
     protected Class<MODEL> modelType;
     protected String defaultFindOrderBy;
+    /**
+     * elements of a bulk request per JDBC batch
+     */
+    protected int bulkBatchSize = 100;
+    /**
+     * elements of a bulk request per transaction, all elements in one transaction if not positive
+     */
+    protected int bulkTransactionSize = 0;
+    /**
+     * run the queries of the read paths in one read only transaction instead of without transaction,
+     * ignored if the server has read replicas, the queries then use the replicas
+     */
+    protected boolean readOnlyTransaction = false;
+    /**
+     * JDBC fetch size hint of the read paths, driver default if not positive
+     */
+    protected int queryFetchSize = 0;
+    /**
+     * share the list queries of concurrent identical find requests, disabled if null.
+     * resources are created per request, assign a shared instance. Only enable it when
+     * {@link #configFindQuery(Query, boolean)} does not depend on the caller.
+     * The query runs once without lazy loading, the requests share the JSON of the
+     * found models and each one reads its own copy, so lazy loaded properties are not
+     * available in {@link #processFoundModelList(List, boolean)}
+     */
+    protected QueryCoalescer findCoalescer;
+    /**
+     * cache the serialized responses of find and findByIds, needs model.response.cache.maxSize.
+     * Only enable it when the queries do not depend on the caller
+     */
+    protected boolean responseCacheable = false;
+    /**
+     * timeout of the asynchronous requests in milliseconds, the {@link DbExecutor} default if not positive
+     */
+    protected long asyncTimeout = 0;
     @Context
     protected UriInfo uriInfo;
+    @Context
+    protected Request request;
+    @Context
+    protected HttpHeaders httpHeaders;
     @Inject
     protected InjectionManager manager;
     private TxScope txScope = null;
@@ -127,6 +205,15 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         return descriptor;
     }
 
+    /**
+     * <p>getModelVersionProperties.</p>
+     *
+     * @return a {@link ameba.db.ebean.internal.VersionProperties} object.
+     */
+    protected VersionProperties getModelVersionProperties() {
+        return VersionProperties.of(getModelBeanDescriptor());
+    }
+
     /**
      * convert to id
      *
@@ -199,6 +286,7 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
             insertModel(model);
             postInsertModel(model);
         });
+        invalidateFound();
         MODEL_ID id = (MODEL_ID) this.server.getBeanId(model);
 
         return Response.created(buildLocationUri(id)).build();
@@ -244,6 +332,134 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
 
     }
 
+    /**
+     * Insert or upsert a JSON array of models.
+     * <p>
+     * The array is parsed element by element, each element is validated and the
+     * valid ones are written with JDBC batches of {@link #bulkBatchSize}. All
+     * elements are persisted in one transaction unless {@link #bulkTransactionSize}
+     * is positive, then every chunk of that many elements commits on its own and a
+     * failed chunk is rolled back and reported without stopping the request.
+     * </p>
+     * success status 200, the entity is a {@link BulkItemResult} list in request order
+     *
+     * @param input  the request body
+     * @param upsert update the elements with an existing id instead of inserting them
+     * @return a {@link javax.ws.rs.core.Response} object.
+     * @throws java.lang.Exception if any.
+     * @see javax.ws.rs.POST
+     * @see ModelResource#bulk
+     */
+    public Response bulk(@NotNull final InputStream input, final boolean upsert) throws Exception {
+        matchedBulk(upsert);
+        final List<BulkItemResult> results = Lists.newArrayList();
+        try (BulkReader reader = new BulkReader(input, results)) {
+            if (bulkTransactionSize > 0) {
+                List<BulkItem<MODEL>> items;
+                while (!(items = reader.next(bulkTransactionSize)).isEmpty()) {
+                    final List<BulkItem<MODEL>> chunk = items;
+                    final List<BulkItemResult> chunkResults = Lists.newArrayListWithCapacity(chunk.size());
+                    try {
+                        executeTx((TxRunnable) t -> persistBulk(t, chunk, upsert, chunkResults));
+                        results.addAll(chunkResults);
+                    } catch (Exception e) {
+                        logger().warn(Messages.get("info.bulk.chunk.failed", chunk.size()), e);
+                        List<Result.Error> errors = Collections.singletonList(new Result.Error(
+                                null, Messages.get("info.bulk.item.failed", e.getMessage())
+                        ));
+                        for (BulkItem<MODEL> item : chunk) {
+                            results.add(new BulkItemResult(item.index, BulkItemResult.Status.FAILED, null, errors));
+                        }
+                    }
+                }
+            } else {
+                executeTx(t -> {
+                    List<BulkItem<MODEL>> items;
+                    while (!(items = reader.next(bulkBatchSize)).isEmpty()) {
+                        persistBulk(t, items, upsert, results);
+                    }
+                });
+            }
+        }
+        invalidateFound();
+        results.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+        return Response.ok(results).build();
+    }
+
+    /**
+     * <p>matchedBulk.</p>
+     *
+     * @param upsert a boolean.
+     * @throws java.lang.Exception if any.
+     */
+    protected void matchedBulk(boolean upsert) throws Exception {
+
+    }
+
+    /**
+     * <p>configureBulkTransaction.</p>
+     *
+     * @param transaction a {@link io.ebean.Transaction} object.
+     */
+    protected void configureBulkTransaction(Transaction transaction) {
+        transaction.setBatchMode(true);
+        transaction.setBatchSize(bulkBatchSize);
+        transaction.setBatchGetGeneratedKeys(true);
+    }
+
+    /**
+     * persist the items with JDBC batches, the ids are collected after each batch is flushed
+     * so the beans are not retained longer than one batch
+     */
+    @SuppressWarnings("unchecked")
+    private void persistBulk(Transaction t, List<BulkItem<MODEL>> items,
+                             boolean upsert, List<BulkItemResult> results) throws Exception {
+        configureBulkTransaction(t);
+        for (List<BulkItem<MODEL>> batch : Lists.partition(items, Math.max(bulkBatchSize, 1))) {
+            Set<Object> existing = upsert ? findExistingIds(batch) : Collections.emptySet();
+            for (BulkItem<MODEL> item : batch) {
+                MODEL model = item.model;
+                Object id = server.getBeanId(model);
+                if (id != null && existing.contains(id)) {
+                    matchedReplace((MODEL_ID) id, model);
+                    EbeanUtils.forceUpdateAllProperties(server, model);
+                    preReplaceModel(model);
+                    replaceModel(model);
+                    postReplaceModel(model);
+                    item.status = BulkItemResult.Status.UPDATED;
+                } else {
+                    matchedInsert(model);
+                    if (!upsert) {
+                        setForInsertId(model);
+                    }
+                    preInsertModel(model);
+                    insertModel(model);
+                    postInsertModel(model);
+                    item.status = BulkItemResult.Status.CREATED;
+                }
+            }
+            t.flushBatch();
+            for (BulkItem<MODEL> item : batch) {
+                results.add(new BulkItemResult(item.index, item.status, server.getBeanId(item.model), null));
+                item.model = null;
+            }
+        }
+    }
+
+    private Set<Object> findExistingIds(List<BulkItem<MODEL>> batch) {
+        List<Object> ids = Lists.newArrayListWithCapacity(batch.size());
+        for (BulkItem<MODEL> item : batch) {
+            Object id = server.getBeanId(item.model);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Sets.newHashSet(server.find(modelType).setIncludeSoftDeletes().where().idIn(ids).findIds());
+    }
+
 
     /**
      * replace or insert a model.
@@ -268,6 +484,7 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
 
         final Response.ResponseBuilder builder = Response.noContent();
         executeTx(t -> {
+            checkWritePreconditions(mId);
             preReplaceModel(model);
             replaceModel(model);
             postReplaceModel(model);
@@ -278,6 +495,7 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
             postInsertModel(model);
             builder.status(Response.Status.CREATED).location(buildLocationUri(mId, true));
         });
+        invalidateFound();
         return builder.build();
     }
 
@@ -343,7 +561,8 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         descriptor.convertSetId(mId, (EntityBean) model);
         final Response.ResponseBuilder builder = Response.noContent()
                 .contentLocation(uriInfo.getAbsolutePath());
-        return executeTx(t -> {
+        Response response = executeTx(t -> {
+            checkWritePreconditions(mId);
             prePatchModel(model);
             patchModel(model);
             postPatchModel(model);
@@ -352,6 +571,8 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
             // id 无法对应数据。实体对象和补丁都正确，但无法处理请求，所以返回422
             return builder.status(422).build();
         });
+        invalidateFound();
+        return response;
     }
 
     /**
@@ -445,6 +666,7 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
                 postDeleteModel(firstId, p);
             }, failProcess);
         }
+        invalidateFound();
         return builder.build();
     }
 
@@ -561,25 +783,61 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
             idCollection.addAll(Collections2.transform(idSet, this::tryConvertId));
         }
         matchedFindByIds(firstId, idCollection, includeDeleted);
+        final ResponseCache responseCache = getResponseCache();
+        ResponseCache.Pending pending = null;
+        if (responseCache != null) {
+            Object key = responseCacheKey("ids", Lists.newArrayList(idCollection), includeDeleted);
+            ResponseCache.Entry cached = responseCache.get(key);
+            if (cached != null) {
+                return cachedResponse(cached);
+            }
+            pending = responseCache.pending(key, getModelBeanDescriptor());
+        }
+        final VersionProperties versions = getModelVersionProperties();
+        final Ref<EntityTag> tag = Refs.emptyRef();
+        final Ref<Date> lastModified = Refs.emptyRef();
+        if (versions.isSupported() && isConditionalRequest(HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE)) {
+            // evaluate with the id and version only, the model is not loaded if the client has it
+            List<MODEL> current = executeQuery(t ->
+                    versions.findVersions(server, modelType, idCollection, includeDeleted, false)
+            );
+            if (current.size() == idCollection.size()) {
+                tag.set(representationTag(current));
+                lastModified.set(lastModified(current));
+                Response.ResponseBuilder notModified = evaluatePreconditions(lastModified.get(), tag.get());
+                if (notModified != null) {
+                    return notModified.build();
+                }
+            }
+        }
         Object model;
         if (includeDeleted) {
             query.setIncludeSoftDeletes();
         }
         final TxRunnable configureQuery = t -> {
             configDefaultQuery(query);
+            applyReadHints(query);
             configFindByIdsQuery(query, includeDeleted);
             applyUriQuery(query, false);
         };
         if (!idSet.isEmpty()) {
-            model = executeTx(t -> {
+            model = executeQuery(t -> {
                 configureQuery.run(t);
                 List<MODEL> m = query.where().idIn(idCollection.toArray()).findList();
+                if (versions.isSupported() && tag.get() == null && m.size() == idCollection.size()) {
+                    tag.set(representationTag(m));
+                    lastModified.set(lastModified(m));
+                }
                 return processFoundByIdsModelList(m, includeDeleted);
             });
         } else {
-            model = executeTx(t -> {
+            model = executeQuery(t -> {
                 configureQuery.run(t);
                 MODEL m = query.setId(firstId).findOne();
+                if (versions.isSupported() && tag.get() == null && m != null) {
+                    tag.set(representationTag(Collections.singletonList(m)));
+                    lastModified.set(lastModified(Collections.singletonList(m)));
+                }
                 return processFoundByIdModel(m, includeDeleted);
             });
         }
@@ -587,7 +845,15 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         if (isEmptyEntity(model)) {
             throw new NotFoundException();
         }
-        return Response.ok(model).build();
+        Response.ResponseBuilder builder = Response.ok(model);
+        if (tag.get() != null) {
+            builder.tag(tag.get());
+        }
+        if (lastModified.get() != null) {
+            builder.lastModified(lastModified.get());
+        }
+        cacheResponse(pending);
+        return builder.build();
     }
 
     /**
@@ -658,6 +924,16 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
      */
     public Response find(@QueryParam("include_deleted") final boolean includeDeleted) throws Exception {
         matchedFind(includeDeleted);
+        final ResponseCache responseCache = getResponseCache();
+        ResponseCache.Pending pending = null;
+        if (responseCache != null) {
+            Object key = responseCacheKey("find", includeDeleted);
+            ResponseCache.Entry cached = responseCache.get(key);
+            if (cached != null) {
+                return cachedResponse(cached);
+            }
+            pending = responseCache.pending(key, getModelBeanDescriptor());
+        }
         final Query<MODEL> query = server.find(modelType);
 
         if (includeDeleted) {
@@ -666,24 +942,161 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
 
         defaultFindOrderBy(query);
 
+        if (isCoalescingFind()) {
+            FoundList found = findCoalescer.execute(findCoalescingKey(includeDeleted), () ->
+                    executeQuery(t -> {
+                        configDefaultQuery(query);
+                        applyReadHints(query);
+                        configFindQuery(query, includeDeleted);
+                        // the shared result is the JSON of the loaded properties only
+                        query.setDisableLazyLoading(true);
+                        FutureRowCount<?> rowCount = applyUriQuery(query);
+                        List<MODEL> list = query.findList();
+                        return new FoundList(server.json().toJson(list),
+                                ModelInterceptor.resolveRowCount(query, rowCount, list.size()));
+                    })
+            );
+            // every waiter reads its own beans
+            List<MODEL> list = server.json().toList(modelType, found.json);
+            Object entity = processFoundModelList(list, includeDeleted);
+            if (isEmptyEntity(entity)) {
+                return Response.noContent().build();
+            }
+            Response response = Response.ok(entity).build();
+            if (found.rowCount != null) {
+                response.getHeaders().putSingle(ModelInterceptor.getReqTotalCountHeaderName(), found.rowCount);
+            }
+            cacheResponse(pending);
+            return response;
+        }
+
         final Ref<FutureRowCount> rowCount = Refs.emptyRef();
+        final Ref<Integer> resultSize = Refs.of(-1);
 
-        Object entity = executeTx(t -> {
+        Object entity = executeQuery(t -> {
             configDefaultQuery(query);
+            applyReadHints(query);
             configFindQuery(query, includeDeleted);
             rowCount.set(applyUriQuery(query));
             List<MODEL> list = query.findList();
+            resultSize.set(list.size());
             return processFoundModelList(list, includeDeleted);
         });
 
         if (isEmptyEntity(entity)) {
+            cancelRowCount(rowCount.get());
             return Response.noContent().build();
         }
         Response response = Response.ok(entity).build();
-        applyRowCountHeader(response.getHeaders(), query, rowCount.get());
+        applyRowCountHeader(response.getHeaders(), query, rowCount.get(), resultSize.get());
+        cacheResponse(pending);
         return response;
     }
 
+    /**
+     * The find query can be shared when coalescing is enabled and no transaction is active,
+     * a query within a transaction may see its uncommitted changes.
+     *
+     * @return a boolean.
+     */
+    protected boolean isCoalescingFind() {
+        return findCoalescer != null && txScope == null && server.currentTransaction() == null;
+    }
+
+    /**
+     * The key of the find query, requests with an equal key share the query.
+     * <p>
+     * The query is built from the model type, the resource, the path parameters of a templated path
+     * and the query parameters (filter, sort, fields and paging), so the key is the sorted path and
+     * query parameters.
+     * Override it when the query depends on anything else, such as the current user.
+     *
+     * @param includeDeleted a boolean.
+     * @return a {@link java.lang.Object} object.
+     */
+    protected Object findCoalescingKey(boolean includeDeleted) {
+        return Arrays.asList(
+                getClass(),
+                modelType,
+                includeDeleted,
+                new TreeMap<>(uriInfo.getPathParameters()),
+                new TreeMap<>(uriInfo.getQueryParameters())
+        );
+    }
+
+    /**
+     * Drop the find results kept by the coalescer after the models were changed.
+     */
+    protected void invalidateFound() {
+        if (findCoalescer != null) {
+            findCoalescer.invalidateAll();
+        }
+        ResponseCache.modified(server, modelType);
+    }
+
+    /**
+     * The response cache to use, responses within a transaction are not cached.
+     *
+     * @return the cache or null
+     */
+    protected ResponseCache getResponseCache() {
+        if (!responseCacheable || txScope != null || server.currentTransaction() != null) {
+            return null;
+        }
+        return ResponseCache.of(server.getName());
+    }
+
+    /**
+     * The key of the cached response, built from the resource, the path parameters of a templated path,
+     * the query parameters and the acceptable media types.
+     * Override it when the response depends on anything else, such as the current user.
+     *
+     * @param parts the request parts of the endpoint
+     * @return a {@link java.lang.Object} object.
+     */
+    protected Object responseCacheKey(Object... parts) {
+        return Arrays.asList(
+                getClass(),
+                modelType,
+                Arrays.asList(parts),
+                new TreeMap<>(uriInfo.getPathParameters()),
+                new TreeMap<>(uriInfo.getQueryParameters()),
+                httpHeaders.getAcceptableMediaTypes()
+        );
+    }
+
+    /**
+     * <p>cachedResponse.</p>
+     *
+     * @param cached a {@link ameba.db.ebean.internal.ResponseCache.Entry} object.
+     * @return a {@link javax.ws.rs.core.Response} object.
+     */
+    protected Response cachedResponse(ResponseCache.Entry cached) {
+        Object tag = cached.getHeaders().get(HttpHeaders.ETAG);
+        Object lastModified = cached.getHeaders().get(HttpHeaders.LAST_MODIFIED);
+        Response.ResponseBuilder notModified = evaluatePreconditions(
+                lastModified instanceof Date ? (Date) lastModified : null,
+                tag instanceof EntityTag ? (EntityTag) tag : null
+        );
+        if (notModified != null) {
+            return notModified.build();
+        }
+        Response.ResponseBuilder builder = Response.ok(cached.getBody(), cached.getMediaType());
+        cached.getHeaders().forEach(builder::header);
+        return builder.build();
+    }
+
+    /**
+     * Cache the response once it was serialized.
+     *
+     * @param pending a {@link ameba.db.ebean.internal.ResponseCache.Pending} object, may be null
+     */
+    protected void cacheResponse(ResponseCache.Pending pending) {
+        if (pending != null) {
+            Requests.setProperty(ResponseCacheInterceptor.PENDING_PROPERTY, pending);
+        }
+    }
+
     /**
      * <p>matchedFind.</p>
      *
@@ -760,8 +1173,9 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         defaultFindOrderBy(query);
 
         final Ref<FutureRowCount> rowCount = Refs.emptyRef();
-        Object entity = executeTx(t -> {
+        Object entity = executeQuery(t -> {
             configDefaultQuery(query);
+            applyReadHints(query);
             configFetchHistoryQuery(query, mId, start, end);
             applyUriQuery(query, false);
             applyPageConfig(query);
@@ -840,8 +1254,9 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         defaultFindOrderBy(query);
 
         final Ref<FutureRowCount> rowCount = Refs.emptyRef();
-        Object entity = executeTx(t -> {
+        Object entity = executeQuery(t -> {
             configDefaultQuery(query);
+            applyReadHints(query);
             configFetchHistoryQuery(query, mId);
             applyUriQuery(query, false);
             applyPageConfig(query);
@@ -909,8 +1324,9 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
 
         defaultFindOrderBy(query);
 
-        Object entity = executeTx(t -> {
+        Object entity = executeQuery(t -> {
             configDefaultQuery(query);
+            applyReadHints(query);
             configFetchHistoryAsOfQuery(query, mId, asOf);
             applyUriQuery(query, false);
             MODEL model = query.asOf(asOf).setId(mId).findOne();
@@ -981,6 +1397,142 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
     /////////////////////////////////////////////////////////////////////////////////////////////////////////
     /////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * <p>isConditionalRequest.</p>
+     *
+     * @param headers the conditional header names
+     * @return true if the request has any of the headers
+     */
+    protected boolean isConditionalRequest(String... headers) {
+        for (String header : headers) {
+            if (httpHeaders.getHeaderString(header) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>evaluatePreconditions.</p>
+     *
+     * @param lastModified a {@link java.util.Date} object, may be null
+     * @param tag          a {@link javax.ws.rs.core.EntityTag} object, may be null
+     * @return null if the preconditions are met, otherwise the response builder
+     */
+    protected Response.ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag tag) {
+        if (lastModified != null && tag != null) {
+            return request.evaluatePreconditions(lastModified, tag);
+        } else if (tag != null) {
+            return request.evaluatePreconditions(tag);
+        } else if (lastModified != null) {
+            return request.evaluatePreconditions(lastModified);
+        }
+        return null;
+    }
+
+    /**
+     * The entity tag of the stored versions of the models, null if the versions are not loaded.
+     *
+     * @param models the models with the version properties loaded
+     * @return a {@link javax.ws.rs.core.EntityTag} object.
+     * @see #representationTag(Collection)
+     */
+    protected EntityTag entityTag(Collection<MODEL> models) {
+        return getModelVersionProperties().entityTag(server, models);
+    }
+
+    /**
+     * The entity tag of the response body, the body changes with the query string
+     * (fields, filter) and the media type, so each representation gets its own strong tag.
+     * <p>
+     * The tag starts with the {@link #entityTag(Collection) tag of the stored versions},
+     * so the tag of any GET of a model is accepted by the If-Match of its update.
+     *
+     * @param models the models with the version properties loaded
+     * @return a {@link javax.ws.rs.core.EntityTag} object.
+     */
+    protected EntityTag representationTag(Collection<MODEL> models) {
+        return VersionProperties.variantTag(entityTag(models), representationVariant());
+    }
+
+    /**
+     * The representation variant of the response body, the sorted query parameters and the
+     * acceptable media types.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    protected String representationVariant() {
+        return new TreeMap<>(uriInfo.getQueryParameters()) + ";" + httpHeaders.getAcceptableMediaTypes();
+    }
+
+    /**
+     * The last modification time of the stored models, null if not versioned by a timestamp.
+     *
+     * @param models the models with the version properties loaded
+     * @return a {@link java.util.Date} object.
+     */
+    protected Date lastModified(Collection<MODEL> models) {
+        return getModelVersionProperties().lastModified(models);
+    }
+
+    /**
+     * Evaluate the conditional headers of a read against the representation of the stored models.
+     *
+     * @param current the stored models with the version properties loaded
+     * @return null if the preconditions are met, otherwise the 304 or 412 response builder
+     */
+    protected Response.ResponseBuilder evaluatePreconditions(Collection<MODEL> current) {
+        return evaluatePreconditions(lastModified(current), representationTag(current));
+    }
+
+    /**
+     * Evaluate the conditional headers of a write against the stored versions of the models,
+     * the If-Match tag of any representation of the stored versions is accepted.
+     *
+     * @param current the stored models with the version properties loaded
+     * @return null if the preconditions are met, otherwise the 412 response builder
+     */
+    protected Response.ResponseBuilder evaluateWritePreconditions(Collection<MODEL> current) {
+        EntityTag tag = entityTag(current);
+        String ifMatch = httpHeaders.getHeaderString(HttpHeaders.IF_MATCH);
+        if (tag != null && ifMatch != null) {
+            try {
+                for (EntityTag matching : HttpHeaderReader.readMatchingEntityTag(ifMatch)) {
+                    if (VersionProperties.isVariantOf(matching, tag)) {
+                        tag = new EntityTag(matching.getValue());
+                        break;
+                    }
+                }
+            } catch (ParseException e) {
+                // evaluated with the stored tag
+            }
+        }
+        return evaluatePreconditions(lastModified(current), tag);
+    }
+
+    /**
+     * Check the If-Match and If-Unmodified-Since headers against the stored model,
+     * the row is locked until the transaction ends.
+     *
+     * @param id a MODEL_ID object.
+     * @throws javax.ws.rs.WebApplicationException response status 412 if the preconditions failed
+     */
+    protected void checkWritePreconditions(MODEL_ID id) {
+        VersionProperties versions = getModelVersionProperties();
+        if (!versions.isSupported()
+                || !isConditionalRequest(HttpHeaders.IF_MATCH, HttpHeaders.IF_UNMODIFIED_SINCE)) {
+            return;
+        }
+        List<MODEL> current = versions.findVersions(server, modelType, Collections.singleton(id), false, true);
+        if (current.isEmpty()) {
+            throw new WebApplicationException(Response.Status.PRECONDITION_FAILED);
+        }
+        Response.ResponseBuilder failed = evaluateWritePreconditions(current);
+        if (failed != null) {
+            throw new WebApplicationException(failed.build());
+        }
+    }
+
     /**
      * <p>isEmptyEntity.</p>
      *
@@ -1043,6 +1595,30 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         ModelInterceptor.applyRowCountHeader(headerParams, query, rowCount);
     }
 
+    /**
+     * <p>applyRowCountHeader.</p>
+     *
+     * @param headerParams a {@link javax.ws.rs.core.MultivaluedMap} object.
+     * @param query        a {@link io.ebean.Query} object.
+     * @param rowCount     a {@link io.ebean.FutureRowCount} object.
+     * @param resultSize   rows of the fetched page, negative if unknown
+     */
+    protected void applyRowCountHeader(MultivaluedMap<String, Object> headerParams, Query<?> query,
+                                       FutureRowCount<?> rowCount, int resultSize) {
+        ModelInterceptor.applyRowCountHeader(headerParams, query, rowCount, resultSize);
+    }
+
+    /**
+     * Cancel the count query if the count is not needed.
+     *
+     * @param rowCount a {@link io.ebean.FutureRowCount} object, may be null
+     */
+    protected void cancelRowCount(FutureRowCount<?> rowCount) {
+        if (rowCount != null) {
+            rowCount.cancel(true);
+        }
+    }
+
     /**
      * <p>processTransactionError.</p>
      *
@@ -1113,6 +1689,130 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
         } : null);
     }
 
+    /**
+     * The executor of the asynchronous requests.
+     *
+     * @return the executor of the server or null
+     */
+    protected DbExecutor getDbExecutor() {
+        return DbExecutor.of(server.getName());
+    }
+
+    /**
+     * Run the request on the {@link DbExecutor} of the server and resume the response
+     * with its result, the container thread is not held while the database work is queued
+     * or running. A full queue or a timeout is responded with 503.
+     * <p>
+     * The request runs in the request scope, the injected request context is available.
+     *
+     * @param asyncResponse a {@link javax.ws.rs.container.AsyncResponse} object.
+     * @param c             builds the response
+     */
+    protected void executeAsync(final AsyncResponse asyncResponse, final Callable<Response> c) {
+        final DbExecutor executor = getDbExecutor();
+        if (executor == null) {
+            resume(asyncResponse, c);
+            return;
+        }
+        final RequestScope scope = manager.getInstance(RequestScope.class);
+        final RequestContext context = scope.referenceCurrent();
+        final AtomicBoolean started = new AtomicBoolean();
+        final Ref<Future<?>> future = Refs.emptyRef();
+        long timeout = asyncTimeout > 0 ? asyncTimeout : executor.getTimeout();
+        if (timeout > 0) {
+            asyncResponse.setTimeoutHandler(r -> {
+                executor.timedOut();
+                if (started.compareAndSet(false, true)) {
+                    // still queued, drop it
+                    if (future.get() != null) future.get().cancel(false);
+                    context.release();
+                }
+                r.resume(new ServiceUnavailableException(
+                        Messages.get("info.db.executor.timeout", executor.getName())
+                ));
+            });
+            asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
+        try {
+            future.set(executor.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    scope.runInScope(context, () -> resume(asyncResponse, c));
+                } finally {
+                    context.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            if (started.compareAndSet(false, true)) {
+                context.release();
+            }
+            asyncResponse.resume(new ServiceUnavailableException(
+                    Messages.get("info.db.executor.busy", executor.getName())
+            ));
+        }
+    }
+
+    private void resume(AsyncResponse asyncResponse, Callable<Response> c) {
+        try {
+            asyncResponse.resume(c.call());
+        } catch (Throwable e) {
+            asyncResponse.resume(e);
+        }
+    }
+
+    /**
+     * Execute read only queries.
+     * <p>
+     * If a transaction is in scope or a transaction scope was set on this resource it is the
+     * same as {@link #executeTx(TxCallable)}. Otherwise the queries run without an explicit
+     * transaction and the transaction argument is null, each query holds a connection only
+     * while it runs and uses the read replicas if the server has them. With
+     * {@link #readOnlyTransaction} the queries share one JDBC read only transaction instead,
+     * unless the server has read replicas: they take precedence, as a transaction would run
+     * the queries on the primary.
+     * </p>
+     *
+     * @param c   a {@link ameba.db.ebean.support.ModelResourceStructure.TxCallable} object.
+     * @param <O> a O object.
+     * @return a O object.
+     * @throws java.lang.Exception if any.
+     */
+    protected <O> O executeQuery(TxCallable<O> c) throws Exception {
+        if (txScope != null || server.currentTransaction() != null) {
+            return executeTx(c);
+        }
+        if (!readOnlyTransaction) {
+            return c.call(null);
+        }
+        if (server.getTransactionManager().getReadOnlyDataSource() != null) {
+            if (REPLICAS_NOTED.add(getClass())) {
+                logger().info(Messages.get("info.db.query.replicas", server.getName(), getClass().getName()));
+            }
+            return c.call(null);
+        }
+        Transaction transaction = server.beginTransaction(TxScope.required().setReadOnly(true));
+        try {
+            O o = c.call(transaction);
+            transaction.commit();
+            return o;
+        } finally {
+            transaction.end();
+        }
+    }
+
+    /**
+     * <p>applyReadHints.</p>
+     *
+     * @param query a {@link io.ebean.Query} object.
+     */
+    protected void applyReadHints(Query<MODEL> query) {
+        if (queryFetchSize > 0) {
+            query.setBufferFetchSizeHint(queryFetchSize);
+        }
+    }
+
     /**
      * <p>beginTransaction.</p>
      *
@@ -1218,4 +1918,82 @@ public abstract class ModelResourceStructure<URI_ID, MODEL_ID, MODEL> extends Lo
     protected interface TxCallable<O> {
         O call(Transaction transaction) throws Exception;
     }
+
+    private static class BulkItem<MODEL> {
+        private final int index;
+        private MODEL model;
+        private BulkItemResult.Status status;
+
+        private BulkItem(int index, MODEL model) {
+            this.index = index;
+            this.model = model;
+        }
+    }
+
+    /**
+     * read the elements of the bulk request array, invalid elements are reported and skipped
+     */
+    private class BulkReader implements AutoCloseable {
+        private final JsonParser parser;
+        private final List<BulkItemResult> results;
+        private final ConfiguredValidator validator;
+        private int index = 0;
+        private boolean end = false;
+
+        private BulkReader(InputStream input, List<BulkItemResult> results) throws IOException {
+            this.parser = server.json().createParser(new InputStreamReader(input, StandardCharsets.UTF_8));
+            this.results = results;
+            this.validator = manager.getInstance(ConfiguredValidator.class);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new UnprocessableEntityException(Messages.get("info.bulk.unprocessable.entity"));
+            }
+        }
+
+        private List<BulkItem<MODEL>> next(int size) {
+            if (end) {
+                return Collections.emptyList();
+            }
+            // a new reader per chunk, the persistence context of the reader does not grow with the request
+            JsonBeanReader<MODEL> reader = server.json().createBeanReader(modelType, parser, new JsonReadOptions());
+            List<BulkItem<MODEL>> items = Lists.newArrayListWithCapacity(Math.min(size, 1024));
+            while (items.size() < size) {
+                MODEL model = reader.read();
+                if (model == null) {
+                    if (parser.getCurrentToken() == JsonToken.END_ARRAY) {
+                        end = true;
+                        break;
+                    }
+                    results.add(new BulkItemResult(index++, BulkItemResult.Status.INVALID, null, null));
+                    continue;
+                }
+                int i = index++;
+                Set<ConstraintViolation<MODEL>> violations = validator == null
+                        ? Collections.emptySet() : validator.validate(model);
+                if (violations.isEmpty()) {
+                    items.add(new BulkItem<>(i, model));
+                } else {
+                    results.add(new BulkItemResult(i, BulkItemResult.Status.INVALID, null,
+                            Lists.newArrayList(ValidationHelper.constraintViolationToValidationErrors(
+                                    new ConstraintViolationException(violations)
+                            ))));
+                }
+            }
+            return items;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    private static class FoundList {
+        private final String json;
+        private final Integer rowCount;
+
+        private FoundList(String json, Integer rowCount) {
+            this.json = json;
+            this.rowCount = rowCount;
+        }
+    }
 }
@@ -5,7 +5,7 @@ import ameba.db.DataSourceManager;
 import ameba.db.migration.flyway.DatabaseMigrationResolver;
 import ameba.db.migration.resources.MigrationResource;
 import ameba.i18n.Messages;
-import com.google.common.collect.Lists;
+import ameba.inject.LazyProvider;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.flywaydb.core.Flyway;
@@ -16,11 +16,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Feature;
 import javax.ws.rs.core.FeatureContext;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * <p>MigrationFeature class.</p>
@@ -74,45 +76,51 @@ public class MigrationFeature implements Feature {
     public boolean configure(FeatureContext context) {
         generateMigrationId();
         Map<String, Object> properties = context.getConfiguration().getProperties();
-        List<Migration> migrations = Lists.newArrayList();
-        DataSourceManager.getDataSourceNames()
+        List<String> dbNames = DataSourceManager.getDataSourceNames()
                 .stream()
                 .filter(dbName -> !"false".equals(properties.get("db." + dbName + ".migration.enabled")))
-                .forEach(dbName -> {
-                    Flyway flyway = new Flyway();
-                    flyway.setDataSource(DataSourceManager.getDataSource(dbName));
-                    flyway.setBaselineOnMigrate(true);
-                    bindFlyway(dbName, flyway);
-                    Migration migration = locator.getService(Migration.class, dbName);
-                    migrations.add(migration);
-                    flyway.setResolvers(new DatabaseMigrationResolver(migration));
-                });
-
-        if (!migrations.isEmpty()) {
-            context.register(MigrationFilter.class);
-        }
+                .collect(Collectors.toList());
 
-        context.register(MigrationResource.class);
+        // the flyway is built on the first request or injection
+        for (String dbName : dbNames) {
+            bindFlyway(dbName, LazyProvider.create(() -> createFlyway(dbName)));
+        }
 
+        // the one-time url must be in the startup log
         if (!mode.isDev()) {
-            for (Migration migration : migrations) {
-                if (migration.hasChanged()) {
-                    logger.warn(Messages.get("warn.app.database.migration", "@db/migration/" + MIGRATION_ID));
+            for (String dbName : dbNames) {
+                if (locator.getService(Migration.class, dbName).hasChanged()) {
+                    logger.warn(Messages.get("warn.app.database.migration",
+                            MigrationResource.MIGRATION_BASE_URI + MIGRATION_ID));
                     break;
                 }
             }
         }
 
+        if (!dbNames.isEmpty()) {
+            context.register(MigrationFilter.class);
+        }
+
+        context.register(MigrationResource.class);
+
         return true;
     }
 
-    private void bindFlyway(final String name, final Flyway flyway) {
+    private Flyway createFlyway(String dbName) {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(DataSourceManager.getDataSource(dbName));
+        flyway.setBaselineOnMigrate(true);
+        flyway.setResolvers(new DatabaseMigrationResolver(locator.getService(Migration.class, dbName)));
+        return flyway;
+    }
+
+    private void bindFlyway(final String name, final LazyProvider<Flyway> flyway) {
         ServiceLocatorUtilities.bind(locator, new AbstractBinder() {
             @Override
             protected void configure() {
-                bind(flyway).to(Flyway.class).named(name).proxy(false);
+                bindFactory(flyway).to(Flyway.class).named(name).in(Singleton.class);
                 if (name.equals(DataSourceManager.getDefaultDataSourceName())) {
-                    bind(flyway).to(Flyway.class).proxy(false);
+                    bindFactory(flyway).to(Flyway.class).in(Singleton.class);
                 }
             }
         });
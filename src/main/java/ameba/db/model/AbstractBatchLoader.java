@@ -0,0 +1,185 @@
+package ameba.db.model;
+
+import ameba.core.Requests;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Base of the {@link BatchLoader}s, keeps the loaded models and the queued ids.
+ * <p>
+ * The queued ids are loaded in batches of at most {@link #getMaxBatchSize()} ids.
+ *
+ * @param <ID> id type
+ * @param <T>  model type
+ * @author icode
+ */
+public abstract class AbstractBatchLoader<ID, T> implements BatchLoader<ID, T> {
+    /**
+     * Constant <code>MAX_BATCH_SIZE=500</code>
+     */
+    public static final int MAX_BATCH_SIZE = 500;
+    private static final String PROPERTY_PREFIX = BatchLoader.class.getName() + ".";
+
+    private final Map<Object, T> loaded = Maps.newHashMap();
+    private final Set<Object> missing = Sets.newHashSet();
+    private final Set<Object> queued = Sets.newLinkedHashSet();
+
+    /**
+     * Get the loader of the current request, outside a request a new loader is returned.
+     *
+     * @param key     the key of the loader in the request
+     * @param factory create the loader
+     * @param <L>     loader type
+     * @return the loader
+     */
+    protected static <L extends BatchLoader<?, ?>> L scoped(String key, Supplier<L> factory) {
+        if (!Requests.isInScope()) {
+            return factory.get();
+        }
+        String name = PROPERTY_PREFIX + key;
+        L loader = Requests.getProperty(name);
+        if (loader == null) {
+            loader = factory.get();
+            Requests.setProperty(name, loader);
+        }
+        return loader;
+    }
+
+    /**
+     * The key of the id, ids with the same key are loaded once.
+     *
+     * @param id a ID object.
+     * @return the key
+     */
+    protected Object key(ID id) {
+        return id;
+    }
+
+    /**
+     * Load the models of a batch.
+     *
+     * @param keys the keys of the ids, at most {@link #getMaxBatchSize()}
+     * @return the found models by key
+     */
+    protected abstract Map<?, T> load(List<Object> keys);
+
+    /**
+     * A reference of the model not loaded yet.
+     *
+     * @param key the key of the id
+     * @return a T object.
+     */
+    protected abstract T reference(Object key);
+
+    /**
+     * <p>getMaxBatchSize.</p>
+     *
+     * @return the max ids of a query
+     */
+    protected int getMaxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SafeVarargs
+    public final synchronized void prime(ID... ids) {
+        for (ID id : ids) {
+            Object key = key(id);
+            if (!loaded.containsKey(key) && !missing.contains(key)) {
+                queued.add(key);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized T byId(ID id) {
+        Object key = key(id);
+        T model = loaded.get(key);
+        if (model == null && !missing.contains(key)) {
+            queued.add(key);
+            loadQueued();
+            model = loaded.get(key);
+        }
+        return model;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<T> byIds(Collection<ID> ids) {
+        List<Object> keys = Lists.newArrayListWithCapacity(ids.size());
+        for (ID id : ids) {
+            Object key = key(id);
+            keys.add(key);
+            if (!loaded.containsKey(key) && !missing.contains(key)) {
+                queued.add(key);
+            }
+        }
+        loadQueued();
+        List<T> models = Lists.newArrayListWithCapacity(keys.size());
+        Set<Object> seen = Sets.newHashSet();
+        for (Object key : keys) {
+            T model = loaded.get(key);
+            if (model != null && seen.add(key)) {
+                models.add(model);
+            }
+        }
+        return models;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized T ref(ID id) {
+        Object key = key(id);
+        T model = loaded.get(key);
+        if (model == null) {
+            if (!missing.contains(key)) {
+                queued.add(key);
+            }
+            model = reference(key);
+        }
+        return model;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        loaded.clear();
+        missing.clear();
+        queued.clear();
+    }
+
+    private void loadQueued() {
+        if (queued.isEmpty()) {
+            return;
+        }
+        for (List<Object> batch : Iterables.partition(queued, getMaxBatchSize())) {
+            loaded.putAll(load(batch));
+            for (Object key : batch) {
+                if (!loaded.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+        queued.clear();
+    }
+}
@@ -0,0 +1,55 @@
+package ameba.db.model;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Request scoped loader which coalesces id lookups into batched queries.
+ * <p>
+ * Ids requested in the same request are deduplicated, the ids queued with
+ * {@link #prime(Object[])} or {@link #ref(Object)} are loaded together with the next
+ * lookup and the loaded models are kept until the request ends.
+ *
+ * @param <ID> id type
+ * @param <T>  model type
+ * @author icode
+ */
+public interface BatchLoader<ID, T> {
+
+    /**
+     * Queue ids to load with the next lookup.
+     *
+     * @param ids ids
+     */
+    @SuppressWarnings("unchecked")
+    void prime(ID... ids);
+
+    /**
+     * Retrieves an entity by ID, queued ids are loaded in the same query.
+     *
+     * @param id a ID object.
+     * @return the model or null if not found
+     */
+    T byId(ID id);
+
+    /**
+     * Retrieves entities by IDs with one query for the ids not loaded yet.
+     *
+     * @param ids a {@link java.util.Collection} object.
+     * @return found models in the order of the ids
+     */
+    List<T> byIds(Collection<ID> ids);
+
+    /**
+     * Return the loaded entity, or queue the ID and return a reference.
+     *
+     * @param id a ID object.
+     * @return a T object.
+     */
+    T ref(ID id);
+
+    /**
+     * Forget the loaded entities, such as after they were updated.
+     */
+    void clear();
+}
@@ -104,6 +104,19 @@ public abstract class Finder<ID, T> {
      */
     public abstract <M extends T> M ref(ID id);
 
+    /**
+     * Request scoped loader which batches the byId and ref lookups of this model type.
+     * <p>
+     * The default loader loads the ids with {@code idIn} queries of {@link #createQuery()}.
+     *
+     * @return a {@link ameba.db.model.BatchLoader} object.
+     * @param <M> a M object.
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends T> BatchLoader<ID, M> batch() {
+        return (BatchLoader<ID, M>) FinderBatchLoader.of(this);
+    }
+
     /**
      * Creates a filter for sorting and filtering lists of entities locally without going back to the database.
      *
@@ -0,0 +1,42 @@
+package ameba.db.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BatchLoader} of a {@link Finder}, the ids are loaded with {@code idIn} queries
+ * mapped by id.
+ *
+ * @param <ID> id type
+ * @param <T>  model type
+ * @author icode
+ */
+class FinderBatchLoader<ID, T> extends AbstractBatchLoader<ID, T> {
+    private final Finder<ID, T> finder;
+
+    FinderBatchLoader(Finder<ID, T> finder) {
+        this.finder = finder;
+    }
+
+    static <ID, T> FinderBatchLoader<ID, T> of(Finder<ID, T> finder) {
+        return scoped(finder.getServerName() + "." + finder.getModelType().getName(),
+                () -> new FinderBatchLoader<>(finder));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Map<?, T> load(List<Object> keys) {
+        return finder.createQuery().where().idIn(keys.toArray()).findMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T reference(Object key) {
+        return finder.ref((ID) key);
+    }
+}
@@ -41,6 +41,14 @@ public class ModelManager extends Addon {
         return modelMap.get(name);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Class<? extends Addon>> getDependencies() {
+        return Collections.singleton(DataSourceManager.class);
+    }
+
     /**
      * {@inheritDoc}
      */
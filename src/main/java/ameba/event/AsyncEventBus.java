@@ -1,5 +1,6 @@
 package ameba.event;
 
+import ameba.container.ShutdownCoordinator;
 import ameba.container.event.ShutdownEvent;
 import co.paralleluniverse.actors.behaviors.EventHandler;
 import co.paralleluniverse.actors.behaviors.EventSource;
@@ -7,11 +8,14 @@ import co.paralleluniverse.actors.behaviors.EventSourceActor;
 import co.paralleluniverse.fibers.RuntimeSuspendExecution;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Abstract AsyncEventBus class.</p>
@@ -22,6 +26,11 @@ public class AsyncEventBus<Event extends ameba.event.Event> implements EventBus<
     private static final Logger logger = LoggerFactory.getLogger(AsyncEventBus.class);
 
     private final Map<Class<? extends Event>, EventSource<? extends Event>> eventSourceMap = Maps.newConcurrentMap();
+    /**
+     * handlers of each event class, the handler calls in flight are awaited by the shutdown
+     */
+    private final Multiset<Class<? extends Event>> handlerCounts = ConcurrentHashMultiset.create();
+    private final Map<Class<?>, AtomicInteger> pendingMap = Maps.newConcurrentMap();
 
     @SuppressWarnings("unchecked")
     protected AsyncEventBus() {
@@ -37,9 +46,11 @@ public class AsyncEventBus<Event extends ameba.event.Event> implements EventBus<
     @SuppressWarnings("unchecked")
     public <E extends Event> void subscribe(Class<E> event, Listener<E> listener) {
         try {
-            eventSourceMap.computeIfAbsent(
+            if (eventSourceMap.computeIfAbsent(
                     event, k -> new EventSourceActor<E>(AsyncEventBus.class.getName()).spawn()
-            ).addHandler(handler(event, listener));
+            ).addHandler(handler(event, listener))) {
+                handlerCounts.add(event);
+            }
         } catch (SuspendExecution e) {
             throw RuntimeSuspendExecution.of(e);
         } catch (Exception e) {
@@ -58,7 +69,9 @@ public class AsyncEventBus<Event extends ameba.event.Event> implements EventBus<
         EventSource<? extends Event> eventSource = eventSourceMap.get(event);
         if (eventSource != null) {
             try {
-                eventSource.removeHandler(handler(event, listener));
+                if (eventSource.removeHandler(handler(event, listener))) {
+                    handlerCounts.remove(event);
+                }
             } catch (SuspendExecution e) {
                 throw RuntimeSuspendExecution.of(e);
             } catch (InterruptedException e) {
@@ -70,6 +83,8 @@ public class AsyncEventBus<Event extends ameba.event.Event> implements EventBus<
     @Override
     public <E extends Event> void unsubscribe(Class<E> event) {
         EventSource eventSource = eventSourceMap.remove(event);
+        handlerCounts.setCount(event, 0);
+        discardPending(pendingMap.remove(event));
         if (eventSource != null) {
             eventSource.shutdown();
         }
@@ -83,9 +98,15 @@ public class AsyncEventBus<Event extends ameba.event.Event> implements EventBus<
             EventSource<Event> eventSource = (EventSource<Event>) eventSourceMap.get(event.getClass());
 
             if (eventSource != null) {
+                int handlers = handlerCounts.count(event.getClass());
+                AtomicInteger pending = pending(event.getClass());
+                pending.addAndGet(handlers);
+                ShutdownCoordinator.asyncStarted(handlers);
                 try {
                     eventSource.notify(event);
                 } catch (SuspendExecution e) {
+                    pending.addAndGet(-handlers);
+                    ShutdownCoordinator.asyncStarted(-handlers);
                     throw RuntimeSuspendExecution.of(e);
                 }
             }
@@ -97,25 +118,48 @@ public class AsyncEventBus<Event extends ameba.event.Event> implements EventBus<
      */
     public void shutdown() {
         eventSourceMap.values().forEach(EventSource::shutdown);
+        pendingMap.values().forEach(this::discardPending);
+    }
+
+    private AtomicInteger pending(Class<?> event) {
+        return pendingMap.computeIfAbsent(event, k -> new AtomicInteger());
+    }
+
+    /**
+     * the queued events of a shut down source are never handled
+     */
+    private void discardPending(AtomicInteger pending) {
+        if (pending != null) {
+            ShutdownCoordinator.asyncStarted(-pending.getAndSet(0));
+        }
     }
 
     private <E extends Event> EventHandler handler(Class<E> event, Listener<E> listener) {
-        return new Handler<>(event, listener);
+        return new Handler<>(event, listener, pending(event));
     }
 
     private class Handler<E extends ameba.event.Event> implements EventHandler<E> {
 
         private Class<E> event;
         private Listener<E> listener;
+        private AtomicInteger pending;
 
-        Handler(Class<E> event, Listener<E> listener) {
+        Handler(Class<E> event, Listener<E> listener, AtomicInteger pending) {
             this.event = event;
             this.listener = listener;
+            this.pending = pending;
         }
 
         @Override
         public void handleEvent(E event) {
-            listener.onReceive(event);
+            try {
+                listener.onReceive(event);
+            } finally {
+                // not counted anymore if discarded meanwhile
+                if (pending.getAndUpdate(count -> count > 0 ? count - 1 : count) > 0) {
+                    ShutdownCoordinator.asyncFinished();
+                }
+            }
         }
 
         @Override
@@ -1,9 +1,13 @@
 package ameba.event;
 
-import ameba.container.event.ShutdownEvent;
+import ameba.container.ShutdownCoordinator;
+import ameba.container.event.ShutdownPhaseEvent;
 
 /**
  * <p>SystemEventBus class.</p>
+ * <p>
+ * The bus is reset when the shutdown is done, so the phases after the
+ * {@link ameba.container.event.ShutdownEvent} are still published.
  *
  * @author icode
  */
@@ -20,9 +24,11 @@ public class SystemEventBus {
 
     private static void init() {
         EVENT_BUS = EventBus.createMix();
-        EVENT_BUS.subscribe(ShutdownEvent.class, event -> {
-            synchronized (SystemEventBus.class) {
-                EVENT_BUS = null;
+        EVENT_BUS.subscribe(ShutdownPhaseEvent.class, event -> {
+            if (((ShutdownPhaseEvent) event).getPhase() == ShutdownCoordinator.Phase.DONE) {
+                synchronized (SystemEventBus.class) {
+                    EVENT_BUS = null;
+                }
             }
         });
     }
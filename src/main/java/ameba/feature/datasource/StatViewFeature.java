@@ -1,5 +1,6 @@
 package ameba.feature.datasource;
 
+import ameba.inject.LazyProvider;
 import com.alibaba.druid.stat.DruidStatService;
 import com.alibaba.druid.util.Utils;
 import com.google.common.collect.Maps;
@@ -81,18 +82,20 @@ public class StatViewFeature implements Feature {
      */
     private static String jmxPassword = null;
     private static MBeanServerConnection conn = null;
-    private static DruidStatService statService = DruidStatService.getInstance();
+    private static LazyProvider<DruidStatService> statService;
     private static String dsPath = "/__ds";
 
-    private static void init(Configuration configuration) {
-        initAuthEnv(configuration);
-
+    /**
+     * the stat service and the jmx connection are built on the first request of the stat view
+     */
+    private static DruidStatService init(Configuration configuration) {
+        DruidStatService service = DruidStatService.getInstance();
         try {
             String param = (String) configuration.getProperty(PARAM_NAME_RESET_ENABLE);
             if (param != null && param.trim().length() != 0) {
                 param = param.trim();
                 boolean resetEnable = Boolean.parseBoolean(param);
-                statService.setResetEnable(resetEnable);
+                service.setResetEnable(resetEnable);
             }
         } catch (Exception e) {
             String msg = "initParameter config error, resetEnable : " + configuration.getProperty(PARAM_NAME_RESET_ENABLE);
@@ -111,6 +114,7 @@ public class StatViewFeature implements Feature {
                 logger.error("init jmx connection error", e);
             }
         }
+        return service;
     }
 
     /**
@@ -191,8 +195,9 @@ public class StatViewFeature implements Feature {
      */
     private static String genServiceResponse(String url) {
         String resp = null;
+        DruidStatService service = statService.get();
         if (jmxUrl == null) {
-            resp = statService.service(url);
+            resp = service.service(url);
         } else {
             if (conn == null) {// 连接在初始化时创建失败
                 try {// 尝试重新连接
@@ -231,7 +236,8 @@ public class StatViewFeature implements Feature {
     public boolean configure(final FeatureContext context) {
         Configuration configuration = context.getConfiguration();
 
-        init(configuration);
+        initAuthEnv(configuration);
+        statService = LazyProvider.create(() -> init(configuration));
 
         String path = (String) configuration.getProperty("datasource.resource.path");
 
@@ -12,6 +12,7 @@ import org.jvnet.hk2.annotations.Service;
 import javax.inject.Inject;
 import javax.ws.rs.core.Feature;
 import javax.ws.rs.core.FeatureContext;
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -22,6 +23,14 @@ import java.util.Set;
  *
  */
 public class LocalResourceAddon extends Addon {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Class<? extends Addon>> getDependencies() {
+        return Collections.emptySet();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,197 @@
+package ameba.i18n;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * Immutable messages of a resource bundle, each pattern is compiled once.
+ * <p>
+ * Patterns with only plain arguments such as {@code {0}} are split into literal and
+ * argument segments and formatted with one {@link StringBuilder}, the other patterns
+ * keep a compiled {@link MessageFormat} which is copied for each call since it is not
+ * thread safe. The output is the same as {@link MessageFormat#format(String, Object...)}.
+ *
+ * @author icode
+ */
+public final class MessageCatalog {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Map<String, Message> messages;
+
+    private MessageCatalog(Map<String, Message> messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * Compile the messages of the bundle.
+     *
+     * @param bundle a {@link java.util.ResourceBundle} object.
+     * @return a {@link ameba.i18n.MessageCatalog} object.
+     */
+    public static MessageCatalog of(ResourceBundle bundle) {
+        ImmutableMap.Builder<String, Message> builder = ImmutableMap.builder();
+        Enumeration<String> keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            Object value = bundle.getObject(key);
+            if (value instanceof String) {
+                builder.put(key, Message.compile((String) value));
+            }
+        }
+        return new MessageCatalog(builder.build());
+    }
+
+    /**
+     * <p>contains.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return a boolean.
+     */
+    public boolean contains(String key) {
+        return messages.containsKey(key);
+    }
+
+    /**
+     * Format the message.
+     *
+     * @param key  a {@link java.lang.String} object.
+     * @param args a {@link java.lang.Object} object.
+     * @return the message or null if the key is missing
+     */
+    public String format(String key, Object... args) {
+        Message message = messages.get(key);
+        return message == null ? null : message.format(args == null ? NO_ARGS : args);
+    }
+
+    private static final class Message {
+        private final String literal;
+        private final Object[] segments;
+        private final int length;
+        private final MessageFormat format;
+        private final IllegalArgumentException error;
+
+        private Message(String literal, Object[] segments, int length,
+                        MessageFormat format, IllegalArgumentException error) {
+            this.literal = literal;
+            this.segments = segments;
+            this.length = length;
+            this.format = format;
+            this.error = error;
+        }
+
+        static Message compile(String pattern) {
+            MessageFormat format;
+            try {
+                format = new MessageFormat(pattern);
+            } catch (IllegalArgumentException e) {
+                return new Message(null, null, 0, null, e);
+            }
+            if (format.getFormats().length == 0) {
+                return new Message(format.format(NO_ARGS), null, 0, null, null);
+            }
+            Object[] segments = split(pattern);
+            if (segments != null) {
+                int length = 0;
+                for (Object segment : segments) {
+                    if (segment instanceof String) {
+                        length += ((String) segment).length();
+                    }
+                }
+                return new Message(null, segments, length, format, null);
+            }
+            return new Message(null, null, 0, format, null);
+        }
+
+        /**
+         * split the pattern into literal strings and argument indexes,
+         * null if an argument has a format type or style
+         */
+        private static Object[] split(String pattern) {
+            List<Object> segments = Lists.newArrayList();
+            StringBuilder literal = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '\'') {
+                    if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                        literal.append('\'');
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (c == '{' && !quoted) {
+                    int end = pattern.indexOf('}', i);
+                    if (end < 0) {
+                        return null;
+                    }
+                    String index = pattern.substring(i + 1, end);
+                    if (index.isEmpty() || index.length() > 5) {
+                        return null;
+                    }
+                    for (int j = 0; j < index.length(); j++) {
+                        if (!Character.isDigit(index.charAt(j))) {
+                            return null;
+                        }
+                    }
+                    if (literal.length() > 0) {
+                        segments.add(literal.toString());
+                        literal.setLength(0);
+                    }
+                    segments.add(Integer.parseInt(index));
+                    i = end;
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                segments.add(literal.toString());
+            }
+            return segments.toArray();
+        }
+
+        String format(Object[] args) {
+            if (literal != null) {
+                return literal;
+            }
+            if (error != null) {
+                throw error;
+            }
+            if (segments != null && isPlain(args)) {
+                StringBuilder sb = new StringBuilder(length + 16 * args.length);
+                for (Object segment : segments) {
+                    if (segment instanceof String) {
+                        sb.append((String) segment);
+                    } else {
+                        int index = (Integer) segment;
+                        if (index < args.length) {
+                            sb.append(args[index]);
+                        } else {
+                            sb.append('{').append(index).append('}');
+                        }
+                    }
+                }
+                return sb.toString();
+            }
+            return ((MessageFormat) format.clone()).format(args);
+        }
+
+        /**
+         * numbers and dates are formatted by the locale
+         */
+        private static boolean isPlain(Object[] args) {
+            for (Object arg : args) {
+                if (arg instanceof Number || arg instanceof Date) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -3,14 +3,13 @@ package ameba.i18n;
 import ameba.Ameba;
 import ameba.core.Requests;
 import ameba.util.ClassUtils;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.google.common.collect.Maps;
 
-import java.text.MessageFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>Messages class.</p>
@@ -27,7 +26,10 @@ public class Messages {
      * Constant <code>BUNDLE_NAME="BUNDLE_DIR + message"</code>
      */
     public static final String BUNDLE_NAME = BUNDLE_DIR + "message";
-    private static final Table<String, Locale, ResourceBundle> RESOURCE_BUNDLES = HashBasedTable.create();
+    private static final ConcurrentMap<String, ConcurrentMap<Locale, ResourceBundle>> RESOURCE_BUNDLES =
+            Maps.newConcurrentMap();
+    private static final ConcurrentMap<String, ConcurrentMap<Locale, MessageCatalog>> CATALOGS =
+            Maps.newConcurrentMap();
     private static final MultiResourceBundleControl BUNDLE_CONTROL = new MultiResourceBundleControl();
 
     private Messages() {
@@ -100,34 +102,69 @@ public class Messages {
      * @return a {@link java.util.ResourceBundle} object.
      */
     public static ResourceBundle getResourceBundle(String bundleName, Locale locale) {
-        ResourceBundle bundle = null;
+        if (isDev()) {
+            return loadResourceBundle(bundleName, locale);
+        }
+        ConcurrentMap<Locale, ResourceBundle> bundles = RESOURCE_BUNDLES.get(bundleName);
+        ResourceBundle bundle = bundles == null ? null : bundles.get(locale);
+        if (bundle == null) {
+            bundle = loadResourceBundle(bundleName, locale);
+            if (bundle != null) {
+                RESOURCE_BUNDLES.computeIfAbsent(bundleName, k -> Maps.newConcurrentMap())
+                        .putIfAbsent(locale, bundle);
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * The compiled messages of the bundle, in dev mode the bundle is reloaded every time.
+     *
+     * @param bundleName a {@link java.lang.String} object.
+     * @param locale     a {@link java.util.Locale} object.
+     * @return a {@link ameba.i18n.MessageCatalog} object or null if the bundle is missing.
+     */
+    public static MessageCatalog getCatalog(String bundleName, Locale locale) {
+        if (isDev()) {
+            ResourceBundle bundle = loadResourceBundle(bundleName, locale);
+            return bundle == null ? null : MessageCatalog.of(bundle);
+        }
+        ConcurrentMap<Locale, MessageCatalog> catalogs = CATALOGS.get(bundleName);
+        MessageCatalog catalog = catalogs == null ? null : catalogs.get(locale);
+        if (catalog == null) {
+            ResourceBundle bundle = getResourceBundle(bundleName, locale);
+            if (bundle != null) {
+                catalog = MessageCatalog.of(bundle);
+                MessageCatalog old = CATALOGS.computeIfAbsent(bundleName, k -> Maps.newConcurrentMap())
+                        .putIfAbsent(locale, catalog);
+                if (old != null) {
+                    catalog = old;
+                }
+            }
+        }
+        return catalog;
+    }
 
+    private static boolean isDev() {
         boolean isDev = false;
         if (Ameba.getApp() != null) {
             isDev = Ameba.getApp().getMode().isDev();
             BUNDLE_CONTROL.noCache = isDev;
         }
-        if (!isDev) {
-            bundle = RESOURCE_BUNDLES.get(bundleName, locale);
-        }
-        if (bundle == null) {
-            try {
-                bundle = ResourceBundle.getBundle(
-                        bundleName,
-                        locale,
-                        ClassUtils.getContextClassLoader(),
-                        BUNDLE_CONTROL
-                );
-            } catch (MissingResourceException e) {
-                // no op
-            }
-        }
+        return isDev;
+    }
 
-        if (bundle != null && !isDev) {
-            RESOURCE_BUNDLES.put(bundleName, locale, bundle);
+    private static ResourceBundle loadResourceBundle(String bundleName, Locale locale) {
+        try {
+            return ResourceBundle.getBundle(
+                    bundleName,
+                    locale,
+                    ClassUtils.getContextClassLoader(),
+                    BUNDLE_CONTROL
+            );
+        } catch (MissingResourceException e) {
+            return null;
         }
-
-        return bundle;
     }
 
     /**
@@ -140,34 +177,21 @@ public class Messages {
      * @return a {@link java.lang.String} object.
      */
     public static String get(String bundleName, Locale locale, String key, Object... args) {
-        try {
-            ResourceBundle bundle = getResourceBundle(bundleName, locale);
-
-            if (bundle == null) {
-                return getDefaultMessage(key, args);
-            }
-
-            if (key == null) {
-                key = "undefined";
-            }
+        MessageCatalog catalog = getCatalog(bundleName, locale);
 
-            String msg;
-            try {
-                msg = bundle.getString(key);
-            } catch (MissingResourceException e) {
-                // notice that this may throw a MissingResourceException of its own (caught below)
-                try {
-                    msg = bundle.getString("undefined");
-                } catch (MissingResourceException ex) {
-                    return getDefaultMessage(key, args);
-                }
-            }
+        if (catalog == null) {
+            return getDefaultMessage(key, args);
+        }
 
-            return MessageFormat.format(msg, args);
+        if (key == null) {
+            key = "undefined";
+        }
 
-        } catch (MissingResourceException e) {
-            return getDefaultMessage(key, args);
+        String msg = catalog.format(key, args);
+        if (msg == null) {
+            msg = catalog.format("undefined", args);
         }
+        return msg == null ? getDefaultMessage(key, args) : msg;
 
     }
 
@@ -23,7 +23,7 @@ import java.util.ResourceBundle;
  */
 public class MultiResourceBundleControl extends ResourceBundle.Control {
 
-    boolean noCache = false;
+    volatile boolean noCache = false;
 
     /**
      * {@inheritDoc}
@@ -0,0 +1,70 @@
+package ameba.inject;
+
+import org.glassfish.hk2.api.Factory;
+
+import javax.inject.Provider;
+import java.util.function.Supplier;
+
+/**
+ * <p>LazyProvider class.</p>
+ * <p>
+ * Build the value on the first {@link #get()} and keep it, so the expensive state of a feature
+ * is only built when a request or an injection first needs it. As a {@link Factory} it can be
+ * bound with {@code bindFactory}, every binding of the same provider shares the value.
+ *
+ * @author icode
+ */
+public class LazyProvider<T> implements Provider<T>, Factory<T> {
+    private final Supplier<T> supplier;
+    private volatile T target;
+
+    private LazyProvider(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * <p>create.</p>
+     *
+     * @param supplier build the value, called once
+     * @param <T>      a T object.
+     * @return a {@link ameba.inject.LazyProvider} object.
+     */
+    public static <T> LazyProvider<T> create(Supplier<T> supplier) {
+        return new LazyProvider<>(supplier);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public T get() {
+        T value = target;
+        if (value == null) {
+            synchronized (this) {
+                value = target;
+                if (value == null) {
+                    target = value = supplier.get();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * <p>isInitialized.</p>
+     *
+     * @return true if the value was built
+     */
+    public boolean isInitialized() {
+        return target != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public T provide() {
+        return get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void dispose(T instance) {
+    }
+}
@@ -1,13 +1,19 @@
 package ameba.lib;
 
 import ameba.lib.el.MapBasedFunctionMapper;
+import ameba.lib.el.RootELResolver;
 import ameba.lib.el.SimpleContext;
 import ameba.util.bean.BeanInvoker;
 import ameba.util.bean.BeanMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 
 import javax.el.*;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -17,12 +23,30 @@ import java.util.stream.Stream;
  */
 public class El {
     private static final ExpressionFactory expressionFactory = ExpressionFactory.newInstance();
+    /**
+     * Constant <code>MAX_CACHED_EXPRESSIONS=1024</code>
+     */
+    public static final int MAX_CACHED_EXPRESSIONS = 1024;
+    /**
+     * compiled expressions by text and functions, the variables are resolved on evaluation
+     */
+    private static final Cache<Object, ValueExpression> EXPRESSIONS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_EXPRESSIONS)
+            .build();
+    private static final ClassValue<Map<String, Method>> FUNCTIONS = new ClassValue<Map<String, Method>>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            return Collections.unmodifiableMap(Stream.of(type.getMethods())
+                    .filter(method -> Modifier.isStatic(method.getModifiers()))
+                    .collect(Collectors.toMap(Method::getName, m -> m)));
+        }
+    };
 
     private El() {
     }
 
     public static String parse(String text, ELContext context, Object root, String prefix, Class... funcClasses) {
-        addVariables(context, toVariablesMap(root));
+        setRoot(context, root);
         Stream.of(funcClasses).forEach(fn -> addFunctions(context, prefix, fn));
         return parse(text, context);
     }
@@ -37,6 +61,22 @@ public class El {
         }
     }
 
+    /**
+     * Set the properties of the root object as variables, a {@link SimpleContext} reads a property
+     * only when the expression uses it, the other contexts map all properties.
+     *
+     * @param elContext a {@link javax.el.ELContext} object.
+     * @param root      the root object
+     */
+    public static void setRoot(ELContext elContext, Object root) {
+        Map<String, Object> variables = toVariablesMap(root);
+        if (elContext instanceof SimpleContext) {
+            RootELResolver.setRoot(elContext, variables);
+        } else {
+            addVariables(elContext, variables);
+        }
+    }
+
     public static void addFunctions(ELContext elContext, String prefix, Map<String, Method> functions) {
         FunctionMapper mapper = elContext.getFunctionMapper();
         if (mapper instanceof MapBasedFunctionMapper && functions != null && !functions.isEmpty()) {
@@ -55,10 +95,14 @@ public class El {
         }
     }
 
+    /**
+     * <p>getFunctions.</p>
+     *
+     * @param funcClass a {@link java.lang.Class} object.
+     * @return the static methods by name, computed once for each class
+     */
     public static Map<String, Method> getFunctions(Class funcClass) {
-        return Stream.of(funcClass.getMethods())
-                .filter(method -> Modifier.isStatic(method.getModifiers()))
-                .collect(Collectors.toMap(Method::getName, m -> m));
+        return FUNCTIONS.get(funcClass);
     }
 
     public static String parse(String text, Object root, String prefix, Class... funcClasses) {
@@ -71,7 +115,7 @@ public class El {
 
     public static String parse(String text, ELContext context, Object root,
                                String prefix, Map<String, Method> functions) {
-        addVariables(context, toVariablesMap(root));
+        setRoot(context, root);
         addFunctions(context, prefix, functions);
         return parse(text, context);
     }
@@ -82,7 +126,7 @@ public class El {
 
     public static String parse(String text, Object root, String prefix, Map<String, Method> functions) {
         ELContext context = createContext();
-        addVariables(context, toVariablesMap(root));
+        setRoot(context, root);
         addFunctions(context, prefix, functions);
         return parse(text, context);
     }
@@ -92,9 +136,30 @@ public class El {
     }
 
     public static String parse(String text, ELContext context) {
-        return (String) expressionFactory
-                .createValueExpression(context, text, String.class)
-                .getValue(context);
+        return (String) compile(text, context).getValue(context);
+    }
+
+    /**
+     * Compile the expression of the context.
+     * <p>
+     * The functions and variables are bound when the expression is compiled, so the expressions of
+     * a {@link SimpleContext} without mapped variables are cached by text and functions.
+     *
+     * @param text    the expression text
+     * @param context a {@link javax.el.ELContext} object.
+     * @return a {@link javax.el.ValueExpression} object.
+     */
+    public static ValueExpression compile(String text, ELContext context) {
+        if (!(context instanceof SimpleContext) || ((SimpleContext) context).hasVariables()) {
+            return expressionFactory.createValueExpression(context, text, String.class);
+        }
+        Object key = Arrays.asList(text, ImmutableMap.copyOf(((SimpleContext) context).getFunctions()));
+        ValueExpression expression = EXPRESSIONS.getIfPresent(key);
+        if (expression == null) {
+            expression = expressionFactory.createValueExpression(context, text, String.class);
+            EXPRESSIONS.put(key, expression);
+        }
+        return expression;
     }
 
     public static ELContext createContext() {
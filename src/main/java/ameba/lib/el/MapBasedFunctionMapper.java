@@ -28,4 +28,13 @@ public class MapBasedFunctionMapper extends FunctionMapper {
 
         this.map.put(prefix + FUNCTION_NAME_SEPARATOR + localName, method);
     }
+
+    /**
+     * <p>getFunctions.</p>
+     *
+     * @return the mapped functions by prefix and name
+     */
+    public Map<String, Method> getFunctions() {
+        return Collections.unmodifiableMap(this.map);
+    }
 }
@@ -24,4 +24,13 @@ public class MapBasedVariableMapper extends VariableMapper {
 
         return this.map.put(variable, expression);
     }
+
+    /**
+     * <p>isEmpty.</p>
+     *
+     * @return true if no variable was mapped
+     */
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
 }
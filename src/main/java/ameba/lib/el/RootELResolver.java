@@ -0,0 +1,87 @@
+package ameba.lib.el;
+
+import javax.el.ELContext;
+import javax.el.ELResolver;
+import javax.el.PropertyNotWritableException;
+import java.beans.FeatureDescriptor;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Resolve the top level identifiers from the root variables of the context,
+ * a variable is only read when the expression uses it.
+ *
+ * @author icode
+ * @see #setRoot(ELContext, Map)
+ */
+public class RootELResolver extends ELResolver {
+
+    /**
+     * Set the root variables of the context.
+     *
+     * @param context   a {@link javax.el.ELContext} object.
+     * @param variables the variables by name
+     */
+    public static void setRoot(ELContext context, Map<String, Object> variables) {
+        context.putContext(RootELResolver.class, variables);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getRoot(ELContext context, Object base, Object property) {
+        if (base != null || property == null) {
+            return null;
+        }
+        Map<String, Object> root = (Map<String, Object>) context.getContext(RootELResolver.class);
+        if (root == null || !root.containsKey(property.toString())) {
+            return null;
+        }
+        return root;
+    }
+
+    @Override
+    public Object getValue(ELContext context, Object base, Object property) {
+        Map<String, Object> root = getRoot(context, base, property);
+        if (root == null) {
+            return null;
+        }
+        context.setPropertyResolved(true);
+        return root.get(property.toString());
+    }
+
+    @Override
+    public Class<?> getType(ELContext context, Object base, Object property) {
+        Map<String, Object> root = getRoot(context, base, property);
+        if (root == null) {
+            return null;
+        }
+        context.setPropertyResolved(true);
+        Object value = root.get(property.toString());
+        return value == null ? Object.class : value.getClass();
+    }
+
+    @Override
+    public void setValue(ELContext context, Object base, Object property, Object value) {
+        if (getRoot(context, base, property) != null) {
+            throw new PropertyNotWritableException(property.toString());
+        }
+    }
+
+    @Override
+    public boolean isReadOnly(ELContext context, Object base, Object property) {
+        if (getRoot(context, base, property) != null) {
+            context.setPropertyResolved(true);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<FeatureDescriptor> getFeatureDescriptors(ELContext context, Object base) {
+        return null;
+    }
+
+    @Override
+    public Class<?> getCommonPropertyType(ELContext context, Object base) {
+        return base == null ? String.class : null;
+    }
+}
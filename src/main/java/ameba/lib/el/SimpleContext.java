@@ -1,6 +1,8 @@
 package ameba.lib.el;
 
 import javax.el.*;
+import java.lang.reflect.Method;
+import java.util.Map;
 
 /**
  * @author icode
@@ -8,6 +10,7 @@ import javax.el.*;
 public class SimpleContext extends ELContext {
     private static final ELResolver DEFAULT_RESOLVER = new CompositeELResolver() {
         {
+            this.add(new RootELResolver());
             this.add(new ArrayELResolver(true));
             this.add(new ListELResolver(true));
             this.add(new MapELResolver(true));
@@ -16,7 +19,7 @@ public class SimpleContext extends ELContext {
         }
     };
     private final MapBasedFunctionMapper functions;
-    private final VariableMapper variableMapper;
+    private final MapBasedVariableMapper variableMapper;
     private final ELResolver resolver;
 
     public SimpleContext(ExpressionFactory expressionFactory) {
@@ -40,4 +43,22 @@ public class SimpleContext extends ELContext {
     public VariableMapper getVariableMapper() {
         return variableMapper;
     }
+
+    /**
+     * The expressions of the context only depend on the functions if no variable was mapped.
+     *
+     * @return a boolean.
+     */
+    public boolean hasVariables() {
+        return !variableMapper.isEmpty();
+    }
+
+    /**
+     * <p>getFunctions.</p>
+     *
+     * @return the mapped functions
+     */
+    public Map<String, Method> getFunctions() {
+        return functions.getFunctions();
+    }
 }
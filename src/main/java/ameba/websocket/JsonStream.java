@@ -0,0 +1,31 @@
+package ameba.websocket;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Decode the messages of an {@link javax.websocket.OnMessage} method incrementally.
+ * <p>
+ * Fragments are parsed as they arrive and the method is called once for each
+ * JSON value, a message may hold many values separated by new lines.
+ * <pre>
+ * &#64;OnMessage
+ * &#64;JsonStream
+ * public void onMessage(Event event) {
+ * }
+ * </pre>
+ *
+ * @author icode
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface JsonStream {
+    /**
+     * Read binary frames, otherwise text frames.
+     *
+     * @return binary
+     */
+    boolean binary() default true;
+}
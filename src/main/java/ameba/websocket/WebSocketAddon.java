@@ -5,6 +5,7 @@ import ameba.core.Application;
 import ameba.i18n.Messages;
 import ameba.scanner.ClassFoundEvent;
 import ameba.websocket.internal.DefaultServerEndpointConfig;
+import ameba.websocket.internal.SockJsModelProcessor;
 import ameba.websocket.internal.WebSocketBinder;
 import com.google.common.collect.Lists;
 import org.glassfish.hk2.api.PerLookup;
@@ -20,10 +21,13 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.websocket.DeploymentException;
 import javax.websocket.server.ServerContainer;
+import javax.websocket.server.ServerEndpointConfig;
 import javax.ws.rs.core.Feature;
 import javax.ws.rs.core.FeatureContext;
 import java.lang.annotation.Annotation;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -115,6 +119,14 @@ public class WebSocketAddon extends Addon {
         return enabled;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Class<? extends Addon>> getDependencies() {
+        return Collections.emptySet();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -149,6 +161,7 @@ public class WebSocketAddon extends Addon {
                 logger.warn(Messages.get("web.socket.server.unsupported"));
             }
 
+            List<ServerEndpointConfig> sockJsConfigs = Lists.newArrayList();
             for (Class endpointClass : endpointClasses) {
                 WebSocket webSocket = getAnnotation(WebSocket.class, endpointClass);
                 if (webSocket == null) continue;
@@ -169,9 +182,12 @@ public class WebSocketAddon extends Addon {
                     }
                 }
                 if (webSocket.withSockJS()) {
-                    // create resource use modelProcessor
+                    sockJsConfigs.add(endpointConfig);
                 }
             }
+            if (!sockJsConfigs.isEmpty()) {
+                context.register(new SockJsModelProcessor(injectionManager, sockJsConfigs));
+            }
 
             return true;
         }
@@ -0,0 +1,114 @@
+package ameba.websocket.broadcast;
+
+import ameba.websocket.WebSocketSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+
+/**
+ * Send one message to many sessions.
+ * <p>
+ * The message is encoded once into a {@link PreparedMessage} and queued on the
+ * bounded outbound queue of every recipient, sends are asynchronous so one slow
+ * session never holds up the others.
+ * <pre>
+ * &#64;Inject
+ * private Broadcaster broadcaster;
+ *
+ * broadcaster.publish("news", news);
+ * </pre>
+ *
+ * @author icode
+ */
+@Singleton
+public class Broadcaster {
+    private final SessionRegistry registry;
+    private final ObjectMapper mapper;
+
+    /**
+     * <p>Constructor for Broadcaster.</p>
+     *
+     * @param registry a {@link ameba.websocket.broadcast.SessionRegistry} object.
+     * @param mapper   a {@link com.fasterxml.jackson.databind.ObjectMapper} object.
+     */
+    @Inject
+    public Broadcaster(SessionRegistry registry, ObjectMapper mapper) {
+        this.registry = registry;
+        this.mapper = mapper;
+    }
+
+    /**
+     * <p>Getter for the field <code>registry</code>.</p>
+     *
+     * @return a {@link ameba.websocket.broadcast.SessionRegistry} object.
+     */
+    public SessionRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Encode the message, the result can be broadcast many times without encoding again.
+     *
+     * @param message a {@link java.lang.Object} object.
+     * @return a {@link ameba.websocket.broadcast.PreparedMessage} object.
+     */
+    public PreparedMessage prepare(Object message) {
+        return PreparedMessage.of(message, mapper);
+    }
+
+    /**
+     * Send the message to all registered sessions.
+     *
+     * @param message a {@link java.lang.Object} object.
+     * @return how many sessions accepted the message
+     */
+    public int broadcast(Object message) {
+        return send(registry.getOutbounds(), prepare(message));
+    }
+
+    /**
+     * Send the message to the sessions subscribed the topic.
+     *
+     * @param topic   a {@link java.lang.String} object.
+     * @param message a {@link java.lang.Object} object.
+     * @return how many sessions accepted the message
+     */
+    public int publish(String topic, Object message) {
+        Collection<SessionOutbound> outbounds = registry.getOutbounds(topic);
+        if (outbounds.isEmpty()) {
+            return 0;
+        }
+        return send(outbounds, prepare(message));
+    }
+
+    /**
+     * Send the message to the given sessions, sessions not registered are skipped.
+     *
+     * @param sessions a {@link java.util.Collection} object.
+     * @param message  a {@link java.lang.Object} object.
+     * @return how many sessions accepted the message
+     */
+    public int send(Collection<? extends WebSocketSession> sessions, Object message) {
+        PreparedMessage prepared = prepare(message);
+        int count = 0;
+        for (WebSocketSession session : sessions) {
+            SessionOutbound outbound = registry.getOutbound(session);
+            if (outbound != null && outbound.offer(prepared)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int send(Collection<SessionOutbound> outbounds, PreparedMessage message) {
+        int count = 0;
+        for (SessionOutbound outbound : outbounds) {
+            if (outbound.offer(message)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+package ameba.websocket.broadcast;
+
+import ameba.util.Assert;
+import ameba.websocket.BinaryMessage;
+import ameba.websocket.TextMessage;
+import ameba.websocket.WebSocketException;
+import ameba.websocket.metrics.EndpointMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import java.nio.ByteBuffer;
+
+/**
+ * A message encoded once and shared by every recipient of a broadcast.
+ * <p>
+ * Text payloads are kept as an immutable String, binary payloads as a read-only
+ * buffer; each send works on its own {@link ByteBuffer#duplicate()} so recipients
+ * never disturb each other's position.
+ *
+ * @author icode
+ */
+public final class PreparedMessage {
+    private final String text;
+    private final ByteBuffer binary;
+    private final int payloadLength;
+
+    private PreparedMessage(String text, ByteBuffer binary) {
+        this.text = text;
+        this.binary = binary;
+        this.payloadLength = (int) EndpointMetrics.sizeOf(text != null ? text : binary);
+    }
+
+    /**
+     * <p>text.</p>
+     *
+     * @param payload a {@link java.lang.CharSequence} object.
+     * @return a {@link ameba.websocket.broadcast.PreparedMessage} object.
+     */
+    public static PreparedMessage text(CharSequence payload) {
+        Assert.notNull(payload, "payload must not be null");
+        return new PreparedMessage(payload.toString(), null);
+    }
+
+    /**
+     * <p>binary.</p>
+     *
+     * @param payload a {@link java.nio.ByteBuffer} object.
+     * @return a {@link ameba.websocket.broadcast.PreparedMessage} object.
+     */
+    public static PreparedMessage binary(ByteBuffer payload) {
+        Assert.notNull(payload, "payload must not be null");
+        return new PreparedMessage(null, payload.asReadOnlyBuffer());
+    }
+
+    /**
+     * <p>binary.</p>
+     *
+     * @param payload an array of byte.
+     * @return a {@link ameba.websocket.broadcast.PreparedMessage} object.
+     */
+    public static PreparedMessage binary(byte[] payload) {
+        Assert.notNull(payload, "payload must not be null");
+        return binary(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Encode the message once. Text and binary messages are taken as they are,
+     * any other object is written as JSON text by the given mapper.
+     *
+     * @param message a {@link java.lang.Object} object.
+     * @param mapper  a {@link com.fasterxml.jackson.databind.ObjectMapper} object.
+     * @return a {@link ameba.websocket.broadcast.PreparedMessage} object.
+     */
+    public static PreparedMessage of(Object message, ObjectMapper mapper) {
+        Assert.notNull(message, "message must not be null");
+        if (message instanceof PreparedMessage) {
+            return (PreparedMessage) message;
+        } else if (message instanceof TextMessage) {
+            return text(((TextMessage) message).getPayload());
+        } else if (message instanceof BinaryMessage) {
+            return binary(((BinaryMessage) message).getPayload());
+        } else if (message instanceof CharSequence) {
+            return text((CharSequence) message);
+        } else if (message instanceof byte[]) {
+            return binary((byte[]) message);
+        } else if (message instanceof ByteBuffer) {
+            return binary((ByteBuffer) message);
+        }
+        Assert.notNull(mapper, "ObjectMapper must not be null");
+        try {
+            return text(mapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new WebSocketException(e);
+        }
+    }
+
+    /**
+     * <p>isText.</p>
+     *
+     * @return a boolean.
+     */
+    public boolean isText() {
+        return text != null;
+    }
+
+    /**
+     * Encoded size of the payload in bytes.
+     *
+     * @return a int.
+     */
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * <p>getText.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Return a private view of the shared binary payload.
+     *
+     * @return a {@link java.nio.ByteBuffer} object.
+     */
+    public ByteBuffer getBinary() {
+        return binary == null ? null : binary.duplicate();
+    }
+
+    void sendTo(RemoteEndpoint.Async remote, SendHandler handler) {
+        if (isText()) {
+            remote.sendText(text, handler);
+        } else {
+            remote.sendBinary(getBinary(), handler);
+        }
+    }
+
+    Object toMessage() {
+        return isText() ? new TextMessage(text) : new BinaryMessage(getBinary());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "PreparedMessage[" + (isText() ? "text, " + text.length() + " chars"
+                : "binary, " + binary.remaining() + " bytes") + "]";
+    }
+}
@@ -0,0 +1,169 @@
+package ameba.websocket.broadcast;
+
+import ameba.i18n.Messages;
+import ameba.websocket.CloseReasons;
+import ameba.websocket.WebSocketSession;
+import ameba.websocket.adapter.NativeWebSocketSession;
+import ameba.websocket.metrics.EndpointMetrics;
+import ameba.websocket.metrics.WebSocketMetrics;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded outbound queue of one session. At most one asynchronous send is in
+ * flight at a time, the completion callback drains the next message.
+ *
+ * @author icode
+ */
+final class SessionOutbound implements SendHandler {
+    private static final Logger logger = LoggerFactory.getLogger(SessionOutbound.class);
+    final Set<String> topics = Sets.newConcurrentHashSet();
+    private final WebSocketSession session;
+    private final Session nativeSession;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final Queue<PreparedMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final EndpointMetrics metrics;
+    private PreparedMessage inFlight;
+    private long sendStart;
+
+    SessionOutbound(WebSocketSession session, int capacity, SlowConsumerPolicy policy) {
+        this.session = session;
+        this.nativeSession = session instanceof NativeWebSocketSession
+                ? ((NativeWebSocketSession<?>) session).getNativeSession(Session.class) : null;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.metrics = nativeSession == null ? null
+                : (EndpointMetrics) nativeSession.getUserProperties().get(WebSocketMetrics.SESSION_METRICS_KEY);
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    int getQueueSize() {
+        return size.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    boolean offer(PreparedMessage message) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        if (size.incrementAndGet() > capacity) {
+            switch (policy) {
+                case DROP_OLDEST:
+                    if (queue.poll() != null) {
+                        size.decrementAndGet();
+                        addQueued(-1);
+                    }
+                    dropped.incrementAndGet();
+                    break;
+                case DISCONNECT:
+                    size.decrementAndGet();
+                    disconnect();
+                    return false;
+                default:
+                    size.decrementAndGet();
+                    dropped.incrementAndGet();
+                    return false;
+            }
+        }
+        queue.offer(message);
+        addQueued(1);
+        flush();
+        return true;
+    }
+
+    private void flush() {
+        while (!queue.isEmpty() && sending.compareAndSet(false, true)) {
+            PreparedMessage next = queue.poll();
+            if (next == null) {
+                sending.set(false);
+                continue;
+            }
+            size.decrementAndGet();
+            addQueued(-1);
+            send(next);
+            return;
+        }
+    }
+
+    private void addQueued(long delta) {
+        if (metrics != null) {
+            metrics.addQueued(delta);
+        }
+    }
+
+    private void send(PreparedMessage message) {
+        inFlight = message;
+        sendStart = System.nanoTime();
+        if (nativeSession != null) {
+            try {
+                message.sendTo(nativeSession.getAsyncRemote(), this);
+            } catch (RuntimeException e) {
+                onResult(new SendResult(e));
+            }
+        } else {
+            try {
+                session.sendMessage(message.toMessage());
+                onResult(new SendResult());
+            } catch (IOException | RuntimeException e) {
+                onResult(new SendResult(e));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onResult(SendResult result) {
+        if (metrics != null && inFlight != null) {
+            metrics.recordSend(inFlight.getPayloadLength(), System.nanoTime() - sendStart, result.isOK());
+        }
+        inFlight = null;
+        if (!result.isOK()) {
+            logger.debug(Messages.get("web.socket.broadcast.send.error", session), result.getException());
+        }
+        sending.set(false);
+        if (session.isOpen()) {
+            flush();
+        } else {
+            clear();
+        }
+    }
+
+    void clear() {
+        queue.clear();
+        addQueued(-size.getAndSet(0));
+    }
+
+    private void disconnect() {
+        clear();
+        logger.warn(Messages.get("web.socket.broadcast.slow.consumer", session, capacity));
+        try {
+            session.close(CloseReasons.TRY_AGAIN_LATER.getCloseReason());
+        } catch (IOException e) {
+            logger.debug(e.getMessage(), e);
+        }
+    }
+}
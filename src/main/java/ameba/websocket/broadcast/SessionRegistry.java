@@ -0,0 +1,264 @@
+package ameba.websocket.broadcast;
+
+import ameba.util.Assert;
+import ameba.websocket.WebSocketSession;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.core.Configuration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the open {@link WebSocketSession}s and the topics they subscribed.
+ * <p>
+ * Sessions are registered when they open and removed, together with their
+ * topic subscriptions, when they close.
+ *
+ * @author icode
+ */
+@Singleton
+public class SessionRegistry {
+    /**
+     * Constant <code>QUEUE_SIZE_CONF="websocket.broadcast.queueSize"</code>
+     */
+    public static final String QUEUE_SIZE_CONF = "websocket.broadcast.queueSize";
+    /**
+     * Constant <code>SLOW_CONSUMER_POLICY_CONF="websocket.broadcast.slowConsumerPolicy"</code>
+     */
+    public static final String SLOW_CONSUMER_POLICY_CONF = "websocket.broadcast.slowConsumerPolicy";
+    /**
+     * Constant <code>DEFAULT_QUEUE_SIZE=256</code>
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    private final ConcurrentMap<String, SessionOutbound> sessions = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Set<String>> topics = Maps.newConcurrentMap();
+    private final int queueSize;
+    private final SlowConsumerPolicy policy;
+
+    /**
+     * <p>Constructor for SessionRegistry.</p>
+     *
+     * @param configuration a {@link javax.ws.rs.core.Configuration} object.
+     */
+    @Inject
+    public SessionRegistry(Configuration configuration) {
+        this(getQueueSize(configuration), getPolicy(configuration));
+    }
+
+    /**
+     * <p>Constructor for SessionRegistry.</p>
+     *
+     * @param queueSize max queued outbound messages per session
+     * @param policy    a {@link ameba.websocket.broadcast.SlowConsumerPolicy} object.
+     */
+    public SessionRegistry(int queueSize, SlowConsumerPolicy policy) {
+        Assert.isTrue(queueSize > 0, "queueSize must be greater than 0");
+        Assert.notNull(policy, "policy must not be null");
+        this.queueSize = queueSize;
+        this.policy = policy;
+    }
+
+    private static int getQueueSize(Configuration configuration) {
+        String size = Objects.toString(configuration.getProperty(QUEUE_SIZE_CONF), null);
+        return StringUtils.isBlank(size) ? DEFAULT_QUEUE_SIZE : Integer.parseInt(size.trim());
+    }
+
+    private static SlowConsumerPolicy getPolicy(Configuration configuration) {
+        String policy = Objects.toString(configuration.getProperty(SLOW_CONSUMER_POLICY_CONF), null);
+        return StringUtils.isBlank(policy)
+                ? SlowConsumerPolicy.DROP_OLDEST : SlowConsumerPolicy.valueOf(policy.trim().toUpperCase());
+    }
+
+    /**
+     * <p>register.</p>
+     *
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     */
+    public void register(WebSocketSession session) {
+        Assert.notNull(session, "session must not be null");
+        sessions.putIfAbsent(session.getId(), new SessionOutbound(session, queueSize, policy));
+    }
+
+    /**
+     * Remove the session and all of its topic subscriptions.
+     *
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     */
+    public void unregister(WebSocketSession session) {
+        SessionOutbound outbound = sessions.remove(session.getId());
+        if (outbound != null) {
+            for (String topic : outbound.topics) {
+                removeFromTopic(topic, session.getId());
+            }
+            outbound.clear();
+        }
+    }
+
+    /**
+     * <p>getSession.</p>
+     *
+     * @param id a {@link java.lang.String} object.
+     * @return a {@link ameba.websocket.WebSocketSession} object.
+     */
+    public WebSocketSession getSession(String id) {
+        SessionOutbound outbound = sessions.get(id);
+        return outbound == null ? null : outbound.getSession();
+    }
+
+    /**
+     * <p>getSessions.</p>
+     *
+     * @return a {@link java.util.Collection} object.
+     */
+    public Collection<WebSocketSession> getSessions() {
+        List<WebSocketSession> result = Lists.newArrayListWithCapacity(sessions.size());
+        for (SessionOutbound outbound : sessions.values()) {
+            result.add(outbound.getSession());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return a int.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Subscribe a registered session to the topic.
+     *
+     * @param topic   a {@link java.lang.String} object.
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     * @return false if the session is not registered
+     */
+    public boolean subscribe(String topic, WebSocketSession session) {
+        Assert.notNull(topic, "topic must not be null");
+        SessionOutbound outbound = sessions.get(session.getId());
+        if (outbound == null) {
+            return false;
+        }
+        topics.compute(topic, (k, ids) -> {
+            if (ids == null) {
+                ids = Sets.newConcurrentHashSet();
+            }
+            ids.add(session.getId());
+            return ids;
+        });
+        outbound.topics.add(topic);
+        return true;
+    }
+
+    /**
+     * <p>unsubscribe.</p>
+     *
+     * @param topic   a {@link java.lang.String} object.
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     */
+    public void unsubscribe(String topic, WebSocketSession session) {
+        SessionOutbound outbound = sessions.get(session.getId());
+        if (outbound != null) {
+            outbound.topics.remove(topic);
+        }
+        removeFromTopic(topic, session.getId());
+    }
+
+    private void removeFromTopic(String topic, String id) {
+        topics.computeIfPresent(topic, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * <p>getTopics.</p>
+     *
+     * @return a {@link java.util.Set} object.
+     */
+    public Set<String> getTopics() {
+        return ImmutableSet.copyOf(topics.keySet());
+    }
+
+    /**
+     * <p>getTopics.</p>
+     *
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     * @return topics the session subscribed
+     */
+    public Set<String> getTopics(WebSocketSession session) {
+        SessionOutbound outbound = sessions.get(session.getId());
+        return outbound == null ? Collections.emptySet() : ImmutableSet.copyOf(outbound.topics);
+    }
+
+    /**
+     * <p>getSessions.</p>
+     *
+     * @param topic a {@link java.lang.String} object.
+     * @return a {@link java.util.Collection} object.
+     */
+    public Collection<WebSocketSession> getSessions(String topic) {
+        List<WebSocketSession> result = Lists.newArrayList();
+        for (SessionOutbound outbound : getOutbounds(topic)) {
+            result.add(outbound.getSession());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Messages waiting in the outbound queue of the session.
+     *
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     * @return a int.
+     */
+    public int getQueueSize(WebSocketSession session) {
+        SessionOutbound outbound = sessions.get(session.getId());
+        return outbound == null ? 0 : outbound.getQueueSize();
+    }
+
+    /**
+     * Messages dropped for the session because its outbound queue was full.
+     *
+     * @param session a {@link ameba.websocket.WebSocketSession} object.
+     * @return a long.
+     */
+    public long getDropped(WebSocketSession session) {
+        SessionOutbound outbound = sessions.get(session.getId());
+        return outbound == null ? 0 : outbound.getDropped();
+    }
+
+    Collection<SessionOutbound> getOutbounds() {
+        return sessions.values();
+    }
+
+    Collection<SessionOutbound> getOutbounds(String topic) {
+        Set<String> ids = topics.get(topic);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<SessionOutbound> result = Lists.newArrayListWithCapacity(ids.size());
+        for (String id : ids) {
+            SessionOutbound outbound = sessions.get(id);
+            if (outbound != null) {
+                result.add(outbound);
+            }
+        }
+        return result;
+    }
+
+    SessionOutbound getOutbound(WebSocketSession session) {
+        return sessions.get(session.getId());
+    }
+}
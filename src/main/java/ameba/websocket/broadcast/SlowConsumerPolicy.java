@@ -0,0 +1,21 @@
+package ameba.websocket.broadcast;
+
+/**
+ * What to do with a session whose outbound queue is full when a broadcast arrives.
+ *
+ * @author icode
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * discard the message being broadcast, keep the queued ones
+     */
+    DROP_NEWEST,
+    /**
+     * discard the oldest queued message to make room for the new one
+     */
+    DROP_OLDEST,
+    /**
+     * close the session with {@link ameba.websocket.CloseReasons#TRY_AGAIN_LATER}
+     */
+    DISCONNECT
+}
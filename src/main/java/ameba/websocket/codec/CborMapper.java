@@ -0,0 +1,30 @@
+package ameba.websocket.codec;
+
+import ameba.core.Application;
+import ameba.message.jackson.internal.JacksonUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * CBOR mappers configured like the JSON one. Kept in its own class so
+ * jackson-dataformat-cbor is only loaded when a CBOR codec is used.
+ *
+ * @author icode
+ */
+final class CborMapper {
+    private static final Map<Application.Mode, ObjectMapper> MAPPERS = Maps.newConcurrentMap();
+
+    private CborMapper() {
+    }
+
+    static ObjectMapper get(Application.Mode mode) {
+        return MAPPERS.computeIfAbsent(mode == null ? Application.Mode.PRODUCT : mode, m -> {
+            ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+            JacksonUtils.configureMapper(mapper, m);
+            return mapper;
+        });
+    }
+}
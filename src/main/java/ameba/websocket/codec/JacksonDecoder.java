@@ -1,6 +1,9 @@
 package ameba.websocket.codec;
 
+import ameba.core.Application;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,18 +14,27 @@ import javax.websocket.Decoder;
 import javax.websocket.EndpointConfig;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.ByteBuffer;
 
 /**
+ * Jackson decoders, the {@link ObjectReader} of the message type is resolved once and reused.
+ *
  * @author icode
  */
-public abstract class JacksonDecoder implements Decoder {
+public abstract class JacksonDecoder<T> implements Decoder {
     private static final Logger logger = LoggerFactory.getLogger(JacksonDecoder.class);
 
     @Inject
     ObjectMapper mapper;
+    @Inject
+    Application.Mode mode;
+    private final Class<T> objectClass;
+    private volatile ObjectReader reader;
+
+    JacksonDecoder(Class<T> objectClass) {
+        this.objectClass = objectClass;
+    }
 
     @Override
     public void init(EndpointConfig config) {
@@ -34,17 +46,57 @@ public abstract class JacksonDecoder implements Decoder {
 
     }
 
-    public abstract static class Text<T> extends JacksonDecoder implements Decoder.Text<T> {
-        private Class<T> objectClass;
+    /**
+     * <p>getMapper.</p>
+     *
+     * @return a {@link com.fasterxml.jackson.databind.ObjectMapper} object.
+     */
+    protected ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * <p>getReader.</p>
+     *
+     * @return a {@link com.fasterxml.jackson.databind.ObjectReader} object.
+     */
+    protected ObjectReader getReader() {
+        ObjectReader r = reader;
+        if (r == null) {
+            reader = r = getMapper().readerFor(objectClass);
+        }
+        return r;
+    }
+
+    /**
+     * Check the content is well formed by streaming over its tokens, no tree is built.
+     *
+     * @param parser a {@link com.fasterxml.jackson.core.JsonParser} object.
+     * @return a boolean.
+     */
+    protected boolean isWellFormed(JsonParser parser) {
+        try (JsonParser p = parser) {
+            if (p.nextToken() == null) {
+                return false;
+            }
+            p.skipChildren();
+            return true;
+        } catch (IOException e) {
+            logger.warn("invalidate json", e);
+            return false;
+        }
+    }
+
+    public abstract static class Text<T> extends JacksonDecoder<T> implements Decoder.Text<T> {
 
         protected Text(Class<T> objectClass) {
-            this.objectClass = objectClass;
+            super(objectClass);
         }
 
         @Override
         public T decode(String s) throws DecodeException {
             try {
-                return mapper.readValue(s, objectClass);
+                return getReader().readValue(s);
             } catch (IOException e) {
                 throw new DecodeException(s, "decode json error", e);
             }
@@ -53,39 +105,42 @@ public abstract class JacksonDecoder implements Decoder {
         @Override
         public boolean willDecode(String s) {
             try {
-                mapper.readTree(s);
+                return isWellFormed(getMapper().getFactory().createParser(s));
             } catch (IOException e) {
                 logger.warn("invalidate json", e);
                 return false;
             }
-            return true;
         }
     }
 
-    public abstract static class TextStream<T> extends JacksonDecoder implements Decoder.TextStream<T> {
-        private Class<T> objectClass;
+    public abstract static class TextStream<T> extends JacksonDecoder<T> implements Decoder.TextStream<T> {
 
         protected TextStream(Class<T> objectClass) {
-            this.objectClass = objectClass;
+            super(objectClass);
         }
 
         @Override
         public T decode(Reader reader) throws DecodeException, IOException {
-            return mapper.readValue(reader, objectClass);
+            return getReader().readValue(reader);
         }
     }
 
-    public abstract static class Binary<T> extends JacksonDecoder implements Decoder.Binary<T> {
-        private Class<T> objectClass;
+    public abstract static class Binary<T> extends JacksonDecoder<T> implements Decoder.Binary<T> {
 
         protected Binary(Class<T> objectClass) {
-            this.objectClass = objectClass;
+            super(objectClass);
         }
 
         @Override
         public T decode(ByteBuffer bytes) throws DecodeException {
             try {
-                return mapper.readValue(new ByteBufferBackedInputStream(bytes), objectClass);
+                if (bytes.hasArray()) {
+                    T value = getReader().readValue(bytes.array(),
+                            bytes.arrayOffset() + bytes.position(), bytes.remaining());
+                    bytes.position(bytes.limit());
+                    return value;
+                }
+                return getReader().readValue(new ByteBufferBackedInputStream(bytes));
             } catch (IOException e) {
                 throw new DecodeException(bytes, "decode json error", e);
             }
@@ -93,28 +148,65 @@ public abstract class JacksonDecoder implements Decoder {
 
         @Override
         public boolean willDecode(ByteBuffer bytes) {
+            // check a view, the buffer will be read again by decode
+            ByteBuffer view = bytes.duplicate();
             try {
-                mapper.readTree(new ByteBufferBackedInputStream(bytes));
+                return isWellFormed(view.hasArray()
+                        ? getMapper().getFactory().createParser(view.array(),
+                        view.arrayOffset() + view.position(), view.remaining())
+                        : getMapper().getFactory().createParser(new ByteBufferBackedInputStream(view)));
             } catch (IOException e) {
                 logger.warn("invalidate json", e);
                 return false;
             }
-            return true;
         }
     }
 
-    public abstract static class BinaryStream<T> extends JacksonDecoder implements Decoder.BinaryStream<T> {
-        private Class<T> objectClass;
+    public abstract static class BinaryStream<T> extends JacksonDecoder<T> implements Decoder.BinaryStream<T> {
 
         protected BinaryStream(Class<T> objectClass) {
-            this.objectClass = objectClass;
+            super(objectClass);
         }
 
         @Override
         public T decode(InputStream is) throws DecodeException, IOException {
-            try (Reader reader = new InputStreamReader(is)) {
-                return mapper.readValue(reader, objectClass);
+            try (InputStream in = is) {
+                return getReader().readValue(in);
             }
         }
     }
+
+    /**
+     * Binary decoder reads Smile, needs jackson-dataformat-smile.
+     *
+     * @param <T> message type
+     */
+    public abstract static class Smile<T> extends Binary<T> {
+
+        protected Smile(Class<T> objectClass) {
+            super(objectClass);
+        }
+
+        @Override
+        protected ObjectMapper getMapper() {
+            return SmileMapper.get(mode);
+        }
+    }
+
+    /**
+     * Binary decoder reads CBOR, needs jackson-dataformat-cbor.
+     *
+     * @param <T> message type
+     */
+    public abstract static class Cbor<T> extends Binary<T> {
+
+        protected Cbor(Class<T> objectClass) {
+            super(objectClass);
+        }
+
+        @Override
+        protected ObjectMapper getMapper() {
+            return CborMapper.get(mode);
+        }
+    }
 }
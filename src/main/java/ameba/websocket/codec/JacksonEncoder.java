@@ -1,7 +1,10 @@
 package ameba.websocket.codec;
 
+import ameba.core.Application;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.Maps;
 
 import javax.inject.Inject;
 import javax.websocket.EncodeException;
@@ -11,13 +14,19 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Jackson encoders, the {@link ObjectWriter} of each message type is resolved once and reused.
+ *
  * @author icode
  */
 public class JacksonEncoder implements Encoder {
     @Inject
     ObjectMapper mapper;
+    @Inject
+    Application.Mode mode;
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = Maps.newConcurrentMap();
 
     @Override
     public void init(EndpointConfig config) {
@@ -26,14 +35,38 @@ public class JacksonEncoder implements Encoder {
 
     @Override
     public void destroy() {
+        writers.clear();
+    }
 
+    /**
+     * <p>getMapper.</p>
+     *
+     * @return a {@link com.fasterxml.jackson.databind.ObjectMapper} object.
+     */
+    protected ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * <p>getWriter.</p>
+     *
+     * @param object a {@link java.lang.Object} object.
+     * @return a {@link com.fasterxml.jackson.databind.ObjectWriter} object.
+     */
+    protected ObjectWriter getWriter(Object object) {
+        Class<?> type = object == null ? Object.class : object.getClass();
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = writers.computeIfAbsent(type, getMapper()::writerFor);
+        }
+        return writer;
     }
 
     public static class Text<T> extends JacksonEncoder implements Encoder.Text<T> {
         @Override
         public String encode(T object) throws EncodeException {
             try {
-                return mapper.writeValueAsString(object);
+                return getWriter(object).writeValueAsString(object);
             } catch (JsonProcessingException e) {
                 throw new EncodeException(object, "encode json error", e);
             }
@@ -43,15 +76,22 @@ public class JacksonEncoder implements Encoder {
     public static class TextStream<T> extends JacksonEncoder implements Encoder.TextStream<T> {
         @Override
         public void encode(T object, Writer writer) throws EncodeException, IOException {
-            mapper.writeValue(writer, object);
+            getWriter(object).writeValue(writer, object);
         }
     }
 
+    /**
+     * Binary encoder. The JSR-356 container owns the returned buffer and gives no
+     * hook to hand it back, so the buffer wraps the bytes Jackson wrote through its
+     * recycled segments instead of coming from a pool.
+     *
+     * @param <T> message type
+     */
     public static class Binary<T> extends JacksonEncoder implements Encoder.Binary<T> {
         @Override
         public ByteBuffer encode(T object) throws EncodeException {
             try {
-                return ByteBuffer.wrap(mapper.writeValueAsBytes(object));
+                return ByteBuffer.wrap(getWriter(object).writeValueAsBytes(object));
             } catch (JsonProcessingException e) {
                 throw new EncodeException(object, "encode json error", e);
             }
@@ -61,7 +101,31 @@ public class JacksonEncoder implements Encoder {
     public static class BinaryStream<T> extends JacksonEncoder implements Encoder.BinaryStream<T> {
         @Override
         public void encode(T object, OutputStream os) throws EncodeException, IOException {
-            mapper.writeValue(os, object);
+            getWriter(object).writeValue(os, object);
+        }
+    }
+
+    /**
+     * Binary encoder writes Smile, needs jackson-dataformat-smile.
+     *
+     * @param <T> message type
+     */
+    public static class Smile<T> extends Binary<T> {
+        @Override
+        protected ObjectMapper getMapper() {
+            return SmileMapper.get(mode);
+        }
+    }
+
+    /**
+     * Binary encoder writes CBOR, needs jackson-dataformat-cbor.
+     *
+     * @param <T> message type
+     */
+    public static class Cbor<T> extends Binary<T> {
+        @Override
+        protected ObjectMapper getMapper() {
+            return CborMapper.get(mode);
         }
     }
 }
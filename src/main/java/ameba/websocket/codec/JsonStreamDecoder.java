@@ -0,0 +1,166 @@
+package ameba.websocket.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incremental JSON decoder on top of the Jackson non-blocking parser.
+ * <p>
+ * Message fragments are fed as they arrive and every root value is decoded as
+ * soon as its last token is parsed, so a large message is never buffered as a
+ * whole and one message may carry many values separated by whitespace or new
+ * lines (NDJSON). Not thread safe, use one instance per session.
+ *
+ * @param <T> decoded type
+ * @author icode
+ */
+public class JsonStreamDecoder<T> {
+    private static final byte[] VALUE_SEPARATOR = {' '};
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private JsonParser parser;
+    private ByteArrayFeeder feeder;
+    private TokenBuffer tokens;
+    private int depth;
+
+    /**
+     * <p>Constructor for JsonStreamDecoder.</p>
+     *
+     * @param mapper a {@link com.fasterxml.jackson.databind.ObjectMapper} object.
+     * @param type   a {@link java.lang.Class} object.
+     */
+    public JsonStreamDecoder(ObjectMapper mapper, Class<T> type) {
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(type);
+    }
+
+    /**
+     * Feed a binary fragment.
+     *
+     * @param fragment a {@link java.nio.ByteBuffer} object.
+     * @param last     whether the fragment ends the message
+     * @return values completed by this fragment
+     * @throws java.io.IOException if the content is not valid JSON or can not be bound to the type
+     */
+    public List<T> decode(ByteBuffer fragment, boolean last) throws IOException {
+        List<T> result;
+        if (fragment.hasArray()) {
+            result = decode(fragment.array(), fragment.arrayOffset() + fragment.position(), fragment.remaining(), last);
+        } else {
+            byte[] bytes = new byte[fragment.remaining()];
+            fragment.duplicate().get(bytes);
+            result = decode(bytes, 0, bytes.length, last);
+        }
+        fragment.position(fragment.limit());
+        return result;
+    }
+
+    /**
+     * Feed a text fragment.
+     *
+     * @param fragment a {@link java.lang.CharSequence} object.
+     * @param last     whether the fragment ends the message
+     * @return values completed by this fragment
+     * @throws java.io.IOException if the content is not valid JSON or can not be bound to the type
+     */
+    public List<T> decode(CharSequence fragment, boolean last) throws IOException {
+        byte[] bytes = fragment.toString().getBytes(StandardCharsets.UTF_8);
+        return decode(bytes, 0, bytes.length, last);
+    }
+
+    /**
+     * Feed a fragment.
+     *
+     * @param bytes  an array of byte.
+     * @param offset a int.
+     * @param length a int.
+     * @param last   whether the fragment ends the message
+     * @return values completed by this fragment
+     * @throws java.io.IOException if the content is not valid JSON or can not be bound to the type
+     */
+    public List<T> decode(byte[] bytes, int offset, int length, boolean last) throws IOException {
+        try {
+            List<T> result = feed(bytes, offset, length);
+            if (last) {
+                // a trailing scalar root value only completes when followed by a separator
+                List<T> tail = feed(VALUE_SEPARATOR, 0, VALUE_SEPARATOR.length);
+                if (depth != 0 || tokens != null) {
+                    throw new IOException("Unexpected end of JSON message, value is incomplete");
+                }
+                if (!tail.isEmpty()) {
+                    if (result.isEmpty()) {
+                        result = tail;
+                    } else {
+                        result.addAll(tail);
+                    }
+                }
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            reset();
+            throw e;
+        }
+    }
+
+    private List<T> feed(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        if (parser == null) {
+            parser = mapper.getFactory().createNonBlockingByteArrayParser();
+            feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+        feeder.feedInput(bytes, offset, offset + length);
+        List<T> result = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+            if (tokens == null) {
+                tokens = new TokenBuffer(parser);
+            }
+            tokens.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth == 0) {
+                if (result == null) {
+                    result = Lists.newArrayList();
+                }
+                try (JsonParser valueParser = tokens.asParser(mapper)) {
+                    result.add(reader.readValue(valueParser));
+                }
+                tokens = null;
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Drop the partially parsed value and start over with the next fragment.
+     */
+    public void reset() {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        parser = null;
+        feeder = null;
+        tokens = null;
+        depth = 0;
+    }
+}
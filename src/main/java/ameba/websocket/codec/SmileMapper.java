@@ -0,0 +1,30 @@
+package ameba.websocket.codec;
+
+import ameba.core.Application;
+import ameba.message.jackson.internal.JacksonUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Smile mappers configured like the JSON one. Kept in its own class so
+ * jackson-dataformat-smile is only loaded when a Smile codec is used.
+ *
+ * @author icode
+ */
+final class SmileMapper {
+    private static final Map<Application.Mode, ObjectMapper> MAPPERS = Maps.newConcurrentMap();
+
+    private SmileMapper() {
+    }
+
+    static ObjectMapper get(Application.Mode mode) {
+        return MAPPERS.computeIfAbsent(mode == null ? Application.Mode.PRODUCT : mode, m -> {
+            ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+            JacksonUtils.configureMapper(mapper, m);
+            return mapper;
+        });
+    }
+}
@@ -1,11 +1,17 @@
 package ameba.websocket.internal;
 
 import ameba.core.Requests;
+import ameba.i18n.Messages;
+import ameba.websocket.CloseReasons;
+import ameba.websocket.JsonStream;
 import ameba.websocket.MaxSessions;
 import ameba.websocket.WebSocket;
 import ameba.websocket.WebSocketException;
 import ameba.websocket.WebSocketSession;
 import ameba.websocket.adapter.standard.StandardWebSocketSession;
+import ameba.websocket.broadcast.SessionRegistry;
+import ameba.websocket.metrics.WebSocketMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Primitives;
@@ -17,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
@@ -39,6 +46,7 @@ public abstract class AbstractAnnotatedEndpointMeta extends EndpointMeta {
     private ParameterExtractor[] onCloseParameters;
     private ParameterExtractor[] onErrorParameters;
     private EndpointConfig configuration;
+    private SessionRegistry sessionRegistry;
 
     public AbstractAnnotatedEndpointMeta(Class endpointClass, InjectionManager manager) {
         super(endpointClass);
@@ -52,6 +60,7 @@ public abstract class AbstractAnnotatedEndpointMeta extends EndpointMeta {
         Class endpointClass = getEndpointClass();
         final ErrorCollector collector = new ErrorCollector();
         configuration = createEndpointConfig(endpointClass, webSocket);
+        metrics.setMaxSessions(getMaxSessions(endpointClass));
 
         Method onOpen = null;
         Method onClose = null;
@@ -128,11 +137,13 @@ public abstract class AbstractAnnotatedEndpointMeta extends EndpointMeta {
                     if (unknownParams.size() == 1) {
                         Map.Entry<Integer, Class<?>> entry = unknownParams.entrySet().iterator().next();
                         extractors[entry.getKey()] = new ParamValue(0);
+                        JsonStream jsonStream = m.getAnnotation(JsonStream.class);
                         try {
-                            handlerFactory = new WholeHandler(
-                                    MethodHandles.publicLookup().unreflect(getInvocableMethod(m)),
-                                    extractors,
-                                    entry.getValue(), maxMessageSize);
+                            MethodHandle handle = MethodHandles.publicLookup().unreflect(getInvocableMethod(m));
+                            handlerFactory = jsonStream == null
+                                    ? new WholeHandler(handle, extractors, entry.getValue(), maxMessageSize)
+                                    : new JsonStreamHandler(handle, extractors, entry.getValue(), maxMessageSize,
+                                    jsonStream.binary(), () -> manager.getInstance(ObjectMapper.class));
                         } catch (IllegalAccessException e) {
                             throw new WebSocketException(e);
                         }
@@ -369,23 +380,7 @@ public abstract class AbstractAnnotatedEndpointMeta extends EndpointMeta {
                 } else {
                     sessionPresent = true;
                 }
-                result[i] = (session, values) -> {
-                    Map<String, Object> props = session.getUserProperties();
-                    StandardWebSocketSession standard = (StandardWebSocketSession) props.get(SESSION_INJECT_KEY);
-                    if (standard == null) {
-                        standard = new StandardWebSocketSession(
-                                Requests.getHeaders(),
-                                session.getRequestParameterMap(),
-                                session.getPathParameters(),
-                                session.getUserProperties(),
-                                new InetSocketAddress(Requests.getLocalName(), Requests.getLocalPort()),
-                                new InetSocketAddress(Requests.getRemoteHost(), Requests.getRemotePort())
-                        );
-                        standard.initializeNativeSession(session);
-                        props.put(SESSION_INJECT_KEY, standard);
-                    }
-                    return standard;
-                };
+                result[i] = (session, values) -> getWebSocketSession(session);
             } else if (type == EndpointConfig.class) {
                 result[i] = (session, values) -> getEndpointConfig();
             } else if (params.contains(type)) {
@@ -406,6 +401,62 @@ public abstract class AbstractAnnotatedEndpointMeta extends EndpointMeta {
         return result;
     }
 
+    protected WebSocketSession getWebSocketSession(Session session) {
+        Map<String, Object> props = session.getUserProperties();
+        StandardWebSocketSession standard = (StandardWebSocketSession) props.get(SESSION_INJECT_KEY);
+        if (standard == null) {
+            standard = new StandardWebSocketSession(
+                    Requests.getHeaders(),
+                    session.getRequestParameterMap(),
+                    session.getPathParameters(),
+                    session.getUserProperties(),
+                    new InetSocketAddress(Requests.getLocalName(), Requests.getLocalPort()),
+                    new InetSocketAddress(Requests.getRemoteHost(), Requests.getRemotePort())
+            );
+            standard.initializeNativeSession(session);
+            props.put(SESSION_INJECT_KEY, standard);
+        }
+        return standard;
+    }
+
+    protected SessionRegistry getSessionRegistry() {
+        if (sessionRegistry == null) {
+            sessionRegistry = manager.getInstance(SessionRegistry.class);
+        }
+        return sessionRegistry;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig configuration) {
+        if (!metrics.tryAdmit()) {
+            logger.warn(Messages.get("web.socket.session.limit", getEndpointClass().getName(),
+                    metrics.getMaxSessions()));
+            try {
+                session.close(CloseReasons.TRY_AGAIN_LATER.getCloseReason());
+            } catch (IOException e) {
+                logger.debug(e.getMessage(), e);
+            }
+            return;
+        }
+        session.getUserProperties().put(WebSocketMetrics.SESSION_METRICS_KEY, metrics);
+        getSessionRegistry().register(getWebSocketSession(session));
+        super.onOpen(session, configuration);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        if (session.getUserProperties().remove(WebSocketMetrics.SESSION_METRICS_KEY) == null) {
+            // rejected by max sessions, never opened
+            return;
+        }
+        try {
+            super.onClose(session, closeReason);
+        } finally {
+            metrics.release();
+            getSessionRegistry().unregister(getWebSocketSession(session));
+        }
+    }
+
     protected String getPathParamName(Annotation[] annotations) {
         for (Annotation a : annotations) {
             if (a instanceof PathParam) {
@@ -3,17 +3,24 @@ package ameba.websocket.internal;
 import ameba.i18n.Messages;
 import ameba.util.ClassUtils;
 import ameba.websocket.CloseReasons;
+import ameba.websocket.codec.JsonStreamDecoder;
+import ameba.websocket.metrics.EndpointMetrics;
+import ameba.websocket.metrics.WebSocketMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Primitives;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.websocket.*;
+import java.io.IOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * <p>Abstract EndpointMeta class.</p>
@@ -24,6 +31,7 @@ import java.util.Set;
 public abstract class EndpointMeta {
     private static final Logger logger = LoggerFactory.getLogger(EndpointMeta.class);
     protected final Set<MessageHandlerFactory> messageHandlerFactories = Sets.newLinkedHashSet();
+    protected final EndpointMetrics metrics;
     private Class endpointClass;
 
     /**
@@ -33,6 +41,7 @@ public abstract class EndpointMeta {
      */
     public EndpointMeta(Class endpointClass) {
         this.endpointClass = endpointClass;
+        this.metrics = WebSocketMetrics.register(endpointClass);
     }
 
     static Class<?> getHandlerType(MessageHandler handler) {
@@ -72,6 +81,15 @@ public abstract class EndpointMeta {
         return endpointClass;
     }
 
+    /**
+     * <p>Getter for the field <code>metrics</code>.</p>
+     *
+     * @return a {@link ameba.websocket.metrics.EndpointMetrics} object.
+     */
+    public EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * <p>getEndpoint.</p>
      *
@@ -251,8 +269,10 @@ public abstract class EndpointMeta {
         abstract MessageHandler create(Session session);
 
         protected void sendObject(final Session session, Object msg) {
+            final long start = System.nanoTime();
             session.getAsyncRemote().sendObject(msg, result -> {
                 Throwable e = result.getException();
+                metrics.recordSend(EndpointMetrics.sizeOf(msg), System.nanoTime() - start, e == null);
                 if (e != null) {
                     onError(session, e);
                 }
@@ -270,6 +290,7 @@ public abstract class EndpointMeta {
             return new BasicMessageHandler() {
                 @Override
                 public void onMessage(Object message) {
+                    metrics.recordInbound(message);
                     checkMessageSize(message, getMaxMessageSize());
                     Object result = callMethod(method, extractors, session, true, message);
                     if (result != null) {
@@ -301,6 +322,7 @@ public abstract class EndpointMeta {
 
                 @Override
                 public void onMessage(Object partialMessage, boolean last) {
+                    metrics.recordInbound(partialMessage, last);
                     checkMessageSize(partialMessage, getMaxMessageSize());
                     Object result = callMethod(method, extractors, session, true, partialMessage, last);
                     if (result != null) {
@@ -320,4 +342,56 @@ public abstract class EndpointMeta {
             };
         }
     }
+
+    protected class JsonStreamHandler extends MessageHandlerFactory {
+        private final boolean binary;
+        private final Supplier<ObjectMapper> mapper;
+
+        public JsonStreamHandler(MethodHandle method, ParameterExtractor[] extractors, Class<?> type,
+                                 long maxMessageSize, boolean binary, Supplier<ObjectMapper> mapper) {
+            super(method, extractors, type, maxMessageSize);
+            this.binary = binary;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public MessageHandler create(final Session session) {
+            final JsonStreamDecoder<?> decoder = new JsonStreamDecoder<>(mapper.get(), type);
+            return new AsyncMessageHandler() {
+
+                @Override
+                public void onMessage(Object partialMessage, boolean last) {
+                    metrics.recordInbound(partialMessage, last);
+                    checkMessageSize(partialMessage, getMaxMessageSize());
+                    List<?> values;
+                    try {
+                        values = binary
+                                ? decoder.decode((ByteBuffer) partialMessage, last)
+                                : decoder.decode((String) partialMessage, last);
+                    } catch (IOException e) {
+                        onError(session, binary
+                                ? new DecodeException((ByteBuffer) partialMessage, e.getMessage(), e)
+                                : new DecodeException((String) partialMessage, e.getMessage(), e));
+                        return;
+                    }
+                    for (Object value : values) {
+                        Object result = callMethod(method, extractors, session, true, value);
+                        if (result != null) {
+                            sendObject(session, result);
+                        }
+                    }
+                }
+
+                @Override
+                public Class<?> getType() {
+                    return binary ? ByteBuffer.class : String.class;
+                }
+
+                @Override
+                public long getMaxMessageSize() {
+                    return maxMessageSize;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package ameba.websocket.internal;
+
+import ameba.websocket.sockjs.transport.SockJsService;
+import org.glassfish.jersey.internal.inject.InjectionManager;
+import org.glassfish.jersey.server.model.ModelProcessor;
+import org.glassfish.jersey.server.model.ResourceModel;
+
+import javax.websocket.server.ServerEndpointConfig;
+import javax.ws.rs.core.Configuration;
+import java.util.List;
+
+/**
+ * Mount the SockJS HTTP transports of the endpoints enabled {@link ameba.websocket.WebSocket#withSockJS()}.
+ *
+ * @author icode
+ */
+public class SockJsModelProcessor implements ModelProcessor {
+    private final InjectionManager manager;
+    private final List<ServerEndpointConfig> endpointConfigs;
+
+    /**
+     * <p>Constructor for SockJsModelProcessor.</p>
+     *
+     * @param manager         a {@link org.glassfish.jersey.internal.inject.InjectionManager} object.
+     * @param endpointConfigs the configs of the endpoints with SockJS enabled
+     */
+    public SockJsModelProcessor(InjectionManager manager, List<ServerEndpointConfig> endpointConfigs) {
+        this.manager = manager;
+        this.endpointConfigs = endpointConfigs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResourceModel processResourceModel(ResourceModel resourceModel, Configuration configuration) {
+        ResourceModel.Builder builder = new ResourceModel.Builder(resourceModel.getResources(), false);
+        for (ServerEndpointConfig endpointConfig : endpointConfigs) {
+            builder.addResource(new SockJsService(endpointConfig, manager).buildResource());
+        }
+        return builder.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResourceModel processSubResource(ResourceModel subResourceModel, Configuration configuration) {
+        return subResourceModel;
+    }
+}
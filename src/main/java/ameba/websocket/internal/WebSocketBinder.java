@@ -1,8 +1,16 @@
 package ameba.websocket.internal;
 
 import ameba.websocket.WebSocketAddon;
+import ameba.websocket.broadcast.Broadcaster;
+import ameba.websocket.broadcast.SessionRegistry;
+import ameba.websocket.sockjs.transport.EventSourceTransport;
+import ameba.websocket.sockjs.transport.SockJsSessionManager;
+import ameba.websocket.sockjs.transport.XhrPollingTransport;
+import ameba.websocket.sockjs.transport.XhrStreamingTransport;
 import org.glassfish.jersey.internal.inject.AbstractBinder;
 
+import javax.inject.Singleton;
+
 /**
  * <p>WebSocketBinder class.</p>
  *
@@ -18,7 +26,12 @@ public class WebSocketBinder extends AbstractBinder {
     @Override
     protected void configure() {
         if (WebSocketAddon.isEnabled()) {
-
+            bindAsContract(SessionRegistry.class).in(Singleton.class);
+            bindAsContract(Broadcaster.class).in(Singleton.class);
+            bindAsContract(SockJsSessionManager.class).in(Singleton.class);
+            bindAsContract(XhrStreamingTransport.class).in(Singleton.class);
+            bindAsContract(EventSourceTransport.class).in(Singleton.class);
+            bindAsContract(XhrPollingTransport.class).in(Singleton.class);
         }
     }
 }
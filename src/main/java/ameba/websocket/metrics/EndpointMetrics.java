@@ -0,0 +1,278 @@
+package ameba.websocket.metrics;
+
+import com.google.common.base.Utf8;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters of one WebSocket endpoint.
+ * <p>
+ * The open session counter is also used for {@link ameba.websocket.MaxSessions}
+ * admission, a session is admitted only if it can increase the counter without
+ * going over the limit.
+ *
+ * @author icode
+ */
+public class EndpointMetrics {
+    private final Class<?> endpointClass;
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final LongAdder totalSessions = new LongAdder();
+    private final LongAdder rejectedSessions = new LongAdder();
+    private final LongAdder inboundMessages = new LongAdder();
+    private final LongAdder inboundBytes = new LongAdder();
+    private final LongAdder outboundMessages = new LongAdder();
+    private final LongAdder outboundBytes = new LongAdder();
+    private final LongAdder unsizedOutboundMessages = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder queuedMessages = new LongAdder();
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+    private volatile int maxSessions = -1;
+
+    EndpointMetrics(Class<?> endpointClass) {
+        this.endpointClass = endpointClass;
+    }
+
+    /**
+     * Size of message payload in bytes, -1 if the message is not a raw payload, such as an object
+     * encoded by an encoder of the endpoint.
+     *
+     * @param message a {@link java.lang.Object} object.
+     * @return a long.
+     */
+    public static long sizeOf(Object message) {
+        if (message instanceof CharSequence) {
+            return Utf8.encodedLength((CharSequence) message);
+        } else if (message instanceof ByteBuffer) {
+            return ((ByteBuffer) message).remaining();
+        } else if (message instanceof byte[]) {
+            return ((byte[]) message).length;
+        }
+        return -1;
+    }
+
+    /**
+     * Try to take a session slot.
+     *
+     * @return false if the endpoint already has max sessions open
+     */
+    public boolean tryAdmit() {
+        for (; ; ) {
+            int open = openSessions.get();
+            int max = maxSessions;
+            if (max > 0 && open >= max) {
+                rejectedSessions.increment();
+                return false;
+            }
+            if (openSessions.compareAndSet(open, open + 1)) {
+                totalSessions.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot taken by {@link #tryAdmit()}.
+     */
+    public void release() {
+        openSessions.decrementAndGet();
+    }
+
+    /**
+     * <p>recordInbound.</p>
+     *
+     * @param message a {@link java.lang.Object} object.
+     */
+    public void recordInbound(Object message) {
+        recordInbound(message, true);
+    }
+
+    /**
+     * Record a fragment of an inbound message, the message is counted on its last fragment.
+     *
+     * @param message the fragment
+     * @param last    whether it is the last fragment of the message
+     */
+    public void recordInbound(Object message, boolean last) {
+        if (last) {
+            inboundMessages.increment();
+        }
+        long bytes = sizeOf(message);
+        if (bytes > 0) {
+            inboundBytes.add(bytes);
+        }
+    }
+
+    /**
+     * <p>recordSend.</p>
+     *
+     * @param bytes   payload bytes, negative if unknown
+     * @param nanos   a long.
+     * @param success a boolean.
+     */
+    public void recordSend(long bytes, long nanos, boolean success) {
+        if (success) {
+            outboundMessages.increment();
+            if (bytes < 0) {
+                unsizedOutboundMessages.increment();
+            } else {
+                outboundBytes.add(bytes);
+            }
+            sendLatency.record(nanos);
+        } else {
+            sendErrors.increment();
+        }
+    }
+
+    /**
+     * <p>addQueued.</p>
+     *
+     * @param delta a long.
+     */
+    public void addQueued(long delta) {
+        queuedMessages.add(delta);
+    }
+
+    /**
+     * <p>Getter for the field <code>endpointClass</code>.</p>
+     *
+     * @return a {@link java.lang.Class} object.
+     */
+    public Class<?> getEndpointClass() {
+        return endpointClass;
+    }
+
+    /**
+     * <p>Getter for the field <code>maxSessions</code>.</p>
+     *
+     * @return max sessions, not greater than 0 means no limit
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * <p>Setter for the field <code>maxSessions</code>.</p>
+     *
+     * @param maxSessions a int.
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * <p>getOpenSessions.</p>
+     *
+     * @return a int.
+     */
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    /**
+     * <p>getTotalSessions.</p>
+     *
+     * @return a long.
+     */
+    public long getTotalSessions() {
+        return totalSessions.sum();
+    }
+
+    /**
+     * <p>getRejectedSessions.</p>
+     *
+     * @return a long.
+     */
+    public long getRejectedSessions() {
+        return rejectedSessions.sum();
+    }
+
+    /**
+     * <p>getInboundMessages.</p>
+     *
+     * @return a long.
+     */
+    public long getInboundMessages() {
+        return inboundMessages.sum();
+    }
+
+    /**
+     * <p>getInboundBytes.</p>
+     *
+     * @return a long.
+     */
+    public long getInboundBytes() {
+        return inboundBytes.sum();
+    }
+
+    /**
+     * <p>getOutboundMessages.</p>
+     *
+     * @return a long.
+     */
+    public long getOutboundMessages() {
+        return outboundMessages.sum();
+    }
+
+    /**
+     * <p>getOutboundBytes.</p>
+     *
+     * @return a long.
+     */
+    public long getOutboundBytes() {
+        return outboundBytes.sum();
+    }
+
+    /**
+     * Messages sent through an encoder of the endpoint, their size is not in the outbound bytes.
+     *
+     * @return a long.
+     */
+    public long getUnsizedOutboundMessages() {
+        return unsizedOutboundMessages.sum();
+    }
+
+    /**
+     * <p>getSendErrors.</p>
+     *
+     * @return a long.
+     */
+    public long getSendErrors() {
+        return sendErrors.sum();
+    }
+
+    /**
+     * Messages waiting in the broadcast queues of the endpoint sessions.
+     *
+     * @return a long.
+     */
+    public long getQueuedMessages() {
+        return queuedMessages.sum();
+    }
+
+    /**
+     * <p>Getter for the field <code>sendLatency</code>.</p>
+     *
+     * @return a {@link ameba.websocket.metrics.LatencyHistogram} object.
+     */
+    public LatencyHistogram getSendLatency() {
+        return sendLatency;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "EndpointMetrics[" + endpointClass.getName()
+                + ", open=" + getOpenSessions()
+                + ", max=" + maxSessions
+                + ", rejected=" + getRejectedSessions()
+                + ", in=" + getInboundMessages() + "/" + getInboundBytes() + "B"
+                + ", out=" + getOutboundMessages() + "/" + getOutboundBytes() + "B"
+                + ", unsized=" + getUnsizedOutboundMessages()
+                + ", queued=" + getQueuedMessages()
+                + ", p99=" + sendLatency.getPercentile(99) + "us]";
+    }
+}
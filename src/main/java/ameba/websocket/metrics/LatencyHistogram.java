@@ -0,0 +1,99 @@
+package ameba.websocket.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with power of two microsecond buckets.
+ * <p>
+ * Bucket {@code i} counts values below {@code 2^i} microseconds, the last bucket
+ * takes everything above, so percentiles are reported as bucket upper bounds.
+ *
+ * @author icode
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 32;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * <p>Constructor for LatencyHistogram.</p>
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * <p>record.</p>
+     *
+     * @param nanos a long.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        buckets[bucket].increment();
+        count.increment();
+        sum.add(micros);
+    }
+
+    /**
+     * <p>getCount.</p>
+     *
+     * @return a long.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * <p>getMean.</p>
+     *
+     * @return mean in microseconds
+     */
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) sum.sum() / c;
+    }
+
+    /**
+     * <p>getPercentile.</p>
+     *
+     * @param percentile between 0 and 100
+     * @return upper bound in microseconds of the bucket holding the percentile
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = getBuckets();
+        long total = 0;
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100d);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Count of each bucket, bucket {@code i} holds values below {@code 2^i} microseconds.
+     *
+     * @return an array of long.
+     */
+    public long[] getBuckets() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+        }
+        return snapshot;
+    }
+}
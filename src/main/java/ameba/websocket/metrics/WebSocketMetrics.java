@@ -0,0 +1,52 @@
+package ameba.websocket.metrics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runtime view of the metrics of all WebSocket endpoints.
+ *
+ * @author icode
+ */
+public class WebSocketMetrics {
+    /**
+     * session user property holds the {@link EndpointMetrics} of an admitted session
+     */
+    public static final String SESSION_METRICS_KEY = "ameba.websocket.metrics";
+    private static final ConcurrentMap<Class<?>, EndpointMetrics> METRICS = Maps.newConcurrentMap();
+
+    private WebSocketMetrics() {
+    }
+
+    /**
+     * Get or create the metrics of the endpoint.
+     *
+     * @param endpointClass a {@link java.lang.Class} object.
+     * @return a {@link ameba.websocket.metrics.EndpointMetrics} object.
+     */
+    public static EndpointMetrics register(Class<?> endpointClass) {
+        return METRICS.computeIfAbsent(endpointClass, EndpointMetrics::new);
+    }
+
+    /**
+     * <p>getMetrics.</p>
+     *
+     * @param endpointClass a {@link java.lang.Class} object.
+     * @return metrics or null if the endpoint is not registered
+     */
+    public static EndpointMetrics getMetrics(Class<?> endpointClass) {
+        return METRICS.get(endpointClass);
+    }
+
+    /**
+     * <p>getAllMetrics.</p>
+     *
+     * @return a {@link java.util.Collection} object.
+     */
+    public static Collection<EndpointMetrics> getAllMetrics() {
+        return ImmutableList.copyOf(METRICS.values());
+    }
+}
@@ -0,0 +1,88 @@
+package ameba.websocket.sockjs.transport;
+
+import ameba.websocket.sockjs.frame.SockJsFrame;
+import org.glassfish.jersey.server.ChunkedOutput;
+
+import javax.inject.Inject;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Base of the SockJS HTTP transports. The session id is read from the
+ * {@code session} path parameter of {@code /{server}/{session}/{transport}}.
+ *
+ * @author icode
+ */
+public abstract class AbstractHttpTransport implements Transport {
+    /**
+     * Constant <code>SESSION_PARAM_NAME="session"</code>
+     */
+    public static final String SESSION_PARAM_NAME = "session";
+    /**
+     * Constant <code>JAVASCRIPT_TYPE</code>
+     */
+    public static final MediaType JAVASCRIPT_TYPE = new MediaType("application", "javascript", "UTF-8");
+
+    @Inject
+    private SockJsSessionManager sessionManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChunkedOutput apply(ContainerRequestContext containerRequestContext) {
+        return receive(sessionManager.getOrCreateSession(getSessionId(containerRequestContext)));
+    }
+
+    static String getSessionId(ContainerRequestContext requestContext) {
+        String sessionId = requestContext.getUriInfo().getPathParameters().getFirst(SESSION_PARAM_NAME);
+        if (sessionId == null || sessionId.isEmpty() || sessionId.indexOf('.') != -1) {
+            throw new NotFoundException();
+        }
+        return sessionId;
+    }
+
+    /**
+     * Attach a new response to the session, the frames of the session are written to it.
+     *
+     * @param session a {@link ameba.websocket.sockjs.transport.SockJsSession} object.
+     * @return the response entity
+     */
+    ChunkedOutput<String> receive(SockJsSession session) {
+        ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+        session.attach(output, this);
+        return output;
+    }
+
+    /**
+     * The media type of the response.
+     *
+     * @return a {@link javax.ws.rs.core.MediaType} object.
+     */
+    public abstract MediaType getMediaType();
+
+    /**
+     * Whether the response stays open after a frame is written.
+     *
+     * @return a boolean.
+     */
+    public abstract boolean isStreaming();
+
+    /**
+     * Content written before the first frame of the response.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    protected String getPrelude() {
+        return null;
+    }
+
+    /**
+     * Wrap the frame for this transport.
+     *
+     * @param frame a {@link ameba.websocket.sockjs.frame.SockJsFrame} object.
+     * @return a {@link java.lang.String} object.
+     */
+    protected abstract String formatFrame(SockJsFrame frame);
+}
@@ -1,8 +1,8 @@
 package ameba.websocket.sockjs.transport;
 
-import org.glassfish.jersey.server.ChunkedOutput;
+import ameba.websocket.sockjs.frame.SockJsFrame;
 
-import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MediaType;
 
 /**
  * <p>EventSourceTransport class.</p>
@@ -10,12 +10,38 @@ import javax.ws.rs.container.ContainerRequestContext;
  * @author icode
  *
  */
-public class EventSourceTransport implements Transport {
+public class EventSourceTransport extends AbstractHttpTransport {
+    private static final MediaType EVENT_STREAM_TYPE = new MediaType("text", "event-stream", "UTF-8");
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaType getMediaType() {
+        return EVENT_STREAM_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getPrelude() {
+        return "\r\n";
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public ChunkedOutput apply(ContainerRequestContext containerRequestContext) {
-        return null;
+    protected String formatFrame(SockJsFrame frame) {
+        return "data: " + frame.getContent() + "\r\n\r\n";
     }
 }
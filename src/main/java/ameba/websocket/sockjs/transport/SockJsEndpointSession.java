@@ -0,0 +1,582 @@
+package ameba.websocket.sockjs.transport;
+
+import ameba.i18n.Messages;
+import ameba.util.ClassUtils;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+
+import javax.websocket.*;
+import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * The {@link javax.websocket.Session} of an endpoint served over the SockJS HTTP transports.
+ * <p>
+ * Only text messages are supported, the objects are encoded and decoded with the text
+ * encoders and decoders of the endpoint.
+ *
+ * @author icode
+ */
+final class SockJsEndpointSession implements Session {
+    private static final String PROTOCOL_VERSION = "13";
+
+    private final SockJsSession session;
+    private final Endpoint endpoint;
+    private final ServerEndpointConfig config;
+    private final URI requestUri;
+    private final Map<String, List<String>> requestParameters;
+    private final Map<String, String> pathParameters;
+    private final Principal principal;
+    private final boolean secure;
+    private final Map<String, Object> userProperties = Maps.newConcurrentMap();
+    private final Map<Class<?>, MessageHandler> handlers = Maps.newConcurrentMap();
+    private final List<Encoder.Text<?>> encoders = Lists.newArrayList();
+    private final List<Decoder.Text<?>> decoders = Lists.newArrayList();
+    private final AsyncRemote asyncRemote = new AsyncRemote();
+    private final BasicRemote basicRemote = new BasicRemote();
+    private long maxIdleTimeout;
+    private int maxTextMessageBufferSize = Integer.MAX_VALUE;
+    private int maxBinaryMessageBufferSize = Integer.MAX_VALUE;
+
+    SockJsEndpointSession(SockJsSession session,
+                          Endpoint endpoint,
+                          ServerEndpointConfig config,
+                          URI requestUri,
+                          Map<String, List<String>> requestParameters,
+                          Map<String, String> pathParameters,
+                          Principal principal,
+                          boolean secure) {
+        this.session = session;
+        this.endpoint = endpoint;
+        this.config = config;
+        this.requestUri = requestUri;
+        this.requestParameters = ImmutableMap.copyOf(requestParameters);
+        this.pathParameters = ImmutableMap.copyOf(pathParameters);
+        this.principal = principal;
+        this.secure = secure;
+        this.userProperties.putAll(config.getUserProperties());
+        for (Class<? extends Encoder> encoderClass : config.getEncoders()) {
+            if (Encoder.Text.class.isAssignableFrom(encoderClass)) {
+                Encoder.Text<?> encoder = (Encoder.Text<?>) newInstance(encoderClass);
+                encoder.init(config);
+                encoders.add(encoder);
+            }
+        }
+        for (Class<? extends Decoder> decoderClass : config.getDecoders()) {
+            if (Decoder.Text.class.isAssignableFrom(decoderClass)) {
+                Decoder.Text<?> decoder = (Decoder.Text<?>) newInstance(decoderClass);
+                decoder.init(config);
+                decoders.add(decoder);
+            }
+        }
+    }
+
+    private static <T> T newInstance(Class<T> clazz) {
+        try {
+            return clazz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new SockJsException(e);
+        }
+    }
+
+    /**
+     * Open the endpoint and bind the SockJS session to it.
+     */
+    void open() {
+        session.setMessageHandler(this::onMessage);
+        session.setCloseHandler(this::onClose);
+        endpoint.onOpen(this, config);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onMessage(String message) {
+        for (Map.Entry<Class<?>, MessageHandler> entry : handlers.entrySet()) {
+            Class<?> type = entry.getKey();
+            try {
+                Object value;
+                if (type == String.class || type == Object.class) {
+                    value = message;
+                } else if (type == Reader.class) {
+                    value = new StringReader(message);
+                } else {
+                    value = decode(type, message);
+                }
+                if (value == null) {
+                    continue;
+                }
+                MessageHandler handler = entry.getValue();
+                if (handler instanceof MessageHandler.Whole) {
+                    ((MessageHandler.Whole<Object>) handler).onMessage(value);
+                } else {
+                    ((MessageHandler.Partial<Object>) handler).onMessage(value, true);
+                }
+                return;
+            } catch (Exception e) {
+                endpoint.onError(this, e);
+                return;
+            }
+        }
+    }
+
+    private Object decode(Class<?> type, String message) throws DecodeException {
+        for (Decoder.Text<?> decoder : decoders) {
+            Class<?> decodeType = ClassUtils.getGenericClass(decoder.getClass());
+            if ((decodeType == null || type.isAssignableFrom(decodeType)) && decoder.willDecode(message)) {
+                return decoder.decode(message);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String encode(Object message) throws EncodeException {
+        if (message instanceof String) {
+            return (String) message;
+        }
+        for (Encoder.Text<?> encoder : encoders) {
+            Class<?> encodeType = ClassUtils.getGenericClass(encoder.getClass());
+            if (encodeType == null || encodeType.isInstance(message)) {
+                return ((Encoder.Text<Object>) encoder).encode(message);
+            }
+        }
+        if (message != null && (Primitives.isWrapperType(message.getClass()) || message instanceof CharSequence)) {
+            return message.toString();
+        }
+        throw new EncodeException(message, Messages.get("web.socket.sockjs.encoder.missing",
+                message == null ? null : message.getClass().getName()));
+    }
+
+    private void onClose(CloseReason reason) {
+        try {
+            endpoint.onClose(this, reason);
+        } finally {
+            for (Encoder encoder : encoders) {
+                encoder.destroy();
+            }
+            for (Decoder decoder : decoders) {
+                decoder.destroy();
+            }
+        }
+    }
+
+    private void send(String text) throws IOException {
+        if (!session.sendMessage(text)) {
+            throw new IOException(Messages.get("web.socket.sockjs.session.closed", getId()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WebSocketContainer getContainer() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageHandler(MessageHandler handler) {
+        addMessageHandler(ClassUtils.getGenericClass(handler.getClass()), handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> void addMessageHandler(Class<T> clazz, MessageHandler.Whole<T> handler) {
+        addMessageHandler((Class<?>) clazz, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> void addMessageHandler(Class<T> clazz, MessageHandler.Partial<T> handler) {
+        addMessageHandler((Class<?>) clazz, handler);
+    }
+
+    private void addMessageHandler(Class<?> clazz, MessageHandler handler) {
+        Class<?> type = clazz == null ? Object.class : Primitives.wrap(clazz);
+        if (ByteBuffer.class.isAssignableFrom(type) || type == byte[].class
+                || javax.websocket.PongMessage.class.isAssignableFrom(type)) {
+            // binary and pong messages are never sent over SockJS
+            return;
+        }
+        if (handlers.putIfAbsent(type, handler) != null) {
+            throw new IllegalStateException(Messages.get("web.socket.sockjs.handler.duplicate", type.getName()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<MessageHandler> getMessageHandlers() {
+        return Sets.newHashSet(handlers.values());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeMessageHandler(MessageHandler handler) {
+        handlers.values().remove(handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getProtocolVersion() {
+        return PROTOCOL_VERSION;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNegotiatedSubprotocol() {
+        return "";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Extension> getNegotiatedExtensions() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOpen() {
+        return session.isOpen();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxIdleTimeout() {
+        return maxIdleTimeout;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxIdleTimeout(long milliseconds) {
+        this.maxIdleTimeout = milliseconds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxBinaryMessageBufferSize() {
+        return maxBinaryMessageBufferSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxBinaryMessageBufferSize(int length) {
+        this.maxBinaryMessageBufferSize = length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxTextMessageBufferSize() {
+        return maxTextMessageBufferSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxTextMessageBufferSize(int length) {
+        this.maxTextMessageBufferSize = length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RemoteEndpoint.Async getAsyncRemote() {
+        return asyncRemote;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RemoteEndpoint.Basic getBasicRemote() {
+        return basicRemote;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getId() {
+        return session.getId();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close(CloseReason closeReason) {
+        session.close(closeReason);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URI getRequestURI() {
+        return requestUri;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, List<String>> getRequestParameterMap() {
+        return requestParameters;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getQueryString() {
+        return requestUri.getRawQuery();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getUserProperties() {
+        return userProperties;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Principal getUserPrincipal() {
+        return principal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Session> getOpenSessions() {
+        return Collections.singleton(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[id=" + getId() + "]";
+    }
+
+    private Throwable trySend(String text) {
+        try {
+            send(text);
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    private Throwable trySendObject(Object data) {
+        try {
+            send(encode(data));
+            return null;
+        } catch (IOException | EncodeException e) {
+            return e;
+        }
+    }
+
+    private static UnsupportedOperationException binaryUnsupported() {
+        return new UnsupportedOperationException(Messages.get("web.socket.sockjs.binary.unsupported"));
+    }
+
+    private abstract static class AbstractRemote implements RemoteEndpoint {
+        @Override
+        public boolean getBatchingAllowed() {
+            return false;
+        }
+
+        @Override
+        public void setBatchingAllowed(boolean allowed) {
+        }
+
+        @Override
+        public void flushBatch() {
+        }
+
+        @Override
+        public void sendPing(ByteBuffer applicationData) {
+            // SockJS sends its own heartbeat frames
+        }
+
+        @Override
+        public void sendPong(ByteBuffer applicationData) {
+        }
+    }
+
+    private class AsyncRemote extends AbstractRemote implements RemoteEndpoint.Async {
+        private long sendTimeout;
+
+        private CompletableFuture<Void> complete(Throwable e) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (e == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        private void callback(SendHandler handler, Throwable e) {
+            handler.onResult(e == null ? new SendResult() : new SendResult(e));
+        }
+
+        @Override
+        public long getSendTimeout() {
+            return sendTimeout;
+        }
+
+        @Override
+        public void setSendTimeout(long timeoutmillis) {
+            this.sendTimeout = timeoutmillis;
+        }
+
+        @Override
+        public void sendText(String text, SendHandler handler) {
+            callback(handler, trySend(text));
+        }
+
+        @Override
+        public Future<Void> sendText(String text) {
+            return complete(trySend(text));
+        }
+
+        @Override
+        public Future<Void> sendBinary(ByteBuffer data) {
+            return complete(binaryUnsupported());
+        }
+
+        @Override
+        public void sendBinary(ByteBuffer data, SendHandler handler) {
+            callback(handler, binaryUnsupported());
+        }
+
+        @Override
+        public Future<Void> sendObject(Object data) {
+            return complete(trySendObject(data));
+        }
+
+        @Override
+        public void sendObject(Object data, SendHandler handler) {
+            callback(handler, trySendObject(data));
+        }
+    }
+
+    private class BasicRemote extends AbstractRemote implements RemoteEndpoint.Basic {
+        @Override
+        public void sendText(String text) throws IOException {
+            send(text);
+        }
+
+        @Override
+        public void sendBinary(ByteBuffer data) {
+            throw binaryUnsupported();
+        }
+
+        @Override
+        public void sendText(String partialMessage, boolean isLast) throws IOException {
+            send(partialMessage);
+        }
+
+        @Override
+        public void sendBinary(ByteBuffer partialByte, boolean isLast) {
+            throw binaryUnsupported();
+        }
+
+        @Override
+        public OutputStream getSendStream() {
+            throw binaryUnsupported();
+        }
+
+        @Override
+        public Writer getSendWriter() {
+            return new StringWriter() {
+                @Override
+                public void close() throws IOException {
+                    send(toString());
+                }
+            };
+        }
+
+        @Override
+        public void sendObject(Object data) throws IOException, EncodeException {
+            send(encode(data));
+        }
+    }
+}
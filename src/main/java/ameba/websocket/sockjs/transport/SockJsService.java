@@ -0,0 +1,165 @@
+package ameba.websocket.sockjs.transport;
+
+import ameba.websocket.CloseReasons;
+import ameba.websocket.WebSocketException;
+import ameba.websocket.internal.EndpointDelegate;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.internal.inject.InjectionManager;
+import org.glassfish.jersey.process.Inflector;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import javax.websocket.Endpoint;
+import javax.websocket.server.ServerEndpointConfig;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The SockJS HTTP service of a WebSocket endpoint, mounted under the endpoint path:
+ * <pre>
+ * GET  {path}/info
+ * POST {path}/{server}/{session}/xhr_streaming
+ * GET  {path}/{server}/{session}/eventsource
+ * POST {path}/{server}/{session}/xhr
+ * POST {path}/{server}/{session}/xhr_send
+ * </pre>
+ * The endpoint is opened on the first receiving request of a session, the messages posted
+ * to {@code xhr_send} are passed to it and its replies are written to the receiving transport.
+ * <p>
+ * The {@code websocket} transport of SockJS is not provided, WebSocket clients connect to the
+ * endpoint path directly.
+ *
+ * @author icode
+ */
+public class SockJsService {
+    /**
+     * Constant <code>SERVER_PARAM_NAME="server"</code>
+     */
+    public static final String SERVER_PARAM_NAME = "server";
+    private static final String SESSION_PATH = "{" + SERVER_PARAM_NAME + "}/{"
+            + AbstractHttpTransport.SESSION_PARAM_NAME + "}/";
+    private static final String NO_CACHE = "no-store, no-cache, must-revalidate, max-age=0";
+
+    private final ServerEndpointConfig config;
+    private final SockJsSessionManager sessionManager;
+    private final Map<String, AbstractHttpTransport> transports = Maps.newLinkedHashMap();
+
+    /**
+     * <p>Constructor for SockJsService.</p>
+     *
+     * @param config  the endpoint config
+     * @param manager a {@link org.glassfish.jersey.internal.inject.InjectionManager} object.
+     */
+    public SockJsService(ServerEndpointConfig config, InjectionManager manager) {
+        this.config = config;
+        this.sessionManager = manager.getInstance(SockJsSessionManager.class);
+        transports.put("xhr_streaming", manager.getInstance(XhrStreamingTransport.class));
+        transports.put("eventsource", manager.getInstance(EventSourceTransport.class));
+        transports.put("xhr", manager.getInstance(XhrPollingTransport.class));
+    }
+
+    private static Response.ResponseBuilder noCache(Response.ResponseBuilder builder) {
+        return builder.header(HttpHeaders.CACHE_CONTROL, NO_CACHE);
+    }
+
+    /**
+     * Build the resource of the service.
+     *
+     * @return a {@link org.glassfish.jersey.server.model.Resource} object.
+     */
+    public Resource buildResource() {
+        Resource.Builder builder = Resource.builder(config.getPath());
+        builder.addChildResource("info")
+                .addMethod(HttpMethod.GET)
+                .produces(MediaType.APPLICATION_JSON_TYPE.withCharset("UTF-8"))
+                .handledBy((Inflector<ContainerRequestContext, Response>) request -> info());
+        transports.forEach((name, transport) -> {
+            ResourceMethod.Builder method = builder.addChildResource(SESSION_PATH + name)
+                    .addMethod(name.equals("eventsource") ? HttpMethod.GET : HttpMethod.POST);
+            method.produces(transport.getMediaType())
+                    .handledBy((Inflector<ContainerRequestContext, Response>) request -> receive(request, transport));
+        });
+        builder.addChildResource(SESSION_PATH + "xhr_send")
+                .addMethod(HttpMethod.POST)
+                .produces(MediaType.TEXT_PLAIN_TYPE.withCharset("UTF-8"))
+                .handledBy((Inflector<ContainerRequestContext, Response>) this::send);
+        return builder.build();
+    }
+
+    private Response info() {
+        String info = "{\"entropy\":" + (ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE)
+                + ",\"origins\":[\"*:*\"],\"cookie_needed\":false,\"websocket\":false}";
+        return noCache(Response.ok(info)).build();
+    }
+
+    private Response receive(ContainerRequestContext request, AbstractHttpTransport transport) {
+        String sessionId = AbstractHttpTransport.getSessionId(request);
+        SockJsSession session = sessionManager.getOrCreateSession(sessionId, created -> {
+            try {
+                open(created, request);
+            } catch (RuntimeException e) {
+                created.close(CloseReasons.UNEXPECTED_CONDITION.getCloseReason());
+                throw e;
+            }
+        });
+        return noCache(Response.ok(transport.receive(session), transport.getMediaType())).build();
+    }
+
+    private void open(SockJsSession session, ContainerRequestContext request) {
+        Endpoint endpoint;
+        try {
+            endpoint = config.getConfigurator().getEndpointInstance(EndpointDelegate.class);
+        } catch (InstantiationException e) {
+            throw new WebSocketException(e);
+        }
+        MultivaluedMap<String, String> pathParameters = request.getUriInfo().getPathParameters();
+        Map<String, String> params = Maps.newLinkedHashMap();
+        pathParameters.forEach((name, values) -> {
+            if (!name.equals(SERVER_PARAM_NAME) && !name.equals(AbstractHttpTransport.SESSION_PARAM_NAME)
+                    && !values.isEmpty()) {
+                params.put(name, values.get(0));
+            }
+        });
+        SecurityContext securityContext = request.getSecurityContext();
+        Principal principal = securityContext == null ? null : securityContext.getUserPrincipal();
+        new SockJsEndpointSession(
+                session,
+                endpoint,
+                config,
+                request.getUriInfo().getRequestUri(),
+                request.getUriInfo().getQueryParameters(),
+                params,
+                principal,
+                securityContext != null && securityContext.isSecure()
+        ).open();
+    }
+
+    private Response send(ContainerRequestContext request) {
+        SockJsSession session = sessionManager.getSession(AbstractHttpTransport.getSessionId(request));
+        if (session == null) {
+            throw new NotFoundException();
+        }
+        String content = ((ContainerRequest) request).readEntity(String.class);
+        if (StringUtils.isBlank(content)) {
+            return Response.serverError().entity("Payload expected.").build();
+        }
+        try {
+            session.handleMessageFrame(content);
+        } catch (IOException e) {
+            return Response.serverError().entity("Broken JSON encoding.").build();
+        }
+        return noCache(Response.noContent()).build();
+    }
+}
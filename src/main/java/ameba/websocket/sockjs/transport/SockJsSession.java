@@ -0,0 +1,254 @@
+package ameba.websocket.sockjs.transport;
+
+import ameba.i18n.Messages;
+import ameba.websocket.CloseReasons;
+import ameba.websocket.sockjs.frame.SockJsFrame;
+import com.google.common.base.Utf8;
+import com.google.common.collect.Queues;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.CloseReason;
+import java.io.IOException;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Server side state of a SockJS session served over HTTP transports.
+ * <p>
+ * Outgoing messages are buffered until a receiver (the chunked response of a
+ * streaming or polling request) is attached, everything buffered is then written
+ * as a single {@code a[...]} frame. The buffer is bounded, a session that can
+ * not keep up is closed.
+ *
+ * @author icode
+ */
+public class SockJsSession {
+    private static final Logger logger = LoggerFactory.getLogger(SockJsSession.class);
+    private final String id;
+    private final SockJsSessionManager manager;
+    private final Deque<String> buffer = Queues.newArrayDeque();
+    private AbstractHttpTransport transport;
+    private volatile ChunkedOutput<String> receiver;
+    private long written;
+    private volatile long lastActive = System.currentTimeMillis();
+    private volatile long lastWrite;
+    private boolean opened;
+    private volatile boolean closed;
+    private SockJsFrame closeFrame;
+    private Consumer<String> messageHandler;
+    private Consumer<CloseReason> closeHandler;
+
+    SockJsSession(String id, SockJsSessionManager manager) {
+        this.id = id;
+        this.manager = manager;
+    }
+
+    /**
+     * <p>Getter for the field <code>id</code>.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * <p>isOpen.</p>
+     *
+     * @return a boolean.
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Set the handler receives the messages sent by the client.
+     *
+     * @param messageHandler a {@link java.util.function.Consumer} object.
+     */
+    public void setMessageHandler(Consumer<String> messageHandler) {
+        this.messageHandler = messageHandler;
+    }
+
+    /**
+     * Set the handler called once the session is closed.
+     *
+     * @param closeHandler a {@link java.util.function.Consumer} object.
+     */
+    public void setCloseHandler(Consumer<CloseReason> closeHandler) {
+        this.closeHandler = closeHandler;
+    }
+
+    /**
+     * Queue a message for the client, it will be written with other queued
+     * messages in one frame as soon as a receiver is attached.
+     *
+     * @param message a {@link java.lang.String} object.
+     * @return false if the session is closed or its buffer overflowed
+     */
+    public synchronized boolean sendMessage(String message) {
+        if (closed) {
+            return false;
+        }
+        if (buffer.size() >= manager.getBufferSize()) {
+            logger.warn(Messages.get("web.socket.sockjs.buffer.overflow", id, manager.getBufferSize()));
+            close(CloseReasons.TRY_AGAIN_LATER.getCloseReason());
+            return false;
+        }
+        buffer.add(message);
+        flush();
+        return true;
+    }
+
+    /**
+     * Decode a message frame sent by the client and pass the messages to the handler.
+     *
+     * @param content a {@link java.lang.String} object.
+     * @throws java.io.IOException if the content could not be parsed
+     */
+    public void handleMessageFrame(String content) throws IOException {
+        String[] messages = manager.getMessageCodec().decode(content);
+        lastActive = System.currentTimeMillis();
+        if (messages == null || messageHandler == null) {
+            return;
+        }
+        for (String message : messages) {
+            messageHandler.accept(message);
+        }
+    }
+
+    synchronized void attach(ChunkedOutput<String> output, AbstractHttpTransport transport) {
+        if (closed) {
+            writeAndClose(output, transport, closeFrame == null ? SockJsFrame.closeFrameGoAway() : closeFrame);
+            return;
+        }
+        if (receiver != null && !receiver.isClosed()) {
+            writeAndClose(output, transport, SockJsFrame.closeFrameAnotherConnectionOpen());
+            return;
+        }
+        this.receiver = output;
+        this.transport = transport;
+        this.written = 0;
+        this.lastActive = System.currentTimeMillis();
+        String prelude = transport.getPrelude();
+        if (prelude != null && !write(prelude)) {
+            return;
+        }
+        if (!opened) {
+            opened = true;
+            writeFrame(SockJsFrame.openFrame());
+        }
+        // the messages queued before the open frame or while no receiver was attached
+        flush();
+    }
+
+    private void writeAndClose(ChunkedOutput<String> output,
+                               AbstractHttpTransport transport, SockJsFrame frame) {
+        try {
+            String prelude = transport.getPrelude();
+            if (prelude != null) {
+                output.write(prelude);
+            }
+            output.write(transport.formatFrame(frame));
+        } catch (IOException e) {
+            logger.debug(e.getMessage(), e);
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    private void flush() {
+        if (receiver == null || buffer.isEmpty()) {
+            return;
+        }
+        String[] messages = buffer.toArray(new String[buffer.size()]);
+        buffer.clear();
+        writeFrame(SockJsFrame.messageFrame(manager.getMessageCodec(), messages));
+    }
+
+    private void writeFrame(SockJsFrame frame) {
+        if (write(transport.formatFrame(frame))
+                && (!transport.isStreaming() || written >= manager.getStreamBytesLimit())) {
+            detach();
+        }
+    }
+
+    private boolean write(String chunk) {
+        try {
+            receiver.write(chunk);
+            written += Utf8.encodedLength(chunk);
+            lastWrite = lastActive = System.currentTimeMillis();
+            return true;
+        } catch (IOException e) {
+            logger.debug(Messages.get("web.socket.sockjs.write.error", id), e);
+            detach();
+            return false;
+        }
+    }
+
+    private void detach() {
+        closeQuietly(receiver);
+        receiver = null;
+        transport = null;
+        lastActive = System.currentTimeMillis();
+    }
+
+    private static void closeQuietly(ChunkedOutput<String> output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    synchronized void heartbeat(long now) {
+        if (receiver != null && receiver.isClosed()) {
+            detach();
+        } else if (receiver != null && now - lastWrite >= manager.getHeartbeatTime()) {
+            writeFrame(SockJsFrame.heartbeatFrame());
+        }
+    }
+
+    boolean isExpired(long now) {
+        return closed || receiver == null && now - lastActive > manager.getDisconnectDelay();
+    }
+
+    /**
+     * Close the session, the client will receive a close frame if a receiver is attached.
+     *
+     * @param reason a {@link javax.websocket.CloseReason} object.
+     */
+    public void close(CloseReason reason) {
+        String phrase = reason.getReasonPhrase();
+        close(SockJsFrame.closeFrame(reason.getCloseCode().getCode(), phrase == null ? "" : phrase), reason);
+    }
+
+    void close(SockJsFrame frame, CloseReason reason) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeFrame = frame;
+            buffer.clear();
+            if (receiver != null && write(transport.formatFrame(frame))) {
+                detach();
+            }
+        }
+        manager.remove(this);
+        // out of the lock, the handler may still send to other sessions
+        if (closeHandler != null) {
+            closeHandler.accept(reason);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[id=" + id + "]";
+    }
+}
@@ -0,0 +1,184 @@
+package ameba.websocket.sockjs.transport;
+
+import ameba.i18n.Messages;
+import ameba.websocket.sockjs.frame.Jackson2SockJsMessageCodec;
+import ameba.websocket.sockjs.frame.SockJsFrame;
+import ameba.websocket.sockjs.frame.SockJsMessageCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.websocket.CloseReason;
+import javax.ws.rs.core.Configuration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds the SockJS sessions of the HTTP transports.
+ * <p>
+ * One shared timer sends the heartbeats of all sessions and removes the
+ * sessions whose client has not come back within the disconnect delay.
+ *
+ * @author icode
+ */
+@Singleton
+public class SockJsSessionManager {
+    /**
+     * Constant <code>HEARTBEAT_TIME_CONF="websocket.sockjs.heartbeatTime"</code>
+     */
+    public static final String HEARTBEAT_TIME_CONF = "websocket.sockjs.heartbeatTime";
+    /**
+     * Constant <code>DISCONNECT_DELAY_CONF="websocket.sockjs.disconnectDelay"</code>
+     */
+    public static final String DISCONNECT_DELAY_CONF = "websocket.sockjs.disconnectDelay";
+    /**
+     * Constant <code>STREAM_BYTES_LIMIT_CONF="websocket.sockjs.streamBytesLimit"</code>
+     */
+    public static final String STREAM_BYTES_LIMIT_CONF = "websocket.sockjs.streamBytesLimit";
+    /**
+     * Constant <code>BUFFER_SIZE_CONF="websocket.sockjs.bufferSize"</code>
+     */
+    public static final String BUFFER_SIZE_CONF = "websocket.sockjs.bufferSize";
+    private static final Logger logger = LoggerFactory.getLogger(SockJsSessionManager.class);
+    private static final CloseReason GO_AWAY = new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Go away!");
+
+    private final ConcurrentMap<String, SockJsSession> sessions = Maps.newConcurrentMap();
+    private final SockJsMessageCodec messageCodec;
+    private final ScheduledExecutorService timer;
+    private final long heartbeatTime;
+    private final long disconnectDelay;
+    private final long streamBytesLimit;
+    private final int bufferSize;
+
+    /**
+     * <p>Constructor for SockJsSessionManager.</p>
+     *
+     * @param configuration a {@link javax.ws.rs.core.Configuration} object.
+     * @param objectMapper  a {@link com.fasterxml.jackson.databind.ObjectMapper} object.
+     */
+    @Inject
+    public SockJsSessionManager(Configuration configuration, ObjectMapper objectMapper) {
+        this.messageCodec = new Jackson2SockJsMessageCodec(objectMapper);
+        this.heartbeatTime = getLong(configuration, HEARTBEAT_TIME_CONF, 25000);
+        this.disconnectDelay = getLong(configuration, DISCONNECT_DELAY_CONF, 5000);
+        this.streamBytesLimit = getLong(configuration, STREAM_BYTES_LIMIT_CONF, 128 * 1024);
+        this.bufferSize = (int) getLong(configuration, BUFFER_SIZE_CONF, 1000);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sockjs-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(Math.min(heartbeatTime, disconnectDelay) / 2, 100);
+        timer.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static long getLong(Configuration configuration, String key, long defaultValue) {
+        String value = Objects.toString(configuration.getProperty(key), null);
+        return StringUtils.isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (SockJsSession session : sessions.values()) {
+            try {
+                if (session.isExpired(now)) {
+                    session.close(SockJsFrame.closeFrameGoAway(), GO_AWAY);
+                    sessions.remove(session.getId(), session);
+                } else {
+                    session.heartbeat(now);
+                }
+            } catch (Exception e) {
+                logger.error(Messages.get("web.socket.sockjs.timer.error", session.getId()), e);
+            }
+        }
+    }
+
+    /**
+     * <p>getSession.</p>
+     *
+     * @param id a {@link java.lang.String} object.
+     * @return a {@link ameba.websocket.sockjs.transport.SockJsSession} object.
+     */
+    public SockJsSession getSession(String id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * <p>getSessions.</p>
+     *
+     * @return a {@link java.util.Collection} object.
+     */
+    public Collection<SockJsSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    SockJsSession getOrCreateSession(String id) {
+        return getOrCreateSession(id, null);
+    }
+
+    /**
+     * Get the session or create it, the initializer is called only for the created session,
+     * out of the map lock as it may close the session.
+     */
+    SockJsSession getOrCreateSession(String id, Consumer<SockJsSession> initializer) {
+        SockJsSession session = sessions.get(id);
+        if (session == null) {
+            SockJsSession created = new SockJsSession(id, this);
+            session = sessions.putIfAbsent(id, created);
+            if (session == null) {
+                session = created;
+                if (initializer != null) {
+                    initializer.accept(created);
+                }
+            }
+        }
+        return session;
+    }
+
+    void remove(SockJsSession session) {
+        sessions.remove(session.getId(), session);
+    }
+
+    SockJsMessageCodec getMessageCodec() {
+        return messageCodec;
+    }
+
+    long getHeartbeatTime() {
+        return heartbeatTime;
+    }
+
+    long getDisconnectDelay() {
+        return disconnectDelay;
+    }
+
+    long getStreamBytesLimit() {
+        return streamBytesLimit;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Stop the timer and close all sessions.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        for (SockJsSession session : sessions.values()) {
+            session.close(SockJsFrame.closeFrameGoAway(), GO_AWAY);
+        }
+        sessions.clear();
+    }
+}
@@ -1,8 +1,8 @@
 package ameba.websocket.sockjs.transport;
 
-import org.glassfish.jersey.server.ChunkedOutput;
+import ameba.websocket.sockjs.frame.SockJsFrame;
 
-import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MediaType;
 
 /**
  * <p>XhrPollingTransport class.</p>
@@ -10,12 +10,29 @@ import javax.ws.rs.container.ContainerRequestContext;
  * @author icode
  *
  */
-public class XhrPollingTransport implements Transport {
+public class XhrPollingTransport extends AbstractHttpTransport {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaType getMediaType() {
+        return JAVASCRIPT_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public ChunkedOutput apply(ContainerRequestContext containerRequestContext) {
-        return null;
+    protected String formatFrame(SockJsFrame frame) {
+        return frame.getContent() + "\n";
     }
 }
@@ -1,8 +1,9 @@
 package ameba.websocket.sockjs.transport;
 
-import org.glassfish.jersey.server.ChunkedOutput;
+import ameba.websocket.sockjs.frame.SockJsFrame;
+import com.google.common.base.Strings;
 
-import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MediaType;
 
 /**
  * <p>XhrStreamingTransport class.</p>
@@ -10,12 +11,38 @@ import javax.ws.rs.container.ContainerRequestContext;
  * @author icode
  *
  */
-public class XhrStreamingTransport implements Transport {
+public class XhrStreamingTransport extends AbstractHttpTransport {
+    private static final String PRELUDE = Strings.repeat("h", 2048) + "\n";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaType getMediaType() {
+        return JAVASCRIPT_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getPrelude() {
+        return PRELUDE;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public ChunkedOutput apply(ContainerRequestContext containerRequestContext) {
-        return null;
+    protected String formatFrame(SockJsFrame frame) {
+        return frame.getContent() + "\n";
     }
 }
@@ -0,0 +1,118 @@
+package ameba.container;
+
+import ameba.container.internal.ReloadingHandler;
+import ameba.container.server.Connector;
+import ameba.core.Application;
+import junit.framework.Assert;
+import org.glassfish.jersey.internal.inject.InjectionManager;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+import org.junit.Test;
+
+import javax.websocket.server.ServerContainer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author icode
+ */
+public class ContainerReloadTest {
+
+    @Test
+    public void testListenerReloaded() throws Exception {
+        Application application = new Application() {
+        };
+        RecordListener listener = new RecordListener();
+        application.getConfig().registerInstances(listener);
+        TestContainer container = new TestContainer(application);
+
+        ApplicationHandler first = container.handlers.getHandler();
+        container.reload();
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((listener.reloaded.get() == null || container.handlers.isReloading())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        ApplicationHandler next = container.handlers.getHandler();
+        Assert.assertNotSame(first, next);
+        Assert.assertSame(next, listener.reloaded.get());
+        // retiring is not a shutdown
+        Assert.assertEquals(0, listener.shutdown.get());
+        Assert.assertTrue(container.getLastReloadTime() >= 0);
+    }
+
+    public static class RecordListener implements ContainerLifecycleListener {
+        private final AtomicReference<ApplicationHandler> reloaded = new AtomicReference<>();
+        private final AtomicInteger shutdown = new AtomicInteger();
+
+        @Override
+        public void onStartup(org.glassfish.jersey.server.spi.Container container) {
+        }
+
+        @Override
+        public void onReload(org.glassfish.jersey.server.spi.Container container) {
+            reloaded.set(container.getApplicationHandler());
+        }
+
+        @Override
+        public void onShutdown(org.glassfish.jersey.server.spi.Container container) {
+            shutdown.incrementAndGet();
+        }
+    }
+
+    private static class TestContainer extends Container {
+        private ReloadingHandler handlers;
+
+        private TestContainer(Application application) {
+            super(application);
+        }
+
+        @Override
+        protected void configureHttpServer() {
+        }
+
+        @Override
+        protected void configureHttpContainer() {
+            handlers = new ReloadingHandler(new ApplicationHandler(getApplication().getConfig()));
+        }
+
+        @Override
+        protected ReloadingHandler getReloadingHandler() {
+            return handlers;
+        }
+
+        @Override
+        public InjectionManager getInjectionManager() {
+            return handlers.getHandler().getInjectionManager();
+        }
+
+        @Override
+        public ServerContainer getWebSocketContainer() {
+            return null;
+        }
+
+        @Override
+        protected void doReload() {
+        }
+
+        @Override
+        protected void doStart() {
+        }
+
+        @Override
+        public void doShutdown() {
+        }
+
+        @Override
+        public List<Connector> getConnectors() {
+            return null;
+        }
+
+        @Override
+        public String getType() {
+            return "test";
+        }
+    }
+}
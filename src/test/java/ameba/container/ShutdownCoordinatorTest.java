@@ -0,0 +1,72 @@
+package ameba.container;
+
+import junit.framework.Assert;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.net.URI;
+
+/**
+ * @author icode
+ */
+public class ShutdownCoordinatorTest {
+
+    @Test
+    public void testAwaitIdle() throws InterruptedException {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(null);
+        // async listeners of the other tests
+        Assert.assertTrue(coordinator.awaitIdle(5000));
+
+        ShutdownCoordinator.asyncStarted(2);
+        Assert.assertFalse(coordinator.awaitIdle(20));
+
+        Thread worker = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            ShutdownCoordinator.asyncFinished();
+            ShutdownCoordinator.asyncFinished();
+        });
+        worker.start();
+        Assert.assertTrue(coordinator.awaitIdle(5000));
+        Assert.assertEquals(0, ShutdownCoordinator.getInFlightAsync());
+        worker.join();
+    }
+
+    @Test
+    public void testCallingRequestExcluded() throws Exception {
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(null);
+        ApplicationHandler handler = new ApplicationHandler(new ResourceConfig()
+                .register(Class.forName("ameba.core.Requests$BindRequest"))
+                .register(coordinator.new RequestTracker())
+                .registerInstances(new IdleResource(coordinator)));
+
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"),
+                URI.create("http://localhost/idle"), "GET", null, new MapPropertiesDelegate());
+        Assert.assertEquals("true", handler.apply(request).get().getEntity());
+        Assert.assertEquals(0, coordinator.getInFlightRequests());
+    }
+
+    @Path("idle")
+    public static class IdleResource {
+        private final ShutdownCoordinator coordinator;
+
+        IdleResource(ShutdownCoordinator coordinator) {
+            this.coordinator = coordinator;
+        }
+
+        @GET
+        public String get() throws InterruptedException {
+            // the request itself is in flight
+            Assert.assertEquals(1, coordinator.getInFlightRequests());
+            return String.valueOf(coordinator.awaitIdle(1000));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ameba.container.internal;
+
+import junit.framework.Assert;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author icode
+ */
+public class ReloadingHandlerTest {
+
+    @Test
+    public void testSwapAfterDrain() throws Exception {
+        ApplicationHandler first = new ApplicationHandler(new ResourceConfig());
+        ApplicationHandler second = new ApplicationHandler(new ResourceConfig());
+        ReloadingHandler handlers = new ReloadingHandler(first);
+        AtomicReference<ApplicationHandler> swapped = new AtomicReference<>();
+        AtomicReference<ApplicationHandler> retired = new AtomicReference<>();
+
+        ReloadingHandler.Lease lease = handlers.enter();
+        CompletableFuture<ApplicationHandler> future = handlers.reload(() -> second, 5000,
+                swapped::set, retired::set);
+
+        // new requests are served by the next handler while the previous one drains
+        while (handlers.getHandler() != second) {
+            Thread.sleep(5);
+        }
+        ReloadingHandler.Lease next = handlers.enter();
+        Assert.assertSame(second, next.getHandler());
+        next.close();
+        Thread.sleep(50);
+        Assert.assertFalse(future.isDone());
+        // swapped before the previous handler is drained
+        Assert.assertSame(second, swapped.get());
+        Assert.assertNull(retired.get());
+
+        lease.close();
+        Assert.assertSame(second, future.get(5, TimeUnit.SECONDS));
+        Assert.assertSame(first, retired.get());
+        Assert.assertEquals(1, handlers.getReloadCount());
+        Assert.assertTrue(handlers.getLastDrainTime() >= 50);
+    }
+
+    @Test
+    public void testFailedBuildKeepsHandler() throws Exception {
+        ApplicationHandler first = new ApplicationHandler(new ResourceConfig());
+        ReloadingHandler handlers = new ReloadingHandler(first);
+        CompletableFuture<ApplicationHandler> future = handlers.reload(() -> {
+            throw new IllegalStateException("build failed");
+        }, 5000, handler -> Assert.fail());
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertSame(first, handlers.getHandler());
+        Assert.assertEquals(0, handlers.getReloadCount());
+        Assert.assertFalse(handlers.isReloading());
+    }
+}
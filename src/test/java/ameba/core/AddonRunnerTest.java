@@ -0,0 +1,128 @@
+package ameba.core;
+
+import ameba.exception.ConfigErrorException;
+import com.google.common.collect.Lists;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author icode
+ */
+public class AddonRunnerTest {
+
+    @Test
+    public void testParallelSetup() {
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> finished = Collections.synchronizedList(Lists.newArrayList());
+        Addon a = new Independent();
+        Addon b = new Independent();
+        Addon c = new Dependent();
+        Addon d = new Addon() {
+        };
+
+        Map<Addon, Throwable> failures = AddonRunner.run(null, Lists.newArrayList(c, a, b, d), 4, (addon, app) -> {
+            if (addon instanceof Independent) {
+                // both independent addons must run at the same time
+                latch.countDown();
+                try {
+                    Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (addon == b) {
+                    throw new IllegalStateException("b failed");
+                }
+            }
+            finished.add(addon == a ? "a" : addon == b ? "b" : addon == c ? "c" : "d");
+        });
+
+        Assert.assertEquals(Collections.singleton(b), failures.keySet());
+        Assert.assertEquals("d", finished.get(finished.size() - 1));
+        Assert.assertTrue(finished.indexOf("c") > finished.indexOf("a"));
+    }
+
+    @Test
+    public void testWaitForUndeclared() {
+        Addon legacy = new Addon() {
+        };
+        Addon a = new Independent();
+        Addon b = new Independent();
+        Map<Addon, List<Addon>> dependencies = AddonRunner.dependencies(Lists.newArrayList(a, legacy, b));
+        Assert.assertTrue(dependencies.get(a).isEmpty());
+        Assert.assertEquals(Collections.singletonList(a), dependencies.get(legacy));
+        // the addon before it may still write the source properties
+        Assert.assertEquals(Collections.singletonList(legacy), dependencies.get(b));
+    }
+
+    @Test
+    public void testMergeInOrder() {
+        List<Object> registered = Collections.synchronizedList(Lists.newArrayList());
+        Application application = new Application() {
+            @Override
+            public Application register(Object component) {
+                registered.add(component);
+                return this;
+            }
+        };
+        CountDownLatch secondDone = new CountDownLatch(1);
+        Addon first = new Independent();
+        Addon second = new Independent();
+        Addon legacy = new Addon() {
+        };
+
+        Map<Addon, Throwable> failures = AddonRunner.run(application, Lists.newArrayList(first, second, legacy), 2,
+                (addon, app) -> {
+                    if (addon == first) {
+                        try {
+                            Assert.assertTrue(secondDone.await(10, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        app.register("first");
+                    } else if (addon == second) {
+                        app.register("second");
+                        // not visible before it is merged
+                        Assert.assertTrue(registered.isEmpty());
+                        secondDone.countDown();
+                    } else {
+                        // the addons before it are merged
+                        Assert.assertSame(application, app);
+                        Assert.assertEquals(Lists.newArrayList("first", "second"), registered);
+                        app.register("legacy");
+                    }
+                });
+
+        Assert.assertTrue(failures.isEmpty());
+        Assert.assertEquals(Lists.newArrayList("first", "second", "legacy"), registered);
+    }
+
+    @Test(expected = ConfigErrorException.class)
+    public void testCycle() {
+        AddonRunner.dependencies(Arrays.asList(new Dependent(), new Cyclic()));
+    }
+
+    public static class Independent extends Addon {
+        @Override
+        public Set<Class<? extends Addon>> getDependencies() {
+            return Collections.emptySet();
+        }
+    }
+
+    public static class Dependent extends Addon {
+        @Override
+        public Set<Class<? extends Addon>> getDependencies() {
+            return Collections.singleton(Independent.class);
+        }
+    }
+
+    public static class Cyclic extends Independent {
+        @Override
+        public Set<Class<? extends Addon>> getDependencies() {
+            return Collections.singleton(Dependent.class);
+        }
+    }
+}
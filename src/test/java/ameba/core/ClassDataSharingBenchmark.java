@@ -0,0 +1,169 @@
+package ameba.core;
+
+import com.google.common.collect.Lists;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Time to first request of a new JVM, without and with the class data sharing archive of a training run.
+ * <p>
+ * Each round starts a JVM which bootstraps the application, handles {@code GET /ping} and prints the
+ * milliseconds since the JVM started. The application archive needs JDK 10+, on older JDK only the
+ * baseline is measured. The class path directories are packed into jars since the archive only
+ * accepts jars.
+ * <p>
+ * Not part of the default test run, use {@code mvn test -Dtest=ClassDataSharingBenchmark}.
+ *
+ * @author icode
+ */
+public class ClassDataSharingBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String RESULT = "first-request:";
+
+    @Test
+    public void benchmark() throws Exception {
+        Path dir = Files.createTempDirectory("ameba-cds");
+        String classPath = packClassPath(dir);
+        System.out.printf("without archive: %d ms%n", measure(classPath, "-Xshare:auto"));
+
+        int version = javaVersion();
+        String archive = dir.resolve("app.jsa").toString();
+        if (version >= 13) {
+            run(classPath, true, "-XX:ArchiveClassesAtExit=" + archive);
+        } else if (version >= 10) {
+            String classList = dir.resolve("app.classlist").toString();
+            String appCds = version == 10 ? "-XX:+UseAppCDS" : "-Xshare:auto";
+            run(classPath, true, appCds, "-XX:DumpLoadedClassList=" + classList);
+            exec(Lists.newArrayList(java(), appCds, "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+                    "-XX:SharedArchiveFile=" + archive, "-cp", classPath));
+        } else {
+            System.out.printf("application archive needs JDK 10+, running %s%n",
+                    System.getProperty("java.version"));
+            return;
+        }
+        System.out.printf("with archive: %d ms%n", measure(classPath, "-XX:SharedArchiveFile=" + archive));
+    }
+
+    private static long measure(String classPath, String... options) throws Exception {
+        List<Long> times = Lists.newArrayList();
+        for (int i = 0; i < ROUNDS; i++) {
+            times.add(run(classPath, false, options));
+        }
+        Collections.sort(times);
+        return times.get(ROUNDS / 2);
+    }
+
+    private static long run(String classPath, boolean train, String... options) throws Exception {
+        List<String> command = Lists.newArrayList(java());
+        Collections.addAll(command, options);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(FirstRequest.class.getName());
+        if (train) {
+            command.add(ClassDataSharing.TRAIN_COMMAND);
+        }
+        for (String line : exec(command)) {
+            if (line.startsWith(RESULT)) {
+                return Long.parseLong(line.substring(RESULT.length()).trim());
+            }
+        }
+        throw new IllegalStateException("no result of " + command);
+    }
+
+    private static List<String> exec(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = Lists.newArrayList();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(command + " failed:\n" + String.join("\n", lines));
+        }
+        return lines;
+    }
+
+    private static String java() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static String packClassPath(Path dir) throws IOException {
+        List<String> entries = Lists.newArrayList();
+        int index = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            File file = new File(entry);
+            if (file.isDirectory()) {
+                File jar = dir.resolve("classes-" + index++ + ".jar").toFile();
+                pack(file.toPath(), jar);
+                entries.add(jar.getPath());
+            } else if (file.isFile()) {
+                entries.add(entry);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void pack(Path base, File jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+             Stream<Path> files = Files.walk(base)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(base.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Bootstrap the application and handle the first request.
+     */
+    public static class FirstRequest {
+        public static void main(String[] args) throws Exception {
+            Application application = new Application();
+            application.register(PingResource.class);
+            ApplicationHandler handler = new ApplicationHandler(application.getConfig());
+            ContainerResponse response = handler.apply(new ContainerRequest(
+                    URI.create("http://localhost/"), URI.create("http://localhost/ping"),
+                    "GET", null, new MapPropertiesDelegate())).get();
+            if (response.getStatus() != 200) {
+                throw new IllegalStateException("status " + response.getStatus());
+            }
+            System.out.println(RESULT + (System.currentTimeMillis()
+                    - ManagementFactory.getRuntimeMXBean().getStartTime()));
+            if (args.length > 0 && ClassDataSharing.isTrainCommand(args[0])) {
+                ClassDataSharing.train(application);
+            }
+            System.exit(0);
+        }
+    }
+
+    @javax.ws.rs.Path("ping")
+    public static class PingResource {
+        @GET
+        public String ping() {
+            return "pong";
+        }
+    }
+}
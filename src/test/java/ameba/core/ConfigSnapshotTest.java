@@ -0,0 +1,54 @@
+package ameba.core;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * @author icode
+ */
+public class ConfigSnapshotTest {
+
+    @Test
+    public void testTypedValues() {
+        ConfigSnapshot config = ConfigSnapshot.of(ImmutableMap.of(
+                "a.int", "12", "a.long", "x", "a.bool", "TRUE", "a.blank", " ", "a.obj", 3L));
+        Assert.assertEquals(12, config.getInt("a.int", -1));
+        Assert.assertSame(config.getInteger("a.int"), config.getInteger("a.int"));
+        Assert.assertNull(config.getLong("a.long"));
+        Assert.assertEquals(7, config.getLong("a.long", 7));
+        Assert.assertTrue(config.getBoolean("a.bool", false));
+        Assert.assertTrue(config.getBoolean("missing", true));
+        Assert.assertEquals("def", config.getString("a.blank", "def"));
+        Assert.assertEquals(3L, (long) config.getLong("a.obj"));
+        Assert.assertFalse(config.isNotBlank("a.blank"));
+    }
+
+    @Test
+    public void testPrefixTree() {
+        ConfigSnapshot config = ConfigSnapshot.of(ImmutableMap.<String, Object>builder()
+                .put("connector.http.port", "8080")
+                .put("connector.http.host", "localhost")
+                .put("connector.admin.port", "9090")
+                .put("db.default", "main")
+                .put("db.main.url", "jdbc:h2:mem:")
+                .build());
+        Map<String, ConfigSnapshot> connectors = config.getGroups("connector.");
+        Assert.assertEquals(ImmutableSet.of("http", "admin"), connectors.keySet());
+        Assert.assertEquals(8080, connectors.get("http").getInt("port", 80));
+        Assert.assertEquals("main", config.getPrefix("db.").getString("default"));
+        Assert.assertEquals(ImmutableSet.of("main"), config.getGroups("db.").keySet());
+        Assert.assertEquals("jdbc:h2:mem:", config.getGroup("db.", "main").getString("url"));
+        Assert.assertSame(ConfigSnapshot.EMPTY, config.getGroup("db.", "other"));
+    }
+
+    @Test
+    public void testDiff() {
+        ConfigSnapshot previous = ConfigSnapshot.of(ImmutableMap.of("a", "1", "b", "2", "c", "3"));
+        ConfigSnapshot current = ConfigSnapshot.of(ImmutableMap.of("a", "1", "b", "20", "d", "4"));
+        Assert.assertEquals(ImmutableSet.of("b", "c", "d"), current.diff(previous));
+    }
+}
@@ -0,0 +1,73 @@
+package ameba.core;
+
+import junit.framework.Assert;
+import org.glassfish.hk2.utilities.InjecteeImpl;
+import org.junit.Test;
+
+import javax.inject.Named;
+import java.lang.annotation.Annotation;
+
+/**
+ * @author icode
+ */
+public class ConfigurationInjectionResolverTest {
+    private static final String SIZE_KEY = "test.resolver.size";
+
+    @Named(SIZE_KEY)
+    private Integer size;
+
+    @Test
+    public void testCachedByInjectee() throws Exception {
+        SnapshotApplication application = new SnapshotApplication();
+        application.reconfigure();
+        application.property(SIZE_KEY, "5");
+        CountingResolver resolver = new CountingResolver();
+        resolver.application = application;
+
+        InjecteeImpl injectee = new InjecteeImpl(Integer.class);
+        injectee.setParent(getClass().getDeclaredField("size"));
+        injectee.setPosition(-1);
+
+        Assert.assertEquals(5, resolver.resolve(injectee, null));
+        Assert.assertEquals(5, resolver.resolve(injectee, null));
+        Assert.assertEquals(1, resolver.lookups);
+
+        // the property changed, converted again with the cached name
+        application.property(SIZE_KEY, "7");
+        Assert.assertEquals(7, resolver.resolve(injectee, null));
+        Assert.assertEquals(1, resolver.lookups);
+
+        // a new snapshot drops the cached value, the configuration is built again
+        application.reconfigure();
+        application.property(SIZE_KEY, "7");
+        Assert.assertEquals(7, resolver.resolve(injectee, null));
+        Assert.assertEquals(2, resolver.lookups);
+    }
+
+    private static class CountingResolver extends Application.ConfigurationInjectionResolver {
+        private int lookups;
+
+        @Override
+        protected String getName(Annotation annotation) {
+            lookups++;
+            return super.getName(annotation);
+        }
+    }
+
+    /**
+     * configured from its own properties, without configuration files
+     */
+    private static class SnapshotApplication extends Application {
+        private ConfigSnapshot snapshot;
+
+        @Override
+        protected void configure() {
+            snapshot = ConfigSnapshot.of(getProperties());
+        }
+
+        @Override
+        public ConfigSnapshot getConfigSnapshot() {
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ameba.core;
+
+import junit.framework.Assert;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.net.URI;
+
+/**
+ * @author icode
+ */
+public class RequestsScopeTest {
+
+    @Test
+    public void testInScope() throws Exception {
+        ApplicationHandler handler = new ApplicationHandler(
+                new ResourceConfig(ScopeResource.class).register(Requests.BindRequest.class));
+        Assert.assertFalse(Requests.isInScope());
+
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"),
+                URI.create("http://localhost/scope"), "GET", null, new MapPropertiesDelegate());
+        Assert.assertEquals("true", handler.apply(request).get().getEntity());
+        Assert.assertFalse(Requests.isInScope());
+    }
+
+    @Path("scope")
+    public static class ScopeResource {
+        @GET
+        public String get() {
+            return String.valueOf(Requests.isInScope());
+        }
+    }
+}
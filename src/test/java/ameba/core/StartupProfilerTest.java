@@ -0,0 +1,56 @@
+package ameba.core;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author icode
+ */
+public class StartupProfilerTest {
+
+    @Test
+    public void testTimeline() {
+        StartupProfiler profiler = StartupProfiler.create(System.nanoTime());
+        try (StartupProfiler.Phase ignored = profiler.begin("addon.setup", null)) {
+            try (StartupProfiler.Phase addon = profiler.begin("addon.setup", "a")) {
+                Assert.assertEquals(1, addon.getDepth());
+                Assert.assertNotNull(addon.getParent());
+            }
+        }
+        try (StartupProfiler.Phase ignored = profiler.begin("scan", null)) {
+            Assert.assertNotNull(new byte[1024]);
+        }
+
+        List<StartupProfiler.Phase> timeline = profiler.getTimeline();
+        Assert.assertEquals(3, timeline.size());
+        Assert.assertNull(timeline.get(0).getName());
+        Assert.assertEquals("a", timeline.get(1).getName());
+        Assert.assertEquals("scan", timeline.get(2).getCategory());
+        Assert.assertEquals(0, timeline.get(2).getDepth());
+        Assert.assertTrue(timeline.get(0).getDurationMillis() >= timeline.get(1).getDurationMillis());
+        Assert.assertTrue(profiler.report().contains("addon.setup [a]"));
+    }
+
+    @Test
+    public void testDisabled() {
+        StartupProfiler profiler = StartupProfiler.DISABLED;
+        try (StartupProfiler.Phase ignored = profiler.begin("scan", null)) {
+            profiler.record("config", null, System.nanoTime());
+        }
+        Assert.assertTrue(profiler.getTimeline().isEmpty());
+        Assert.assertSame(profiler.begin("a", null), profiler.begin("b", null));
+    }
+
+    @Test
+    public void testEvent() {
+        if (StartupPhaseEvent.isAvailable()) {
+            Object event = StartupPhaseEvent.start();
+            Assert.assertNotNull(event);
+            StartupPhaseEvent.commit(event, "scan", null, 1024);
+        } else {
+            Assert.assertNull(StartupPhaseEvent.start());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ameba.db;
+
+import com.google.common.collect.Maps;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * @author icode
+ */
+public class ReplicaDataSourceTest {
+
+    @Test
+    public void testRoundRobinAndFallback() throws SQLException {
+        StubDataSource primary = new StubDataSource("primary");
+        StubDataSource r1 = new StubDataSource("r1");
+        StubDataSource r2 = new StubDataSource("r2");
+        Map<String, DataSource> replicas = Maps.newLinkedHashMap();
+        replicas.put("r1", r1.proxy);
+        replicas.put("r2", r2.proxy);
+        ReplicaDataSource ds = new ReplicaDataSource("default", primary.proxy, replicas,
+                ReplicaDataSource.Balance.ROUND_ROBIN, null, 30, 0);
+
+        Assert.assertEquals("r1", name(ds.getConnection()));
+        Assert.assertEquals("r2", name(ds.getConnection()));
+        Assert.assertEquals("r1", name(ds.getConnection()));
+
+        r1.valid = false;
+        ds.check();
+        Assert.assertFalse(ds.isAvailable("r1"));
+        Assert.assertEquals("r2", name(ds.getConnection()));
+        Assert.assertEquals("r2", name(ds.getConnection()));
+
+        r2.valid = false;
+        ds.check();
+        Assert.assertEquals("primary", name(ds.getConnection()));
+
+        r1.valid = true;
+        ds.check();
+        Assert.assertTrue(ds.isAvailable("r1"));
+        Assert.assertEquals("r1", name(ds.getConnection()));
+        ds.close();
+    }
+
+    private static String name(Connection connection) {
+        return connection.toString();
+    }
+
+    private static class StubDataSource {
+        private final DataSource proxy;
+        private volatile boolean valid = true;
+
+        private StubDataSource(String name) {
+            Connection connection = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class[]{Connection.class},
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "isValid":
+                                return valid;
+                            case "toString":
+                                return name;
+                            default:
+                                return null;
+                        }
+                    }
+            );
+            proxy = (DataSource) Proxy.newProxyInstance(
+                    DataSource.class.getClassLoader(),
+                    new Class[]{DataSource.class},
+                    (p, method, args) -> "getConnection".equals(method.getName()) ? connection : null
+            );
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ameba.db.ebean.internal;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author icode
+ */
+public class QueryCoalescerTest {
+
+    @Test
+    public void testConcurrentShareExecution() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> coalescer.execute("k", () -> {
+                started.countDown();
+                release.await();
+                return calls.incrementAndGet();
+            }));
+            started.await();
+            Future<Integer> second = executor.submit(() -> coalescer.execute("k", calls::incrementAndGet));
+            while (coalescer.getCoalesced() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Assert.assertEquals(1, (int) first.get());
+            Assert.assertEquals(1, (int) second.get());
+            Assert.assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // not kept without TTL
+        Assert.assertEquals(2, (int) coalescer.execute("k", calls::incrementAndGet));
+    }
+
+    @Test
+    public void testTtlAndInvalidate() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(1, TimeUnit.MINUTES);
+        AtomicInteger calls = new AtomicInteger();
+        Assert.assertEquals(1, (int) coalescer.execute("k", calls::incrementAndGet));
+        Assert.assertEquals(1, (int) coalescer.execute("k", calls::incrementAndGet));
+        Assert.assertEquals(2, (int) coalescer.execute("other", calls::incrementAndGet));
+        Assert.assertEquals(1, coalescer.getCacheHits());
+        coalescer.invalidateAll();
+        Assert.assertEquals(3, (int) coalescer.execute("k", calls::incrementAndGet));
+    }
+
+    @Test
+    public void testInvalidatedWhileLoading() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(1, TimeUnit.MINUTES);
+        Assert.assertEquals("stale", coalescer.execute("k", () -> {
+            coalescer.invalidateAll();
+            return "stale";
+        }));
+        Assert.assertEquals("fresh", coalescer.execute("k", () -> "fresh"));
+        Assert.assertEquals(0, coalescer.getCacheHits());
+    }
+
+    @Test
+    public void testFailureNotKept() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(1, TimeUnit.MINUTES);
+        try {
+            coalescer.execute("k", () -> {
+                throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals("ok", coalescer.execute("k", () -> "ok"));
+    }
+}
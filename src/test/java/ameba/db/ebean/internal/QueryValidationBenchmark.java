@@ -0,0 +1,128 @@
+package ameba.db.ebean.internal;
+
+import ameba.db.ebean.filter.Filter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.ebean.plugin.BeanType;
+import io.ebean.plugin.Property;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * List request validation overhead, per request policy against the cached policy.
+ * <p>
+ * A standalone program, not a test, run it from the test class path:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ameba.db.ebean.internal.QueryValidationBenchmark}.
+ *
+ * @author icode
+ */
+public class QueryValidationBenchmark {
+    private static final int WARMUP = 20000;
+    private static final int ROUNDS = 200000;
+    private static final String[] PATHS = {"name", "status", "owner.name", "createdAt", "secret"};
+
+    /**
+     * <p>main.</p>
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        BeanType<?> beanType = beanType("id", "name", "status", "owner", "createdAt", "secret");
+        run("without filter", beanType, PlainResource.class);
+        run("with filter", beanType, FilteredResource.class);
+    }
+
+    private static void run(String name, BeanType<?> beanType, Class<?> resourceClass) {
+        for (int i = 0; i < WARMUP; i++) {
+            perRequest(beanType, resourceClass);
+            cached(beanType, resourceClass);
+        }
+        long start = System.nanoTime();
+        int unknown = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            unknown += perRequest(beanType, resourceClass);
+        }
+        long perRequest = System.nanoTime() - start;
+        start = System.nanoTime();
+        int cachedUnknown = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            cachedUnknown += cached(beanType, resourceClass);
+        }
+        long cached = System.nanoTime() - start;
+        if (unknown != cachedUnknown) {
+            throw new IllegalStateException("validation results differ: " + unknown + " != " + cachedUnknown);
+        }
+        System.out.printf("%s: per request %d ns/op, cached %d ns/op%n", name,
+                perRequest / ROUNDS, cached / ROUNDS);
+    }
+
+    /**
+     * the way queries were checked before the policy cache
+     */
+    private static int perRequest(BeanType<?> beanType, Class<?> resourceClass) {
+        Set<String> wl = null, bl = null;
+        Filter filter = resourceClass.getAnnotation(Filter.class);
+        if (filter != null) {
+            wl = Sets.newLinkedHashSet();
+            Collections.addAll(wl, filter.whitelist());
+            bl = Sets.newLinkedHashSet();
+            Collections.addAll(bl, filter.blacklist());
+        }
+        return validate(new ListExpressionValidation(beanType, wl, bl));
+    }
+
+    private static int cached(BeanType<?> beanType, Class<?> resourceClass) {
+        return validate(QueryValidationPolicy.of(beanType, resourceClass).newValidation());
+    }
+
+    private static int validate(ListExpressionValidation validation) {
+        for (String path : PATHS) {
+            validation.validate(path);
+        }
+        return validation.getUnknownProperties().size();
+    }
+
+    private static BeanType<?> beanType(String... names) {
+        Set<String> known = Sets.newHashSet(names);
+        List<Property> properties = Lists.newArrayList();
+        for (String name : names) {
+            properties.add((Property) Proxy.newProxyInstance(
+                    Property.class.getClassLoader(),
+                    new Class[]{Property.class},
+                    (proxy, method, args) -> "getName".equals(method.getName()) ? name : null
+            ));
+        }
+        return (BeanType<?>) Proxy.newProxyInstance(
+                BeanType.class.getClassLoader(),
+                new Class[]{BeanType.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "allProperties":
+                            return properties;
+                        case "isValidExpression":
+                            // resolve the first segment like the descriptor walking the path
+                            String path = (String) args[0];
+                            int dot = path.indexOf('.');
+                            return known.contains(dot < 0 ? path : path.substring(0, dot));
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                }
+        );
+    }
+
+    @Filter(whitelist = "owner.name", blacklist = "secret")
+    public static class FilteredResource {
+    }
+
+    public static class PlainResource {
+    }
+}
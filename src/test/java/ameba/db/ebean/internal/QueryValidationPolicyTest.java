@@ -0,0 +1,119 @@
+package ameba.db.ebean.internal;
+
+import ameba.db.ebean.filter.Filter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.ebean.plugin.BeanType;
+import io.ebean.plugin.Property;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author icode
+ */
+public class QueryValidationPolicyTest {
+    private final AtomicInteger resolved = new AtomicInteger();
+    private final BeanType<?> beanType = beanType("id", "name", "owner", "secret");
+
+    private BeanType<?> beanType(String... names) {
+        Set<String> known = Sets.newHashSet(names);
+        List<Property> properties = Lists.newArrayList();
+        for (String name : names) {
+            properties.add((Property) Proxy.newProxyInstance(
+                    Property.class.getClassLoader(),
+                    new Class[]{Property.class},
+                    (proxy, method, args) -> "getName".equals(method.getName()) ? name : null
+            ));
+        }
+        return (BeanType<?>) Proxy.newProxyInstance(
+                BeanType.class.getClassLoader(),
+                new Class[]{BeanType.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "allProperties":
+                            return properties;
+                        case "isValidExpression":
+                            resolved.incrementAndGet();
+                            String path = (String) args[0];
+                            int dot = path.indexOf('.');
+                            return known.contains(dot < 0 ? path : path.substring(0, dot));
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                }
+        );
+    }
+
+    private Set<String> unknown(ListExpressionValidation validation, String... paths) {
+        for (String path : paths) {
+            validation.validate(path);
+        }
+        return validation.getUnknownProperties();
+    }
+
+    @Test
+    public void testPolicyPerResource() {
+        QueryValidationPolicy policy = QueryValidationPolicy.of(beanType, FilteredResource.class);
+        Assert.assertSame(policy, QueryValidationPolicy.of(beanType, FilteredResource.class));
+        Assert.assertNotSame(policy, QueryValidationPolicy.of(beanType, PlainResource.class));
+        Assert.assertSame(QueryValidationPolicy.of(beanType, null), QueryValidationPolicy.of(beanType, null));
+
+        Assert.assertEquals(ImmutableSet.of("secret", "missing"),
+                unknown(policy.newValidation(), "name", "owner.name", "secret", "missing"));
+        Assert.assertEquals(ImmutableSet.of("missing"),
+                unknown(QueryValidationPolicy.of(beanType, PlainResource.class).newValidation(),
+                        "name", "owner.name", "secret", "missing"));
+    }
+
+    @Test
+    public void testResolvedPathsReused() {
+        QueryValidationPolicy policy = QueryValidationPolicy.create(beanType, null, null);
+        unknown(policy.newValidation(), "name", "owner.name", "missing");
+        // bean properties are resolved up front, other paths once
+        Assert.assertEquals(2, resolved.get());
+        unknown(policy.newValidation(), "name", "owner.name", "missing");
+        Assert.assertEquals(2, resolved.get());
+    }
+
+    @Test
+    public void testWith() {
+        QueryValidationPolicy policy = QueryValidationPolicy.of(beanType, FilteredResource.class);
+        Assert.assertSame(policy, policy.with(null, ImmutableSet.of()));
+
+        QueryValidationPolicy extra = policy.with(ImmutableSet.of("secret"), ImmutableSet.of("name"));
+        Assert.assertTrue(extra.isWhitelisted("owner.name"));
+        Assert.assertTrue(extra.isWhitelisted("secret"));
+        Assert.assertTrue(extra.isBlacklisted("name"));
+        Assert.assertFalse(policy.isBlacklisted("name"));
+    }
+
+    @Test
+    public void testLegacyValidation() {
+        Set<String> whitelist = ImmutableSet.of("owner.name");
+        Set<String> blacklist = ImmutableSet.of("secret");
+        String[] paths = {"name", "owner.name", "secret", "missing"};
+
+        Assert.assertEquals(
+                unknown(QueryValidationPolicy.create(beanType, whitelist, blacklist).newValidation(), paths),
+                unknown(new ListExpressionValidation(beanType, whitelist, blacklist), paths));
+        Assert.assertEquals(ImmutableSet.of("missing"),
+                unknown(new ListExpressionValidation(beanType, null, null), "name", "missing"));
+    }
+
+    @Filter(whitelist = "owner.name", blacklist = "secret")
+    public static class FilteredResource {
+    }
+
+    public static class PlainResource {
+    }
+}
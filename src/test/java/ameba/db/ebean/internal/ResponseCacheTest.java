@@ -0,0 +1,53 @@
+package ameba.db.ebean.internal;
+
+import com.google.common.collect.ImmutableMap;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @author icode
+ */
+public class ResponseCacheTest {
+
+    private static ResponseCache.Entry entry(Map<String, Long> versions) {
+        return new ResponseCache.Entry(new byte[]{'[', ']'}, MediaType.APPLICATION_JSON_TYPE,
+                Collections.emptyMap(), versions);
+    }
+
+    @Test
+    public void testInvalidateByTable() {
+        ResponseCache cache = new ResponseCache("test", 1024);
+        cache.put("a", entry(ImmutableMap.of("", 0L, "t_a", 0L)));
+        cache.put("b", entry(ImmutableMap.of("", 0L, "t_b", 0L)));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("b"));
+
+        cache.invalidate("t_a");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("b"));
+
+        // read before the modification, must not be stored
+        cache.put("a", entry(ImmutableMap.of("", 0L, "t_a", 0L)));
+        Assert.assertNull(cache.get("a"));
+
+        cache.invalidateAll();
+        cache.put("b", entry(ImmutableMap.of("", 0L, "t_b", 0L)));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(2, cache.getInvalidations());
+    }
+
+    @Test
+    public void testEvictBySize() {
+        ResponseCache cache = new ResponseCache("test", 1024);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, new ResponseCache.Entry(new byte[200], MediaType.APPLICATION_JSON_TYPE,
+                    Collections.emptyMap(), ImmutableMap.of("", 0L)));
+        }
+        Assert.assertTrue(cache.size() < 10);
+        Assert.assertTrue(cache.stats().evictionCount() > 0);
+    }
+}
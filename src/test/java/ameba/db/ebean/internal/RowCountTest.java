@@ -0,0 +1,77 @@
+package ameba.db.ebean.internal;
+
+import io.ebean.FutureRowCount;
+import io.ebean.Query;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author icode
+ */
+public class RowCountTest {
+
+    private static Query page(int firstRow, int maxRows) {
+        return (Query) Proxy.newProxyInstance(Query.class.getClassLoader(), new Class[]{Query.class},
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "getFirstRow":
+                            return firstRow;
+                        case "getMaxRows":
+                            return maxRows;
+                        default:
+                            throw new AssertionError("unexpected " + method.getName());
+                    }
+                });
+    }
+
+    private static FutureRowCount count(Object result, AtomicBoolean cancelled) {
+        return (FutureRowCount) Proxy.newProxyInstance(FutureRowCount.class.getClassLoader(),
+                new Class[]{FutureRowCount.class},
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "cancel":
+                            cancelled.set(true);
+                            return true;
+                        case "get":
+                            if (result instanceof Throwable) {
+                                throw new ExecutionException((Throwable) result);
+                            }
+                            return result;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testLastPageSkipsCount() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Integer count = ModelInterceptor.resolveRowCount(page(40, 20), count(1000, cancelled), 5);
+        Assert.assertEquals(45, (int) count);
+        Assert.assertTrue(cancelled.get());
+    }
+
+    @Test
+    public void testFullPageWaitsCount() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Integer count = ModelInterceptor.resolveRowCount(page(0, 20), count(1000, cancelled), 20);
+        Assert.assertEquals(1000, (int) count);
+        Assert.assertFalse(cancelled.get());
+
+        // page beyond the end, the total is unknown from the page
+        count = ModelInterceptor.resolveRowCount(page(40, 20), count(30, cancelled), 0);
+        Assert.assertEquals(30, (int) count);
+    }
+
+    @Test
+    public void testFailedCountNotRepeated() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Integer count = ModelInterceptor.resolveRowCount(page(0, 20),
+                count(new IllegalStateException("count failed"), cancelled), 20);
+        Assert.assertNull(count);
+    }
+}
@@ -0,0 +1,159 @@
+package ameba.db.ebean.support;
+
+import ameba.db.DbExecutor;
+import junit.framework.Assert;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.internal.inject.AbstractBinder;
+import org.glassfish.jersey.internal.inject.DisposableSupplier;
+import org.glassfish.jersey.process.internal.RequestScoped;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The queueing, timeout and request scope handling of the asynchronous model requests.
+ *
+ * @author icode
+ */
+public class AsyncExecuteTest {
+    private static final AtomicInteger disposed = new AtomicInteger();
+    private static volatile DbExecutor executor;
+    private static volatile long timeout;
+    private static volatile CountDownLatch release;
+
+    private ApplicationHandler handler;
+
+    @Before
+    public void setUp() {
+        // one running and one queued task
+        executor = new DbExecutor("async-test", 1, 1, 0);
+        timeout = 0;
+        release = new CountDownLatch(1);
+        disposed.set(0);
+        handler = new ApplicationHandler(new ResourceConfig(ThingResource.class).register(new AbstractBinder() {
+            @Override
+            protected void configure() {
+                bindFactory(new ScopedSupplier()).to(Scoped.class).in(RequestScoped.class);
+            }
+        }));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    private Future<ContainerResponse> request() {
+        return handler.apply(new ContainerRequest(URI.create("http://localhost/"),
+                URI.create("http://localhost/things"), "GET", null, new MapPropertiesDelegate()));
+    }
+
+    private static void awaitDisposed(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (disposed.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, disposed.get());
+    }
+
+    private static void awaitQueued(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((executor.getActiveCount() < 1 || executor.getQueueDepth() < depth)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        Future<ContainerResponse> running = request();
+        awaitQueued(0);
+        Future<ContainerResponse> queued = request();
+        awaitQueued(1);
+
+        Assert.assertEquals(503, request().get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(1, executor.getRejectedCount());
+        awaitDisposed(1);
+
+        release.countDown();
+        Assert.assertEquals(200, running.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(200, queued.get(5, TimeUnit.SECONDS).getStatus());
+        awaitDisposed(3);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        timeout = 200;
+        Future<ContainerResponse> running = request();
+        awaitQueued(0);
+        Future<ContainerResponse> queued = request();
+
+        Assert.assertEquals(503, queued.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(503, running.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(2, executor.getTimeoutCount());
+        // the dropped queued request released its scope, the running one still holds it
+        awaitDisposed(1);
+
+        release.countDown();
+        awaitDisposed(2);
+    }
+
+    public static class Scoped {
+    }
+
+    private static class ScopedSupplier implements DisposableSupplier<Scoped> {
+        @Override
+        public Scoped get() {
+            return new Scoped();
+        }
+
+        @Override
+        public void dispose(Scoped instance) {
+            disposed.incrementAndGet();
+        }
+    }
+
+    public static class Thing {
+    }
+
+    @Path("things")
+    public static class ThingResource extends ModelResourceStructure<Long, Long, Thing> {
+        @Inject
+        private Scoped scoped;
+
+        public ThingResource() {
+            super(Thing.class, null);
+            asyncTimeout = timeout;
+        }
+
+        @Override
+        protected DbExecutor getDbExecutor() {
+            return executor;
+        }
+
+        @GET
+        public void get(@Suspended AsyncResponse asyncResponse) {
+            executeAsync(asyncResponse, () -> {
+                release.await();
+                return Response.ok("thing").build();
+            });
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ameba.db.ebean.support;
+
+import junit.framework.Assert;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.message.internal.HttpDateFormat;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The conditional responses of the model resources, without a database the stored
+ * versions come from the test resource.
+ *
+ * @author icode
+ */
+public class ModelPreconditionsTest {
+    private static final Date MODIFIED = new Date(1500000000000L);
+    private static volatile long version = 1;
+
+    private final ApplicationHandler handler = new ApplicationHandler(new ResourceConfig(ThingResource.class));
+
+    private ContainerResponse request(String method, String uri, String header, String value) throws Exception {
+        ContainerRequest request = new ContainerRequest(
+                URI.create("http://localhost/"), URI.create("http://localhost/" + uri),
+                method, null, new MapPropertiesDelegate());
+        if (header != null) {
+            request.header(header, value);
+        }
+        return handler.apply(request).get();
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        version = 1;
+        ContainerResponse response = request("GET", "things/1?fields=name", null, null);
+        Assert.assertEquals(200, response.getStatus());
+        String tag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(tag);
+
+        Assert.assertEquals(304, request("GET", "things/1?fields=name", HttpHeaders.IF_NONE_MATCH, tag).getStatus());
+        Assert.assertEquals(304, request("GET", "things/1", HttpHeaders.IF_MODIFIED_SINCE,
+                HttpDateFormat.getPreferredDateFormat().format(MODIFIED)).getStatus());
+
+        version = 2;
+        Assert.assertEquals(200, request("GET", "things/1", HttpHeaders.IF_NONE_MATCH, tag).getStatus());
+    }
+
+    @Test
+    public void testRepresentationTag() throws Exception {
+        version = 1;
+        String tag = request("GET", "things/1?fields=name", null, null).getHeaderString(HttpHeaders.ETAG);
+        Assert.assertFalse(tag.equals(request("GET", "things/1", null, null).getHeaderString(HttpHeaders.ETAG)));
+
+        // an other representation of the same version is not the cached one
+        Assert.assertEquals(200, request("GET", "things/1", HttpHeaders.IF_NONE_MATCH, tag).getStatus());
+        Assert.assertEquals(412, request("PUT", "things/1", HttpHeaders.IF_MATCH, "\"1-10\"").getStatus());
+    }
+
+    @Test
+    public void testPreconditionFailed() throws Exception {
+        version = 1;
+        String tag = request("GET", "things/1?fields=name", null, null).getHeaderString(HttpHeaders.ETAG);
+
+        Assert.assertEquals(204, request("PUT", "things/1", HttpHeaders.IF_MATCH, tag).getStatus());
+        Assert.assertEquals(204, request("PUT", "things/1", HttpHeaders.IF_UNMODIFIED_SINCE,
+                HttpDateFormat.getPreferredDateFormat().format(MODIFIED)).getStatus());
+
+        version = 2;
+        Assert.assertEquals(412, request("PUT", "things/1", HttpHeaders.IF_MATCH, tag).getStatus());
+        Assert.assertEquals(412, request("PUT", "things/1", HttpHeaders.IF_UNMODIFIED_SINCE,
+                HttpDateFormat.getPreferredDateFormat().format(new Date(MODIFIED.getTime() - 60000))).getStatus());
+    }
+
+    public static class Thing {
+        private final long id;
+        private final long version;
+
+        Thing(long id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+    }
+
+    @Path("things")
+    public static class ThingResource extends ModelResourceStructure<Long, Long, Thing> {
+        public ThingResource() {
+            super(Thing.class, null);
+        }
+
+        private List<Thing> current(long id) {
+            return Collections.singletonList(new Thing(id, version));
+        }
+
+        @GET
+        @Path("{id}")
+        public Response get(@PathParam("id") long id) {
+            List<Thing> current = current(id);
+            Response.ResponseBuilder notModified = evaluatePreconditions(current);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            return Response.ok("thing").tag(representationTag(current)).lastModified(lastModified(current)).build();
+        }
+
+        @PUT
+        @Path("{id}")
+        public void put(@PathParam("id") long id) {
+            Response.ResponseBuilder failed = evaluateWritePreconditions(current(id));
+            if (failed != null) {
+                throw new WebApplicationException(failed.build());
+            }
+        }
+
+        @Override
+        protected EntityTag entityTag(Collection<Thing> models) {
+            Thing thing = models.iterator().next();
+            return new EntityTag(thing.id + "-" + thing.version);
+        }
+
+        @Override
+        protected Date lastModified(Collection<Thing> models) {
+            return new Date(MODIFIED.getTime() + (models.iterator().next().version - 1) * 60000);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ameba.db.ebean.support;
+
+import com.google.common.collect.Lists;
+import io.ebean.Transaction;
+import io.ebean.TxScope;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.api.SpiTransactionManager;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/**
+ * The read paths with {@code readOnlyTransaction}, without a database the server is a stub
+ * recording the transactions.
+ *
+ * @author icode
+ */
+public class ReadOnlyTransactionTest {
+    private final List<String> calls = Lists.newArrayList();
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+            Object result = answer.answer(method.getName(), args);
+            if (result == null && method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return result;
+        });
+    }
+
+    private SpiEbeanServer server(boolean replicas) {
+        SpiTransactionManager manager = stub(SpiTransactionManager.class, (name, args) ->
+                "getReadOnlyDataSource".equals(name) && replicas ? stub(DataSource.class, (n, a) -> null) : null);
+        Transaction transaction = stub(Transaction.class, (name, args) -> {
+            calls.add(name);
+            return null;
+        });
+        return stub(SpiEbeanServer.class, (name, args) -> {
+            switch (name) {
+                case "getTransactionManager":
+                    return manager;
+                case "beginTransaction":
+                    Assert.assertTrue(((TxScope) args[0]).isReadonly());
+                    calls.add(name);
+                    return transaction;
+                case "getName":
+                    return "test";
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Test
+    public void testSharedTransaction() throws Exception {
+        ThingResource resource = new ThingResource(server(false));
+        List<Transaction> used = Lists.newArrayList();
+        resource.executeQuery(t -> {
+            // the find queries of a read path
+            used.add(t);
+            used.add(t);
+            return null;
+        });
+        Assert.assertNotNull(used.get(0));
+        Assert.assertSame(used.get(0), used.get(1));
+        Assert.assertEquals(Lists.newArrayList("beginTransaction", "commit", "end"), calls);
+    }
+
+    @Test
+    public void testReplicasTakePrecedence() throws Exception {
+        ThingResource resource = new ThingResource(server(true));
+        Assert.assertNull(resource.executeQuery(t -> t));
+        Assert.assertTrue(calls.isEmpty());
+    }
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    public static class Thing {
+    }
+
+    public static class ThingResource extends ModelResourceStructure<Long, Long, Thing> {
+        ThingResource(SpiEbeanServer server) {
+            super(Thing.class, server);
+            readOnlyTransaction = true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ameba.db.model;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author icode
+ */
+public class BatchLoaderTest {
+
+    @Test
+    public void testDeduplicate() {
+        Loader loader = new Loader();
+        Assert.assertEquals(Lists.newArrayList("1", "2"), loader.byIds(Lists.newArrayList(1, 2, 1, 99)));
+        Assert.assertEquals(Collections.singletonList(Lists.newArrayList(1, 2, 99)), loader.loads);
+
+        Assert.assertEquals("1", loader.byId(1));
+        Assert.assertNull(loader.byId(99));
+        Assert.assertEquals(Lists.newArrayList("2"), loader.byIds(Lists.newArrayList(2, 99)));
+        Assert.assertEquals(1, loader.loads.size());
+
+        loader.clear();
+        Assert.assertEquals("1", loader.byId(1));
+        Assert.assertEquals(2, loader.loads.size());
+    }
+
+    @Test
+    public void testPrimeAndRef() {
+        Loader loader = new Loader();
+        loader.prime(1, 2);
+        Assert.assertEquals("ref-3", loader.ref(3));
+        Assert.assertTrue(loader.loads.isEmpty());
+
+        Assert.assertEquals("2", loader.byId(2));
+        Assert.assertEquals(Collections.singletonList(Lists.newArrayList(1, 2, 3)), loader.loads);
+        Assert.assertEquals("3", loader.ref(3));
+    }
+
+    @Test
+    public void testBatches() {
+        Loader loader = new Loader();
+        List<Integer> ids = Lists.newArrayList();
+        for (int i = 1; i <= 1200; i++) {
+            ids.add(i);
+        }
+        Assert.assertEquals(1199, loader.byIds(ids).size());
+        Assert.assertEquals(3, loader.loads.size());
+        Assert.assertEquals(AbstractBatchLoader.MAX_BATCH_SIZE, loader.loads.get(0).size());
+        Assert.assertEquals(200, loader.loads.get(2).size());
+    }
+
+    private static class Loader extends AbstractBatchLoader<Integer, String> {
+        private final List<List<Object>> loads = Lists.newArrayList();
+
+        @Override
+        protected Map<?, String> load(List<Object> keys) {
+            loads.add(Lists.newArrayList(keys));
+            Map<Object, String> found = Maps.newHashMap();
+            for (Object key : keys) {
+                // 99 is missing
+                if (!key.equals(99)) {
+                    found.put(key, key.toString());
+                }
+            }
+            return found;
+        }
+
+        @Override
+        protected String reference(Object key) {
+            return "ref-" + key;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ameba.i18n;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.ListResourceBundle;
+
+/**
+ * @author icode
+ */
+public class MessageCatalogTest {
+
+    private static final Object[][] PATTERNS = {
+            {"plain", "Database connected"},
+            {"args", "Database [{0}] connected at {1}"},
+            {"reorder", "{1} before {0}, again {1}"},
+            {"quoted", "It''s '{0}' and {0}"},
+            {"typed", "{0,number,#.##} of {1}"},
+            {"choice", "{0,choice,0#none|1#one|1<many}"},
+            {"braces", "'{'literal'}' {0}"}
+    };
+
+    private static final Object[][] ARGS = {
+            {},
+            {"db"},
+            {"db", "url"},
+            {1234567, "url"},
+            {null, new Date(0)},
+            {2.5d, 3L}
+    };
+
+    @Test
+    public void testSameAsMessageFormat() {
+        MessageCatalog catalog = MessageCatalog.of(new ListResourceBundle() {
+            @Override
+            protected Object[][] getContents() {
+                return PATTERNS;
+            }
+        });
+        for (Object[] pattern : PATTERNS) {
+            for (Object[] args : ARGS) {
+                if (pattern[0].equals("choice") && (args.length == 0 || !(args[0] instanceof Number))) {
+                    continue;
+                }
+                if (pattern[0].equals("typed") && (args.length == 0 || !(args[0] instanceof Number))) {
+                    continue;
+                }
+                Assert.assertEquals(
+                        MessageFormat.format((String) pattern[1], args),
+                        catalog.format((String) pattern[0], args)
+                );
+            }
+        }
+        Assert.assertNull(catalog.format("missing"));
+    }
+}
@@ -0,0 +1,28 @@
+package ameba.inject;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author icode
+ */
+public class LazyProviderTest {
+
+    @Test
+    public void testBuildOnce() {
+        AtomicInteger builds = new AtomicInteger();
+        LazyProvider<Object> provider = LazyProvider.create(() -> {
+            builds.incrementAndGet();
+            return new Object();
+        });
+        Assert.assertFalse(provider.isInitialized());
+        Assert.assertEquals(0, builds.get());
+
+        Object value = provider.provide();
+        Assert.assertTrue(provider.isInitialized());
+        Assert.assertSame(value, provider.get());
+        Assert.assertEquals(1, builds.get());
+    }
+}
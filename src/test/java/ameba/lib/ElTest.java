@@ -0,0 +1,43 @@
+package ameba.lib;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * @author icode
+ */
+public class ElTest {
+
+    public static String upper(String value) {
+        return value.toUpperCase();
+    }
+
+    @Test
+    public void testParse() {
+        Bean bean = new Bean();
+        Assert.assertEquals("icode-1", El.parse("${name}-${count}", bean));
+        Assert.assertEquals(1, bean.reads);
+
+        bean.name = "ameba";
+        Assert.assertEquals("AMEBA", El.parse("${fn:upper(name)}", bean, "fn", ElTest.class));
+        Assert.assertEquals("AMEBA", El.parse("${fn:upper(name)}", bean, "fn", ElTest.class));
+        Assert.assertSame(El.getFunctions(ElTest.class), El.getFunctions(ElTest.class));
+    }
+
+    public static class Bean {
+        int reads;
+        String name = "icode";
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return ++reads;
+        }
+
+        public String getUnused() {
+            throw new IllegalStateException("unused");
+        }
+    }
+}
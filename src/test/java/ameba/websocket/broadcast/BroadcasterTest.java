@@ -0,0 +1,196 @@
+package ameba.websocket.broadcast;
+
+import ameba.websocket.adapter.NativeWebSocketSession;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author icode
+ */
+public class BroadcasterTest {
+
+    private static Broadcaster broadcaster(SessionRegistry registry, AtomicInteger encoded) {
+        return new Broadcaster(registry, new ObjectMapper() {
+            @Override
+            public String writeValueAsString(Object value) throws JsonProcessingException {
+                encoded.incrementAndGet();
+                return super.writeValueAsString(value);
+            }
+        });
+    }
+
+    @Test
+    public void testEncodeOnce() {
+        SessionRegistry registry = new SessionRegistry(8, SlowConsumerPolicy.DROP_OLDEST);
+        AtomicInteger encoded = new AtomicInteger();
+        Broadcaster broadcaster = broadcaster(registry, encoded);
+        List<Peer> peers = Lists.newArrayList(new Peer("a"), new Peer("b"), new Peer("c"));
+        for (Peer peer : peers) {
+            registry.register(peer.session);
+        }
+        registry.subscribe("news", peers.get(0).session);
+        registry.subscribe("news", peers.get(2).session);
+
+        Assert.assertEquals(3, broadcaster.broadcast(ImmutableMap.of("id", 1)));
+        Assert.assertEquals(1, encoded.get());
+        String text = peers.get(0).sent.get(0);
+        Assert.assertEquals("{\"id\":1}", text);
+        for (Peer peer : peers) {
+            Assert.assertSame(text, peer.sent.get(0));
+            peer.complete();
+        }
+
+        Assert.assertEquals(2, broadcaster.publish("news", ImmutableMap.of("id", 2)));
+        Assert.assertEquals(2, encoded.get());
+        Assert.assertSame(peers.get(0).sent.get(1), peers.get(2).sent.get(1));
+        Assert.assertEquals(1, peers.get(1).sent.size());
+    }
+
+    @Test
+    public void testDropNewest() {
+        Peer peer = fill(SlowConsumerPolicy.DROP_NEWEST);
+        Assert.assertFalse(peer.outbound.offer(PreparedMessage.text("4")));
+        Assert.assertEquals(1, peer.outbound.getDropped());
+        Assert.assertEquals(2, peer.outbound.getQueueSize());
+        peer.completeAll();
+        Assert.assertEquals(Lists.newArrayList("1", "2", "3"), peer.sent);
+    }
+
+    @Test
+    public void testDropOldest() {
+        Peer peer = fill(SlowConsumerPolicy.DROP_OLDEST);
+        Assert.assertTrue(peer.outbound.offer(PreparedMessage.text("4")));
+        Assert.assertEquals(1, peer.outbound.getDropped());
+        Assert.assertEquals(2, peer.outbound.getQueueSize());
+        peer.completeAll();
+        Assert.assertEquals(Lists.newArrayList("1", "3", "4"), peer.sent);
+    }
+
+    @Test
+    public void testDisconnect() {
+        Peer peer = fill(SlowConsumerPolicy.DISCONNECT);
+        Assert.assertFalse(peer.outbound.offer(PreparedMessage.text("4")));
+        Assert.assertFalse(peer.open.get());
+        Assert.assertEquals(0, peer.outbound.getQueueSize());
+        Assert.assertFalse(peer.outbound.offer(PreparedMessage.text("5")));
+        peer.completeAll();
+        Assert.assertEquals(Lists.newArrayList("1"), peer.sent);
+    }
+
+    @Test
+    public void testUnregisterOnClose() {
+        SessionRegistry registry = new SessionRegistry(2, SlowConsumerPolicy.DROP_OLDEST);
+        Peer peer = new Peer("a");
+        registry.register(peer.session);
+        registry.subscribe("news", peer.session);
+        Broadcaster broadcaster = broadcaster(registry, new AtomicInteger());
+        broadcaster.publish("news", "1");
+        broadcaster.publish("news", "2");
+        Assert.assertEquals(1, registry.getQueueSize(peer.session));
+
+        peer.open.set(false);
+        registry.unregister(peer.session);
+        Assert.assertEquals(0, registry.size());
+        Assert.assertTrue(registry.getTopics().isEmpty());
+        Assert.assertEquals(0, broadcaster.publish("news", "3"));
+        Assert.assertEquals(0, broadcaster.broadcast("3"));
+        // the send in flight completes after the close, nothing more is sent
+        peer.completeAll();
+        Assert.assertEquals(Lists.newArrayList("1"), peer.sent);
+    }
+
+    /**
+     * one message in flight and the queue of 2 full
+     */
+    private static Peer fill(SlowConsumerPolicy policy) {
+        Peer peer = new Peer("a");
+        peer.outbound = new SessionOutbound(peer.session, 2, policy);
+        for (int i = 1; i <= 3; i++) {
+            Assert.assertTrue(peer.outbound.offer(PreparedMessage.text(String.valueOf(i))));
+        }
+        Assert.assertEquals(2, peer.outbound.getQueueSize());
+        Assert.assertEquals(Lists.newArrayList("1"), peer.sent);
+        return peer;
+    }
+
+    /**
+     * a session whose asynchronous sends complete when the test says so
+     */
+    private static class Peer {
+        final AtomicBoolean open = new AtomicBoolean(true);
+        final List<String> sent = Lists.newArrayList();
+        final List<SendHandler> pending = Lists.newArrayList();
+        final NativeWebSocketSession<?> session;
+        SessionOutbound outbound;
+
+        Peer(String id) {
+            Map<String, Object> userProperties = Maps.newHashMap();
+            RemoteEndpoint.Async remote = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                    RemoteEndpoint.Async.class.getClassLoader(), new Class[]{RemoteEndpoint.Async.class},
+                    (p, method, args) -> {
+                        if (method.getName().equals("sendText")) {
+                            sent.add((String) args[0]);
+                            pending.add((SendHandler) args[1]);
+                            return null;
+                        }
+                        throw new AssertionError("unexpected " + method.getName());
+                    });
+            Session nativeSession = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                    new Class[]{Session.class},
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAsyncRemote":
+                                return remote;
+                            case "getUserProperties":
+                                return userProperties;
+                            default:
+                                throw new AssertionError("unexpected " + method.getName());
+                        }
+                    });
+            session = (NativeWebSocketSession<?>) Proxy.newProxyInstance(
+                    NativeWebSocketSession.class.getClassLoader(), new Class[]{NativeWebSocketSession.class},
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "getId":
+                                return id;
+                            case "isOpen":
+                                return open.get();
+                            case "getNativeSession":
+                                return nativeSession;
+                            case "close":
+                                open.set(false);
+                                return null;
+                            case "toString":
+                                return id;
+                            default:
+                                throw new AssertionError("unexpected " + method.getName());
+                        }
+                    });
+        }
+
+        void complete() {
+            pending.remove(0).onResult(new SendResult());
+        }
+
+        void completeAll() {
+            while (!pending.isEmpty()) {
+                complete();
+            }
+        }
+    }
+}
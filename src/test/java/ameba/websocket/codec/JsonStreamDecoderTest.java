@@ -0,0 +1,52 @@
+package ameba.websocket.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author icode
+ */
+public class JsonStreamDecoderTest {
+
+    @Test
+    public void testFragments() throws IOException {
+        JsonStreamDecoder<Map> decoder = new JsonStreamDecoder<>(new ObjectMapper(), Map.class);
+        Assert.assertTrue(decoder.decode(bytes("{\"name\":\"am"), false).isEmpty());
+        List<Map> values = decoder.decode(bytes("eba\",\"n\":[1,2]}"), true);
+        Assert.assertEquals(1, values.size());
+        Assert.assertEquals("ameba", values.get(0).get("name"));
+    }
+
+    @Test
+    public void testNewlineDelimited() throws IOException {
+        JsonStreamDecoder<Integer> decoder = new JsonStreamDecoder<>(new ObjectMapper(), Integer.class);
+        List<Integer> values = decoder.decode("1\n2\n3", true);
+        Assert.assertEquals(3, values.size());
+        Assert.assertEquals(Integer.valueOf(3), values.get(2));
+        values = decoder.decode("4\n", true);
+        Assert.assertEquals(Integer.valueOf(4), values.get(0));
+    }
+
+    @Test
+    public void testIncompleteMessage() throws IOException {
+        JsonStreamDecoder<Map> decoder = new JsonStreamDecoder<>(new ObjectMapper(), Map.class);
+        try {
+            decoder.decode("{\"a\":1", true);
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(1, decoder.decode("{\"a\":1}", true).size());
+    }
+
+    private static ByteBuffer bytes(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,54 @@
+package ameba.websocket.metrics;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author icode
+ */
+public class EndpointMetricsTest {
+
+    @Test
+    public void testAdmission() {
+        EndpointMetrics metrics = WebSocketMetrics.register(EndpointMetricsTest.class);
+        metrics.setMaxSessions(2);
+        Assert.assertTrue(metrics.tryAdmit());
+        Assert.assertTrue(metrics.tryAdmit());
+        Assert.assertFalse(metrics.tryAdmit());
+        Assert.assertEquals(1, metrics.getRejectedSessions());
+        metrics.release();
+        Assert.assertTrue(metrics.tryAdmit());
+        Assert.assertEquals(2, metrics.getOpenSessions());
+        Assert.assertEquals(3, metrics.getTotalSessions());
+    }
+
+    @Test
+    public void testMessageSizes() {
+        EndpointMetrics metrics = new EndpointMetrics(EndpointMetricsTest.class);
+        metrics.recordInbound("ab", false);
+        metrics.recordInbound("cd", true);
+        Assert.assertEquals(1, metrics.getInboundMessages());
+        Assert.assertEquals(4, metrics.getInboundBytes());
+
+        metrics.recordSend(EndpointMetrics.sizeOf("abc"), 1000, true);
+        metrics.recordSend(EndpointMetrics.sizeOf(new Object()), 1000, true);
+        Assert.assertEquals(2, metrics.getOutboundMessages());
+        Assert.assertEquals(3, metrics.getOutboundBytes());
+        Assert.assertEquals(1, metrics.getUnsizedOutboundMessages());
+    }
+
+    @Test
+    public void testLatencyPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(128, histogram.getPercentile(50));
+        Assert.assertEquals(128, histogram.getPercentile(99));
+        Assert.assertEquals(16384, histogram.getPercentile(100));
+    }
+}
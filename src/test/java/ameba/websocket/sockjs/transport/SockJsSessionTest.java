@@ -0,0 +1,194 @@
+package ameba.websocket.sockjs.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import junit.framework.Assert;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author icode
+ */
+public class SockJsSessionTest {
+    private static final String XHR_STREAMING_PRELUDE = Strings.repeat("h", 2048) + "\n";
+
+    private SockJsSessionManager manager = manager(128 * 1024);
+
+    private static SockJsSessionManager manager(long streamBytesLimit) {
+        return new SockJsSessionManager(new ResourceConfig()
+                .property(SockJsSessionManager.STREAM_BYTES_LIMIT_CONF, String.valueOf(streamBytesLimit)),
+                new ObjectMapper());
+    }
+
+    @After
+    public void shutdown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void testXhrStreamingFraming() {
+        SockJsSession session = manager.getOrCreateSession("s1");
+        session.sendMessage("queued");
+        Output output = receive(new XhrStreamingTransport(), session);
+
+        Assert.assertEquals(Lists.newArrayList(XHR_STREAMING_PRELUDE, "o\n", "a[\"queued\"]\n"), output.chunks);
+        Assert.assertFalse(output.isClosed());
+
+        session.sendMessage("hello");
+        Assert.assertEquals("a[\"hello\"]\n", output.last());
+        Assert.assertFalse(output.isClosed());
+    }
+
+    @Test
+    public void testStreamBytesLimit() {
+        manager.shutdown();
+        // the prelude and the open frame are 2051 bytes, the message frame is 10 chars but 18 bytes
+        manager = manager(2065);
+        SockJsSession session = manager.getOrCreateSession("s1");
+        Output output = receive(new XhrStreamingTransport(), session);
+        Assert.assertFalse(output.isClosed());
+
+        session.sendMessage("中文中文");
+        Assert.assertEquals("a[\"中文中文\"]\n", output.last());
+        Assert.assertTrue(output.isClosed());
+    }
+
+    @Test
+    public void testEventSourceFraming() {
+        EventSourceTransport transport = new EventSourceTransport();
+        Assert.assertEquals("text/event-stream;charset=UTF-8", transport.getMediaType().toString());
+
+        SockJsSession session = manager.getOrCreateSession("s1");
+        Output output = receive(transport, session);
+        session.sendMessage("hello");
+
+        Assert.assertEquals(Lists.newArrayList("\r\n", "data: o\r\n\r\n", "data: a[\"hello\"]\r\n\r\n"),
+                output.chunks);
+        Assert.assertFalse(output.isClosed());
+    }
+
+    @Test
+    public void testXhrPollingFraming() {
+        XhrPollingTransport transport = new XhrPollingTransport();
+        Assert.assertEquals(AbstractHttpTransport.JAVASCRIPT_TYPE, transport.getMediaType());
+
+        SockJsSession session = manager.getOrCreateSession("s1");
+        Output open = receive(transport, session);
+        Assert.assertEquals(Lists.newArrayList("o\n"), open.chunks);
+        Assert.assertTrue(open.isClosed());
+
+        session.sendMessage("a");
+        session.sendMessage("b");
+        Output poll = receive(transport, session);
+        Assert.assertEquals(Lists.newArrayList("a[\"a\",\"b\"]\n"), poll.chunks);
+        Assert.assertTrue(poll.isClosed());
+
+        Output waiting = receive(transport, session);
+        Output another = receive(transport, session);
+        Assert.assertEquals(Lists.newArrayList("c[2010,\"Another connection still open\"]\n"), another.chunks);
+        Assert.assertFalse(waiting.isClosed());
+    }
+
+    @Test
+    public void testClose() {
+        SockJsSession session = manager.getOrCreateSession("s1");
+        AtomicReference<CloseReason> closed = new AtomicReference<>();
+        session.setCloseHandler(closed::set);
+        receive(new XhrPollingTransport(), session);
+
+        session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "bye"));
+        Assert.assertEquals(CloseReason.CloseCodes.NORMAL_CLOSURE, closed.get().getCloseCode());
+        Assert.assertNull(manager.getSession("s1"));
+        Assert.assertFalse(session.sendMessage("late"));
+
+        Output output = receive(new XhrPollingTransport(), session);
+        Assert.assertEquals(Lists.newArrayList("c[1000,\"bye\"]\n"), output.chunks);
+    }
+
+    @Test
+    public void testEndpointSession() throws IOException {
+        SockJsSession session = manager.getOrCreateSession("s1");
+        AtomicReference<CloseReason> closed = new AtomicReference<>();
+        Endpoint endpoint = new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+                session.addMessageHandler(String.class, (MessageHandler.Whole<String>) message -> {
+                    try {
+                        session.getBasicRemote().sendText(session.getPathParameters().get("room") + ":" + message);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                session.getAsyncRemote().sendText("welcome");
+            }
+
+            @Override
+            public void onClose(Session session, CloseReason closeReason) {
+                closed.set(closeReason);
+            }
+        };
+        ServerEndpointConfig config = ServerEndpointConfig.Builder.create(Endpoint.class, "/chat/{room}")
+                .configurator(new ServerEndpointConfig.Configurator()).build();
+        new SockJsEndpointSession(session, endpoint, config, URI.create("/chat/a/0/s1/xhr"),
+                ImmutableMap.of(), ImmutableMap.of("room", "a"), null, false).open();
+
+        XhrPollingTransport transport = new XhrPollingTransport();
+        Assert.assertEquals(Lists.newArrayList("o\n"), receive(transport, session).chunks);
+        Assert.assertEquals(Lists.newArrayList("a[\"welcome\"]\n"), receive(transport, session).chunks);
+
+        session.handleMessageFrame("[\"hi\",\"there\"]");
+        Assert.assertEquals(Lists.newArrayList("a[\"a:hi\",\"a:there\"]\n"), receive(transport, session).chunks);
+
+        session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, null));
+        Assert.assertEquals(CloseReason.CloseCodes.GOING_AWAY, closed.get().getCloseCode());
+    }
+
+    private Output receive(AbstractHttpTransport transport, SockJsSession session) {
+        Output output = new Output();
+        session.attach(output, transport);
+        return output;
+    }
+
+    private static class Output extends ChunkedOutput<String> {
+        private final List<String> chunks = Lists.newArrayList();
+        private boolean closed;
+
+        Output() {
+            super(String.class);
+        }
+
+        @Override
+        public void write(String chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        String last() {
+            return chunks.get(chunks.size() - 1);
+        }
+    }
+}